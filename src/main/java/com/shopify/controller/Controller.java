@@ -1,21 +1,52 @@
 package com.shopify.controller;
 
+import com.shopify.dto.InventoryFilterDTO;
+import com.shopify.dto.InventorySortKey;
 import com.shopify.dto.ResponseDTO;
 import com.shopify.model.Inventory;
+import com.shopify.services.AdmissionService;
+import com.shopify.services.AvailabilityService;
+import com.shopify.services.CacheService;
+import com.shopify.services.ConcurrencyLimitExceededException;
+import com.shopify.services.ConcurrencyLimitService;
+import com.shopify.services.InventorySearchService;
 import com.shopify.services.InventoryService;
+import com.shopify.services.LowStockService;
+import com.shopify.services.OutboxService;
+import com.shopify.services.SnapshotExportService;
+import com.shopify.services.StockImportService;
+import com.shopify.services.StockFeedService;
+import com.shopify.services.ValuationService;
 import com.shopify.services.WarehouseService;
+import com.shopify.services.WarmUpService;
+import com.shopify.util.InventoryCursor;
 import com.shopify.util.Utility;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Class that represents a controller that exposes the application end point to
@@ -34,6 +65,45 @@ public class Controller {
 	@Autowired
 	private WarehouseService warehouseService;
 
+	@Autowired
+	private InventorySearchService inventorySearchService;
+
+	@Autowired
+	private LowStockService lowStockService;
+
+	@Autowired
+	private ValuationService valuationService;
+
+	@Autowired
+	private CacheService cacheService;
+
+	@Autowired
+	private StockFeedService stockFeedService;
+
+	@Autowired
+	private OutboxService outboxService;
+
+	@Autowired
+	private SnapshotExportService snapshotExportService;
+
+	@Autowired
+	private StockImportService stockImportService;
+
+	@Autowired
+	private AvailabilityService availabilityService;
+
+	@Autowired
+	private WarmUpService warmUpService;
+
+	@Autowired
+	private ApplicationAvailability applicationAvailability;
+
+	@Autowired
+	private AdmissionService admissionService;
+
+	@Autowired
+	private ConcurrencyLimitService concurrencyLimitService;
+
 	@Autowired
 	Utility utility;
 
@@ -120,12 +190,18 @@ public class Controller {
 	}
 
 	/**
-	 * Get all warehouses.
+	 * Get all warehouses. Responds with 304 and no body when the client's
+	 * If-None-Match header matches the current warehouse version.
 	 * 
+	 * @param request {@link WebRequest}
 	 * @return list of warehouses
 	 */
 	@GetMapping("/warehouse")
-	public @ResponseBody ResponseDTO getWarehouse() {
+	public @ResponseBody ResponseDTO getWarehouse(WebRequest request) {
+		if (request.checkNotModified(warehouseService.getWarehousesTag())) {
+			return null;
+		}
+
 		ResponseDTO result = new ResponseDTO("Success", false);
 		result.setData(warehouseService.getWarehouses());
 		return result;
@@ -165,13 +241,13 @@ public class Controller {
 		}
 
 		Inventory inventory = inventoryService.createInventory(name, price);
-		warehouseService.addNewInvToWarehouse(warehouseId, quantity, inventory.getInventoryId());
+		warehouseService.addInvToWarehouse(warehouseId, quantity, inventory.getInventoryId());
 
 		return utility.generateResponse("Inventory successfully created", false, result);
 	}
 
 	/**
-	 * Adds inventory to warehouse if it does not exist already.
+	 * Adds inventory to warehouse, or adds to its quantity if it is there already.
 	 * 
 	 * @param warehouseId id of warehouse receiving inventory
 	 * @param inventoryId id of inventory to be added
@@ -199,12 +275,7 @@ public class Controller {
 			return utility.generateResponse("Inventory does not exist", true, result);
 		}
 
-		if (!utility.validateInventoryDoesNotExistInWarehouse(inventoryId, warehouseId)) {
-			response.setStatus(400);
-			return utility.generateResponse("This inventory already exists in this warehouse", true, result);
-		}
-
-		warehouseService.addExistingInvToWarehouse(warehouseId, quantity, inventoryId);
+		warehouseService.addInvToWarehouse(warehouseId, quantity, inventoryId);
 		return utility.generateResponse("Inventory successfully created in warehouse", false, result);
 	}
 
@@ -380,12 +451,128 @@ public class Controller {
 	}
 
 	/**
-	 * Get total inventories in all warehouses.
+	 * Set the reorder threshold of inventory in a warehouse. Inventory whose
+	 * quantity drops below its threshold is reported as low.
 	 * 
+	 * @param warehouseId target warehouse
+	 * @param inventoryId target inventory
+	 * @param threshold   quantity below which inventory is low
+	 * @param response    {@link HttpServletResponse}
+	 * @return result of action
+	 */
+	@PutMapping("/inventory/{inventoryId}/warehouse/{warehouseId}/threshold/{threshold}")
+	public @ResponseBody ResponseDTO setReorderThreshold(@PathVariable long warehouseId,
+			@PathVariable long inventoryId, @PathVariable int threshold, HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO();
+
+		if (!utility.validateIntMustBePositive(threshold)) {
+			response.setStatus(400);
+			return utility.generateResponse("Threshold must be positive", true, result);
+		}
+
+		if (!validateInventoryInWarehouse(warehouseId, inventoryId, response, result)) {
+			return result;
+		}
+
+		lowStockService.setThreshold(warehouseId, inventoryId, threshold);
+		return utility.generateResponse("Reorder threshold successfully set", false, result);
+	}
+
+	/**
+	 * Remove the reorder threshold of inventory in a warehouse.
+	 * 
+	 * @param warehouseId target warehouse
+	 * @param inventoryId target inventory
+	 * @param response    {@link HttpServletResponse}
+	 * @return result of action
+	 */
+	@DeleteMapping("/inventory/{inventoryId}/warehouse/{warehouseId}/threshold")
+	public @ResponseBody ResponseDTO removeReorderThreshold(@PathVariable long warehouseId,
+			@PathVariable long inventoryId, HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO();
+
+		if (!validateInventoryInWarehouse(warehouseId, inventoryId, response, result)) {
+			return result;
+		}
+
+		lowStockService.setThreshold(warehouseId, inventoryId, null);
+		return utility.generateResponse("Reorder threshold successfully removed", false, result);
+	}
+
+	/**
+	 * Get the available quantities of up to 200 inventories at once, per
+	 * warehouse and in total. Answered from memory without querying the database.
+	 * 
+	 * @param ids          ids of inventories
+	 * @param warehouseIds ids of warehouses to include, optional
+	 * @param response     {@link HttpServletResponse}
+	 * @return availability of each inventory as data in response dto
+	 */
+	@GetMapping("/inventory/availability")
+	public @ResponseBody ResponseDTO getAvailability(@RequestParam(required = false) List<Long> ids,
+			@RequestParam(required = false) List<Long> warehouseIds, HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO("Success", false);
+
+		if (!utility.validateIdBatch(ids)) {
+			response.setStatus(400);
+			return utility.generateResponse("Between 1 and 200 inventory ids must be given", true, result);
+		}
+
+		result.setData(availabilityService.getAvailability(ids, warehouseIds));
+		return result;
+	}
+
+	/**
+	 * Get the available quantity of inventory in a warehouse, or in all warehouses
+	 * when no warehouse is given. Answered from memory without querying the
+	 * database; unknown inventory or warehouses have no stock.
+	 * 
+	 * @param inventoryId target inventory
+	 * @param warehouseId target warehouse, optional
+	 * @return availability as data in response dto
+	 */
+	@GetMapping("/inventory/{inventoryId}/availability")
+	public @ResponseBody ResponseDTO getAvailability(@PathVariable long inventoryId,
+			@RequestParam(required = false) Long warehouseId) {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(availabilityService.getAvailability(inventoryId, warehouseId));
+		return result;
+	}
+
+	/**
+	 * Get inventory that is below its reorder threshold, largest shortfall first.
+	 * 
+	 * @param limit    maximum number of entries, at most 100
+	 * @param response {@link HttpServletResponse}
+	 * @return low inventory as data in response dto
+	 */
+	@GetMapping("/inventory/low")
+	public @ResponseBody ResponseDTO getLowInventory(@RequestParam(required = false, defaultValue = "20") int limit,
+			HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO("Success", false);
+
+		if (!utility.validatePage(0, limit)) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid limit", true, result);
+		}
+
+		result.setData(lowStockService.getLowStock(limit));
+		return result;
+	}
+
+	/**
+	 * Get total inventories in all warehouses. Responds with 304 and no body when
+	 * the client's If-None-Match header matches the current inventory version.
+	 * 
+	 * @param request {@link WebRequest}
 	 * @return inventory as data in response dto
 	 */
 	@GetMapping("/inventory")
-	public @ResponseBody ResponseDTO getAllInventory() {
+	public @ResponseBody ResponseDTO getAllInventory(WebRequest request) {
+		if (request.checkNotModified(warehouseService.getAllInvTag())) {
+			return null;
+		}
+
 		ResponseDTO result = new ResponseDTO("Success", false);
 
 		result.setData(warehouseService.getAllInv());
@@ -412,4 +599,359 @@ public class Controller {
 		result.setData(warehouseService.getAllInvByWarehouse(warehouseId));
 		return result;
 	}
+
+	/**
+	 * Get inventory quantities per warehouse matching filters, one page at a
+	 * time. Omitted filters are not applied. The next page is requested by
+	 * passing the cursor returned with the previous page and the same sort.
+	 * 
+	 * @param warehouseId ids of warehouses to include, all if omitted
+	 * @param minQuantity smallest quantity to include
+	 * @param maxQuantity largest quantity to include
+	 * @param minPrice    lowest price to include
+	 * @param maxPrice    highest price to include
+	 * @param namePrefix  prefix of inventory names to include
+	 * @param sort        one of name, price or quantity
+	 * @param direction   asc or desc
+	 * @param size        page size, at most 100
+	 * @param cursor      cursor returned with previous page
+	 * @param response    {@link HttpServletResponse}
+	 * @return page of matching rows and cursor of next page as data in response
+	 *         dto
+	 */
+	@GetMapping("/inventory/query")
+	public @ResponseBody ResponseDTO queryInventory(@RequestParam(required = false) List<Long> warehouseId,
+			@RequestParam(required = false) Integer minQuantity, @RequestParam(required = false) Integer maxQuantity,
+			@RequestParam(required = false) Double minPrice, @RequestParam(required = false) Double maxPrice,
+			@RequestParam(required = false) String namePrefix,
+			@RequestParam(required = false, defaultValue = "name") String sort,
+			@RequestParam(required = false, defaultValue = "asc") String direction,
+			@RequestParam(required = false, defaultValue = "50") int size,
+			@RequestParam(required = false) String cursor, HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO("Success", false);
+
+		InventoryFilterDTO filter = new InventoryFilterDTO();
+		try {
+			filter.setSort(InventorySortKey.valueOf(sort.toUpperCase(Locale.ROOT)));
+		} catch (IllegalArgumentException e) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid sort", true, result);
+		}
+
+		if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid direction", true, result);
+		}
+
+		if (!utility.validatePage(0, size)) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid page or size", true, result);
+		}
+
+		filter.setDescending(direction.equalsIgnoreCase("desc"));
+		filter.setSize(size);
+		filter.setWarehouseIds(warehouseId);
+		filter.setMinQuantity(minQuantity);
+		filter.setMaxQuantity(maxQuantity);
+		filter.setMinPrice(minPrice);
+		filter.setMaxPrice(maxPrice);
+		filter.setNamePrefix(namePrefix);
+
+		if (cursor != null) {
+			try {
+				InventoryCursor.decode(cursor, filter);
+			} catch (IllegalArgumentException e) {
+				response.setStatus(400);
+				return utility.generateResponse("Invalid cursor", true, result);
+			}
+		}
+
+		result.setData(warehouseService.queryInventory(filter));
+		return result;
+	}
+
+	/**
+	 * Search inventory by words in its name. The last word also matches words it
+	 * is a prefix of, unless the query ends with a space.
+	 * 
+	 * @param q        words to search for
+	 * @param page     zero based page number
+	 * @param size     page size, at most 100
+	 * @param response {@link HttpServletResponse}
+	 * @return matching inventory as data in response dto
+	 */
+	@GetMapping("/inventory/search")
+	public @ResponseBody ResponseDTO searchInventory(@RequestParam String q,
+			@RequestParam(required = false, defaultValue = "0") int page,
+			@RequestParam(required = false, defaultValue = "20") int size, HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO("Success", false);
+
+		if (!utility.validateStringArgs(q)) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid query", true, result);
+		}
+
+		if (!utility.validatePage(page, size)) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid page or size", true, result);
+		}
+
+		result.setData(inventorySearchService.search(q, page, size));
+		return result;
+	}
+
+	/**
+	 * Get inventory whose name starts with a prefix, ignoring case, in name order.
+	 * 
+	 * @param prefix   prefix of name
+	 * @param page     zero based page number
+	 * @param size     page size, at most 100
+	 * @param response {@link HttpServletResponse}
+	 * @return matching inventory as data in response dto
+	 */
+	@GetMapping("/inventory/typeahead")
+	public @ResponseBody ResponseDTO typeaheadInventory(@RequestParam String prefix,
+			@RequestParam(required = false, defaultValue = "0") int page,
+			@RequestParam(required = false, defaultValue = "10") int size, HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO("Success", false);
+
+		if (!utility.validateStringArgs(prefix)) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid prefix", true, result);
+		}
+
+		if (!utility.validatePage(page, size)) {
+			response.setStatus(400);
+			return utility.generateResponse("Invalid page or size", true, result);
+		}
+
+		result.setData(inventorySearchService.typeahead(prefix, page, size));
+		return result;
+	}
+
+	/**
+	 * Rebuild the inventory search index from the database.
+	 * 
+	 * @return number of inventory indexed as data in response dto
+	 */
+	@PostMapping("/inventory/search/rebuild")
+	public @ResponseBody ResponseDTO rebuildInventorySearch() {
+		ResponseDTO result = new ResponseDTO("Search index successfully rebuilt", false);
+		result.setData(inventorySearchService.rebuild());
+		return result;
+	}
+
+	/**
+	 * Subscribe to a server-sent event stream of stock and inventory changes.
+	 * Clients that reconnect with a Last-Event-ID header resume after that event,
+	 * or receive a "reset" event if it is no longer available.
+	 * 
+	 * @param warehouseId optional id of warehouse to receive stock changes for
+	 * @param lastEventId id of last event received before reconnecting
+	 * @return event stream
+	 */
+	@GetMapping(path = "/stock/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter getStockFeed(@RequestParam(required = false) Long warehouseId,
+			@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+		return stockFeedService.subscribe(warehouseId, lastEventId);
+	}
+
+	/**
+	 * Get units, number of inventory items and value of stock held by each
+	 * warehouse and by all warehouses.
+	 * 
+	 * @return valuation as data in response dto
+	 */
+	@GetMapping("/analytics/valuation")
+	public @ResponseBody ResponseDTO getValuation() {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(valuationService.getValuation());
+		return result;
+	}
+
+	/**
+	 * Recompute the valuation of every warehouse from the database.
+	 * 
+	 * @return valuation as data in response dto
+	 */
+	@PostMapping("/analytics/valuation/rebuild")
+	public @ResponseBody ResponseDTO rebuildValuation() {
+		ResponseDTO result = new ResponseDTO("Valuation successfully rebuilt", false);
+		valuationService.rebuild();
+		result.setData(valuationService.getValuation());
+		return result;
+	}
+
+	/**
+	 * Start exporting a point in time snapshot of stock in every warehouse to a
+	 * compressed csv file. The export runs in the background.
+	 * 
+	 * @param resume   true to continue an interrupted export
+	 * @param response http servlet response
+	 * @return progress of export as data in response dto
+	 */
+	@PostMapping("/export/snapshot")
+	public @ResponseBody ResponseDTO startSnapshotExport(
+			@RequestParam(required = false, defaultValue = "false") boolean resume, HttpServletResponse response) {
+		ResponseDTO result = new ResponseDTO("Export successfully started", false);
+		try {
+			result.setData(snapshotExportService.start(resume));
+		} catch (IllegalStateException e) {
+			response.setStatus(400);
+			return utility.generateResponse(e.getMessage(), true, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get progress of the latest snapshot export.
+	 * 
+	 * @return progress of export as data in response dto
+	 */
+	@GetMapping("/export/snapshot")
+	public @ResponseBody ResponseDTO getSnapshotExport() {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(snapshotExportService.getProgress());
+		return result;
+	}
+
+	/**
+	 * Import physical stock counts from a csv request body with one line per
+	 * inventory in a warehouse: inventory name, warehouse name and quantity.
+	 * Counted quantities replace quantities held. The body is stored in a
+	 * temporary file first so that it can be parsed in parallel.
+	 * 
+	 * @param request http servlet request
+	 * @return numbers of lines read, imported and rejected as data in response dto
+	 * @throws IOException if the body cannot be read
+	 */
+	@PostMapping(value = "/import/stock", consumes = "text/csv")
+	public @ResponseBody ResponseDTO importStock(HttpServletRequest request) throws IOException {
+		ResponseDTO result = new ResponseDTO("Stock successfully imported", false);
+		Path file = Files.createTempFile("stock-import", ".csv");
+		try {
+			Files.copy(request.getInputStream(), file, StandardCopyOption.REPLACE_EXISTING);
+			result.setData(stockImportService.importStock(file));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+		return result;
+	}
+
+	/**
+	 * Get second-level and query cache statistics.
+	 * 
+	 * @return cache statistics as data in response dto
+	 */
+	@GetMapping("/statistics/cache")
+	public @ResponseBody ResponseDTO getCacheStatistics() {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(cacheService.getCacheStatistics());
+		return result;
+	}
+
+	/**
+	 * Get outbox relay statistics.
+	 * 
+	 * @return outbox statistics as data in response dto
+	 */
+	@GetMapping("/statistics/outbox")
+	public @ResponseBody ResponseDTO getOutboxStatistics() {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(outboxService.getStatistics());
+		return result;
+	}
+
+	/**
+	 * Get admission control statistics: requests admitted, rate limited and shed,
+	 * and time spent waiting for the concurrency limit.
+	 * 
+	 * @return admission statistics as data in response dto
+	 */
+	@GetMapping("/statistics/admission")
+	public @ResponseBody ResponseDTO getAdmissionStatistics() {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(admissionService.getStatistics());
+		return result;
+	}
+
+	/**
+	 * Get the adaptive concurrency limit, latencies it follows and operations it
+	 * turned away.
+	 * 
+	 * @return concurrency limit statistics as data in response dto
+	 */
+	@GetMapping("/statistics/concurrency")
+	public @ResponseBody ResponseDTO getConcurrencyLimitStatistics() {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(concurrencyLimitService.getStatistics());
+		return result;
+	}
+
+	/**
+	 * Get the outcome of the warm-up run at startup.
+	 * 
+	 * @return warm-up report as data in response dto
+	 */
+	@GetMapping("/statistics/warmup")
+	public @ResponseBody ResponseDTO getWarmUpReport() {
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(warmUpService.getReport());
+		return result;
+	}
+
+	/**
+	 * Report whether the application accepts traffic. Responds with 503 until
+	 * startup, including warm-up, has finished.
+	 * 
+	 * @param response {@link HttpServletResponse}
+	 * @return readiness state as data in response dto
+	 */
+	@GetMapping("/readiness")
+	public @ResponseBody ResponseDTO getReadiness(HttpServletResponse response) {
+		ReadinessState state = applicationAvailability.getReadinessState();
+		ResponseDTO result = new ResponseDTO("Success", false);
+		if (state != ReadinessState.ACCEPTING_TRAFFIC) {
+			response.setStatus(503);
+			result = new ResponseDTO("Not ready", true);
+		}
+		result.setData(state);
+		return result;
+	}
+
+	/**
+	 * Respond with 503 when an operation is turned away by the adaptive
+	 * concurrency limit.
+	 * 
+	 * @param response {@link HttpServletResponse}
+	 * @return error response
+	 */
+	@ExceptionHandler(ConcurrencyLimitExceededException.class)
+	public @ResponseBody ResponseDTO handleConcurrencyLimitExceeded(HttpServletResponse response) {
+		response.setStatus(503);
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		return new ResponseDTO("Server is busy", true);
+	}
+
+	private boolean validateInventoryInWarehouse(long warehouseId, long inventoryId, HttpServletResponse response,
+			ResponseDTO result) {
+		if (!utility.validateWarehouseExists(warehouseId)) {
+			response.setStatus(400);
+			utility.generateResponse("Warehouse does not exist", true, result);
+			return false;
+		}
+
+		if (!utility.validateInventoryExists(inventoryId)) {
+			response.setStatus(400);
+			utility.generateResponse("Inventory does not exist", true, result);
+			return false;
+		}
+
+		if (utility.validateInventoryDoesNotExistInWarehouse(inventoryId, warehouseId)) {
+			response.setStatus(400);
+			utility.generateResponse("This inventory does not exist in this warehouse", true, result);
+			return false;
+		}
+		return true;
+	}
 }
@@ -0,0 +1,138 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents a data transfer object holding admission control
+ * statistics collected since the application started.
+ * 
+ * @author stephen
+ *
+ */
+public class AdmissionStatisticsDTO {
+	private int readConcurrency;
+	private int writeConcurrency;
+	private int readInFlight;
+	private int writeInFlight;
+	private long readAdmitted;
+	private long writeAdmitted;
+	private long readRateLimited;
+	private long writeRateLimited;
+	private long readShed;
+	private long writeShed;
+	private double averageQueueMillis;
+	private double maxQueueMillis;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public AdmissionStatisticsDTO() {
+		super();
+	}
+
+	public int getReadConcurrency() {
+		return readConcurrency;
+	}
+
+	public void setReadConcurrency(int readConcurrency) {
+		this.readConcurrency = readConcurrency;
+	}
+
+	public int getWriteConcurrency() {
+		return writeConcurrency;
+	}
+
+	public void setWriteConcurrency(int writeConcurrency) {
+		this.writeConcurrency = writeConcurrency;
+	}
+
+	public int getReadInFlight() {
+		return readInFlight;
+	}
+
+	public void setReadInFlight(int readInFlight) {
+		this.readInFlight = readInFlight;
+	}
+
+	public int getWriteInFlight() {
+		return writeInFlight;
+	}
+
+	public void setWriteInFlight(int writeInFlight) {
+		this.writeInFlight = writeInFlight;
+	}
+
+	public long getReadAdmitted() {
+		return readAdmitted;
+	}
+
+	public void setReadAdmitted(long readAdmitted) {
+		this.readAdmitted = readAdmitted;
+	}
+
+	public long getWriteAdmitted() {
+		return writeAdmitted;
+	}
+
+	public void setWriteAdmitted(long writeAdmitted) {
+		this.writeAdmitted = writeAdmitted;
+	}
+
+	public long getReadRateLimited() {
+		return readRateLimited;
+	}
+
+	public void setReadRateLimited(long readRateLimited) {
+		this.readRateLimited = readRateLimited;
+	}
+
+	public long getWriteRateLimited() {
+		return writeRateLimited;
+	}
+
+	public void setWriteRateLimited(long writeRateLimited) {
+		this.writeRateLimited = writeRateLimited;
+	}
+
+	/**
+	 * Reads rejected because the concurrency limit stayed reached for the whole
+	 * queue timeout.
+	 * 
+	 * @return shed reads
+	 */
+	public long getReadShed() {
+		return readShed;
+	}
+
+	public void setReadShed(long readShed) {
+		this.readShed = readShed;
+	}
+
+	public long getWriteShed() {
+		return writeShed;
+	}
+
+	public void setWriteShed(long writeShed) {
+		this.writeShed = writeShed;
+	}
+
+	/**
+	 * Average time requests that found the concurrency limit reached waited for a
+	 * request in progress to finish.
+	 * 
+	 * @return average queue time
+	 */
+	public double getAverageQueueMillis() {
+		return averageQueueMillis;
+	}
+
+	public void setAverageQueueMillis(double averageQueueMillis) {
+		this.averageQueueMillis = averageQueueMillis;
+	}
+
+	public double getMaxQueueMillis() {
+		return maxQueueMillis;
+	}
+
+	public void setMaxQueueMillis(double maxQueueMillis) {
+		this.maxQueueMillis = maxQueueMillis;
+	}
+}
@@ -0,0 +1,44 @@
+package com.shopify.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Class that represents a data transfer object holding the quantity of an
+ * inventory available in one warehouse, or in all warehouses if no warehouse
+ * is set.
+ * 
+ * @author stephen
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AvailabilityDTO {
+	private final long inventoryId;
+	private final Long warehouseId;
+	private final long quantity;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse or null for all warehouses
+	 * @param quantity    quantity available
+	 */
+	public AvailabilityDTO(long inventoryId, Long warehouseId, long quantity) {
+		super();
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+		this.quantity = quantity;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public Long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public long getQuantity() {
+		return quantity;
+	}
+}
@@ -0,0 +1,81 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents a data transfer object holding second-level and query
+ * cache statistics collected by hibernate since the application started.
+ * 
+ * @author stephen
+ *
+ */
+public class CacheStatisticsDTO {
+	private long secondLevelCacheHitCount;
+	private long secondLevelCacheMissCount;
+	private long secondLevelCachePutCount;
+	private long queryCacheHitCount;
+	private long queryCacheMissCount;
+	private long queryCachePutCount;
+	private long queryExecutionCount;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public CacheStatisticsDTO() {
+		super();
+	}
+
+	public long getSecondLevelCacheHitCount() {
+		return secondLevelCacheHitCount;
+	}
+
+	public void setSecondLevelCacheHitCount(long secondLevelCacheHitCount) {
+		this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+	}
+
+	public long getSecondLevelCacheMissCount() {
+		return secondLevelCacheMissCount;
+	}
+
+	public void setSecondLevelCacheMissCount(long secondLevelCacheMissCount) {
+		this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+	}
+
+	public long getSecondLevelCachePutCount() {
+		return secondLevelCachePutCount;
+	}
+
+	public void setSecondLevelCachePutCount(long secondLevelCachePutCount) {
+		this.secondLevelCachePutCount = secondLevelCachePutCount;
+	}
+
+	public long getQueryCacheHitCount() {
+		return queryCacheHitCount;
+	}
+
+	public void setQueryCacheHitCount(long queryCacheHitCount) {
+		this.queryCacheHitCount = queryCacheHitCount;
+	}
+
+	public long getQueryCacheMissCount() {
+		return queryCacheMissCount;
+	}
+
+	public void setQueryCacheMissCount(long queryCacheMissCount) {
+		this.queryCacheMissCount = queryCacheMissCount;
+	}
+
+	public long getQueryCachePutCount() {
+		return queryCachePutCount;
+	}
+
+	public void setQueryCachePutCount(long queryCachePutCount) {
+		this.queryCachePutCount = queryCachePutCount;
+	}
+
+	public long getQueryExecutionCount() {
+		return queryExecutionCount;
+	}
+
+	public void setQueryExecutionCount(long queryExecutionCount) {
+		this.queryExecutionCount = queryExecutionCount;
+	}
+}
@@ -0,0 +1,100 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents a data transfer object holding the state of the
+ * adaptive concurrency limit and rejections since the application started.
+ * 
+ * @author stephen
+ *
+ */
+public class ConcurrencyLimitStatisticsDTO {
+	private double limit;
+	private int inFlight;
+	private double shortLatencyMillis;
+	private double longLatencyMillis;
+	private long completed;
+	private long rejectedCritical;
+	private long rejectedNormal;
+	private long rejectedBulk;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public ConcurrencyLimitStatisticsDTO() {
+		super();
+	}
+
+	public double getLimit() {
+		return limit;
+	}
+
+	public void setLimit(double limit) {
+		this.limit = limit;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	public void setInFlight(int inFlight) {
+		this.inFlight = inFlight;
+	}
+
+	/**
+	 * Recent latency of operations, averaged over the last few operations.
+	 * 
+	 * @return recent latency
+	 */
+	public double getShortLatencyMillis() {
+		return shortLatencyMillis;
+	}
+
+	public void setShortLatencyMillis(double shortLatencyMillis) {
+		this.shortLatencyMillis = shortLatencyMillis;
+	}
+
+	/**
+	 * Baseline latency of operations that recent latency is compared against.
+	 * 
+	 * @return baseline latency
+	 */
+	public double getLongLatencyMillis() {
+		return longLatencyMillis;
+	}
+
+	public void setLongLatencyMillis(double longLatencyMillis) {
+		this.longLatencyMillis = longLatencyMillis;
+	}
+
+	public long getCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(long completed) {
+		this.completed = completed;
+	}
+
+	public long getRejectedCritical() {
+		return rejectedCritical;
+	}
+
+	public void setRejectedCritical(long rejectedCritical) {
+		this.rejectedCritical = rejectedCritical;
+	}
+
+	public long getRejectedNormal() {
+		return rejectedNormal;
+	}
+
+	public void setRejectedNormal(long rejectedNormal) {
+		this.rejectedNormal = rejectedNormal;
+	}
+
+	public long getRejectedBulk() {
+		return rejectedBulk;
+	}
+
+	public void setRejectedBulk(long rejectedBulk) {
+		this.rejectedBulk = rejectedBulk;
+	}
+}
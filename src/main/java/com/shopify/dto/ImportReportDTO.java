@@ -0,0 +1,63 @@
+package com.shopify.dto;
+
+import java.util.List;
+
+/**
+ * Class that represents a data transfer object holding the outcome of a bulk
+ * stock import.
+ * 
+ * @author stephen
+ *
+ */
+public class ImportReportDTO {
+	private final long linesRead;
+	private final long rowsImported;
+	private final long rejectedLines;
+	private final List<String> rejections;
+	private final long elapsedMillis;
+	private final double rowsPerSecond;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param linesRead     number of lines read, excluding a header
+	 * @param rowsImported  number of quantities written
+	 * @param rejectedLines number of lines that could not be imported
+	 * @param rejections    reasons for the first rejected lines
+	 * @param elapsedMillis duration of import in milliseconds
+	 */
+	public ImportReportDTO(long linesRead, long rowsImported, long rejectedLines, List<String> rejections,
+			long elapsedMillis) {
+		super();
+		this.linesRead = linesRead;
+		this.rowsImported = rowsImported;
+		this.rejectedLines = rejectedLines;
+		this.rejections = rejections;
+		this.elapsedMillis = elapsedMillis;
+		this.rowsPerSecond = rowsImported * 1000.0 / Math.max(1, elapsedMillis);
+	}
+
+	public long getLinesRead() {
+		return linesRead;
+	}
+
+	public long getRowsImported() {
+		return rowsImported;
+	}
+
+	public long getRejectedLines() {
+		return rejectedLines;
+	}
+
+	public List<String> getRejections() {
+		return rejections;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+}
@@ -1,18 +1,52 @@
 package com.shopify.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 /**
- * Interface that represents a data transfer object which is mapped to queries
- * from database tables.
+ * Class that represents an immutable data transfer object which is mapped to
+ * queries from database tables through constructor expressions. Rows are
+ * written by {@link InventoryDTOSerializer} rather than through bean
+ * introspection since listings can hold a very large number of them.
  * 
  * @author stephen
  *
  */
-public interface InventoryDTO {
-	long getId();
+@JsonSerialize(using = InventoryDTOSerializer.class)
+public final class InventoryDTO {
+	private final long id;
+	private final String name;
+	private final long quantity;
+	private final double price;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param id       id of inventory
+	 * @param name     name of inventory
+	 * @param quantity quantity of inventory
+	 * @param price    price of inventory
+	 */
+	public InventoryDTO(long id, String name, long quantity, double price) {
+		super();
+		this.id = id;
+		this.name = name;
+		this.quantity = quantity;
+		this.price = price;
+	}
+
+	public long getId() {
+		return id;
+	}
 
-	String getName();
+	public String getName() {
+		return name;
+	}
 
-	int getQuantity();
+	public long getQuantity() {
+		return quantity;
+	}
 
-	double getPrice();
+	public double getPrice() {
+		return price;
+	}
 }
@@ -0,0 +1,46 @@
+package com.shopify.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Class that represents a serializer writing {@link InventoryDTO} rows straight
+ * to the generator. Field names are encoded once up front and no per row
+ * reflection or intermediate objects are involved.
+ * 
+ * @author stephen
+ *
+ */
+public class InventoryDTOSerializer extends StdSerializer<InventoryDTO> {
+	private static final long serialVersionUID = 1L;
+
+	private static final SerializableString ID = new SerializedString("id");
+	private static final SerializableString NAME = new SerializedString("name");
+	private static final SerializableString QUANTITY = new SerializedString("quantity");
+	private static final SerializableString PRICE = new SerializedString("price");
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public InventoryDTOSerializer() {
+		super(InventoryDTO.class);
+	}
+
+	@Override
+	public void serialize(InventoryDTO value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject(value, 4);
+		gen.writeFieldName(ID);
+		gen.writeNumber(value.getId());
+		gen.writeFieldName(NAME);
+		gen.writeString(value.getName());
+		gen.writeFieldName(QUANTITY);
+		gen.writeNumber(value.getQuantity());
+		gen.writeFieldName(PRICE);
+		gen.writeNumber(value.getPrice());
+		gen.writeEndObject();
+	}
+}
@@ -0,0 +1,131 @@
+package com.shopify.dto;
+
+import java.util.List;
+
+/**
+ * Class that represents a data transfer object holding the filters, sort order
+ * and position of an inventory query. Filters that are null are not applied.
+ * The position is the sort value and key of the last row of the previous page,
+ * or null for the first page.
+ * 
+ * @author stephen
+ *
+ */
+public class InventoryFilterDTO {
+	private List<Long> warehouseIds;
+	private Integer minQuantity;
+	private Integer maxQuantity;
+	private Double minPrice;
+	private Double maxPrice;
+	private String namePrefix;
+	private InventorySortKey sort = InventorySortKey.NAME;
+	private boolean descending;
+	private int size = 50;
+	private Object afterValue;
+	private Long afterInventoryId;
+	private Long afterWarehouseId;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public InventoryFilterDTO() {
+		super();
+	}
+
+	public List<Long> getWarehouseIds() {
+		return warehouseIds;
+	}
+
+	public void setWarehouseIds(List<Long> warehouseIds) {
+		this.warehouseIds = warehouseIds;
+	}
+
+	public Integer getMinQuantity() {
+		return minQuantity;
+	}
+
+	public void setMinQuantity(Integer minQuantity) {
+		this.minQuantity = minQuantity;
+	}
+
+	public Integer getMaxQuantity() {
+		return maxQuantity;
+	}
+
+	public void setMaxQuantity(Integer maxQuantity) {
+		this.maxQuantity = maxQuantity;
+	}
+
+	public Double getMinPrice() {
+		return minPrice;
+	}
+
+	public void setMinPrice(Double minPrice) {
+		this.minPrice = minPrice;
+	}
+
+	public Double getMaxPrice() {
+		return maxPrice;
+	}
+
+	public void setMaxPrice(Double maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+
+	public String getNamePrefix() {
+		return namePrefix;
+	}
+
+	public void setNamePrefix(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	public InventorySortKey getSort() {
+		return sort;
+	}
+
+	public void setSort(InventorySortKey sort) {
+		this.sort = sort;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	public void setDescending(boolean descending) {
+		this.descending = descending;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public Object getAfterValue() {
+		return afterValue;
+	}
+
+	public Long getAfterInventoryId() {
+		return afterInventoryId;
+	}
+
+	public Long getAfterWarehouseId() {
+		return afterWarehouseId;
+	}
+
+	/**
+	 * Set the position to continue after.
+	 * 
+	 * @param value       sort value of last row of previous page
+	 * @param inventoryId inventory id of last row of previous page
+	 * @param warehouseId warehouse id of last row of previous page
+	 */
+	public void setAfter(Object value, long inventoryId, long warehouseId) {
+		this.afterValue = value;
+		this.afterInventoryId = inventoryId;
+		this.afterWarehouseId = warehouseId;
+	}
+}
@@ -0,0 +1,35 @@
+package com.shopify.dto;
+
+import java.util.List;
+
+/**
+ * Class that represents a data transfer object holding one page of an inventory
+ * query and the cursor of the page after it.
+ * 
+ * @author stephen
+ *
+ */
+public class InventoryPageDTO {
+	private final List<WarehouseInventoryDTO> items;
+	private final String nextCursor;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param items      rows of page
+	 * @param nextCursor cursor of next page or null if this is the last page
+	 */
+	public InventoryPageDTO(List<WarehouseInventoryDTO> items, String nextCursor) {
+		super();
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<WarehouseInventoryDTO> getItems() {
+		return items;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
@@ -0,0 +1,40 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents an immutable data transfer object for an inventory item
+ * matched by a search.
+ * 
+ * @author stephen
+ *
+ */
+public final class InventorySearchDTO {
+	private final long id;
+	private final String name;
+	private final double price;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param id    id of inventory
+	 * @param name  name of inventory
+	 * @param price price of inventory
+	 */
+	public InventorySearchDTO(long id, String name, double price) {
+		super();
+		this.id = id;
+		this.name = name;
+		this.price = price;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+}
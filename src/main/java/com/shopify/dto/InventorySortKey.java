@@ -0,0 +1,12 @@
+package com.shopify.dto;
+
+/**
+ * Enum of the values inventory queries can be sorted by. Rows with equal values
+ * are ordered by inventory id and then warehouse id.
+ * 
+ * @author stephen
+ *
+ */
+public enum InventorySortKey {
+	NAME, PRICE, QUANTITY
+}
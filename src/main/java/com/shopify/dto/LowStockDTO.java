@@ -0,0 +1,56 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents an immutable data transfer object for the quantity and
+ * reorder threshold of an inventory in a warehouse.
+ * 
+ * @author stephen
+ *
+ */
+public final class LowStockDTO {
+	private final long inventoryId;
+	private final long warehouseId;
+	private final int quantity;
+	private final int threshold;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse holding inventory
+	 * @param quantity    quantity of inventory in warehouse
+	 * @param threshold   reorder threshold of inventory in warehouse
+	 */
+	public LowStockDTO(long inventoryId, long warehouseId, int quantity, int threshold) {
+		super();
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+		this.quantity = quantity;
+		this.threshold = threshold;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Get number of units missing to reach the threshold.
+	 * 
+	 * @return threshold minus quantity
+	 */
+	public int getShortfall() {
+		return threshold - quantity;
+	}
+}
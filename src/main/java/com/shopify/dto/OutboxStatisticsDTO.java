@@ -0,0 +1,78 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents a data transfer object holding outbox relay statistics
+ * collected since the application started.
+ * 
+ * @author stephen
+ *
+ */
+public class OutboxStatisticsDTO {
+	private long relayedCount;
+	private long batchCount;
+	private long failureCount;
+	private int lastBatchSize;
+	private double lastBatchMillis;
+	private double eventsPerSecond;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public OutboxStatisticsDTO() {
+		super();
+	}
+
+	public long getRelayedCount() {
+		return relayedCount;
+	}
+
+	public void setRelayedCount(long relayedCount) {
+		this.relayedCount = relayedCount;
+	}
+
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	public void setBatchCount(long batchCount) {
+		this.batchCount = batchCount;
+	}
+
+	public long getFailureCount() {
+		return failureCount;
+	}
+
+	public void setFailureCount(long failureCount) {
+		this.failureCount = failureCount;
+	}
+
+	public int getLastBatchSize() {
+		return lastBatchSize;
+	}
+
+	public void setLastBatchSize(int lastBatchSize) {
+		this.lastBatchSize = lastBatchSize;
+	}
+
+	public double getLastBatchMillis() {
+		return lastBatchMillis;
+	}
+
+	public void setLastBatchMillis(double lastBatchMillis) {
+		this.lastBatchMillis = lastBatchMillis;
+	}
+
+	/**
+	 * Events relayed per second of time spent relaying, which is the throughput
+	 * the relay can sustain rather than the rate events are produced at.
+	 * 
+	 * @return relay throughput
+	 */
+	public double getEventsPerSecond() {
+		return eventsPerSecond;
+	}
+
+	public void setEventsPerSecond(double eventsPerSecond) {
+		this.eventsPerSecond = eventsPerSecond;
+	}
+}
@@ -0,0 +1,44 @@
+package com.shopify.dto;
+
+import java.util.Map;
+
+/**
+ * Class that represents a data transfer object holding the quantities of an
+ * inventory available per warehouse and in total. Quantities per warehouse are
+ * keyed by warehouse id and only list warehouses holding the inventory, which
+ * keeps bulk responses small.
+ * 
+ * @author stephen
+ *
+ */
+public class SkuAvailabilityDTO {
+	private final long inventoryId;
+	private final long total;
+	private final Map<Long, Long> warehouses;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param total       quantity available in the listed warehouses
+	 * @param warehouses  quantity available by warehouse id
+	 */
+	public SkuAvailabilityDTO(long inventoryId, long total, Map<Long, Long> warehouses) {
+		super();
+		this.inventoryId = inventoryId;
+		this.total = total;
+		this.warehouses = warehouses;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public Map<Long, Long> getWarehouses() {
+		return warehouses;
+	}
+}
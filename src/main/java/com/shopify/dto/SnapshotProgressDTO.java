@@ -0,0 +1,99 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents a data transfer object holding the progress of the
+ * latest stock snapshot export.
+ * 
+ * @author stephen
+ *
+ */
+public class SnapshotProgressDTO {
+	private String state;
+	private String file;
+	private long rowsWritten;
+	private long totalRows;
+	private long resumedAtRow;
+	private double rowsPerSecond;
+	private Long startedAt;
+	private Long finishedAt;
+	private String error;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public SnapshotProgressDTO() {
+		super();
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public void setState(String state) {
+		this.state = state;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+	public void setRowsWritten(long rowsWritten) {
+		this.rowsWritten = rowsWritten;
+	}
+
+	public long getTotalRows() {
+		return totalRows;
+	}
+
+	public void setTotalRows(long totalRows) {
+		this.totalRows = totalRows;
+	}
+
+	public long getResumedAtRow() {
+		return resumedAtRow;
+	}
+
+	public void setResumedAtRow(long resumedAtRow) {
+		this.resumedAtRow = resumedAtRow;
+	}
+
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	public void setRowsPerSecond(double rowsPerSecond) {
+		this.rowsPerSecond = rowsPerSecond;
+	}
+
+	public Long getStartedAt() {
+		return startedAt;
+	}
+
+	public void setStartedAt(Long startedAt) {
+		this.startedAt = startedAt;
+	}
+
+	public Long getFinishedAt() {
+		return finishedAt;
+	}
+
+	public void setFinishedAt(Long finishedAt) {
+		this.finishedAt = finishedAt;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
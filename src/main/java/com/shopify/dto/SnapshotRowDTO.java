@@ -0,0 +1,63 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents an immutable data transfer object for one row of a
+ * stock snapshot: an inventory item, a warehouse holding it and the quantity
+ * held.
+ * 
+ * @author stephen
+ *
+ */
+public final class SnapshotRowDTO {
+	private final long inventoryId;
+	private final String inventoryName;
+	private final double price;
+	private final long warehouseId;
+	private final String warehouseName;
+	private final int quantity;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param inventoryId   id of inventory
+	 * @param inventoryName name of inventory
+	 * @param price         price of inventory
+	 * @param warehouseId   id of warehouse
+	 * @param warehouseName name of warehouse
+	 * @param quantity      quantity of inventory in warehouse
+	 */
+	public SnapshotRowDTO(long inventoryId, String inventoryName, double price, long warehouseId,
+			String warehouseName, int quantity) {
+		super();
+		this.inventoryId = inventoryId;
+		this.inventoryName = inventoryName;
+		this.price = price;
+		this.warehouseId = warehouseId;
+		this.warehouseName = warehouseName;
+		this.quantity = quantity;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public String getInventoryName() {
+		return inventoryName;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public String getWarehouseName() {
+		return warehouseName;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
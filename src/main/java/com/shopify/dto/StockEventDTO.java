@@ -0,0 +1,75 @@
+package com.shopify.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Class that represents a data transfer object for a single event of the stock
+ * change feed. Stock events carry a warehouse and a quantity, inventory events
+ * carry a name and a price. A "RESET" event tells the client that events were
+ * lost and the listing must be fetched again. Null fields are not sent.
+ * 
+ * @author stephen
+ *
+ */
+@JsonInclude(value = Include.NON_NULL)
+public class StockEventDTO {
+	private final long sequence;
+	private final String type;
+	private final Long inventoryId;
+	private final Long warehouseId;
+	private final Integer quantity;
+	private final String name;
+	private final Double price;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param sequence    position of event in the feed
+	 * @param type        kind of change
+	 * @param inventoryId id of inventory that changed
+	 * @param warehouseId id of warehouse that changed or null
+	 * @param quantity    quantity of inventory in warehouse or null
+	 * @param name        name of inventory or null
+	 * @param price       price of inventory or null
+	 */
+	public StockEventDTO(long sequence, String type, Long inventoryId, Long warehouseId, Integer quantity,
+			String name, Double price) {
+		super();
+		this.sequence = sequence;
+		this.type = type;
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+		this.quantity = quantity;
+		this.name = name;
+		this.price = price;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public Long getInventoryId() {
+		return inventoryId;
+	}
+
+	public Long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Double getPrice() {
+		return price;
+	}
+}
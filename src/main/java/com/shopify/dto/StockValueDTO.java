@@ -0,0 +1,47 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents an immutable data transfer object for the units and
+ * number of inventory items a warehouse holds at one price.
+ * 
+ * @author stephen
+ *
+ */
+public final class StockValueDTO {
+	private final long warehouseId;
+	private final double price;
+	private final long units;
+	private final long skuCount;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param warehouseId id of warehouse
+	 * @param price       price of inventory
+	 * @param units       total quantity of inventory at this price
+	 * @param skuCount    number of inventory items at this price
+	 */
+	public StockValueDTO(long warehouseId, double price, long units, long skuCount) {
+		super();
+		this.warehouseId = warehouseId;
+		this.price = price;
+		this.units = units;
+		this.skuCount = skuCount;
+	}
+
+	public long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public long getUnits() {
+		return units;
+	}
+
+	public long getSkuCount() {
+		return skuCount;
+	}
+}
@@ -0,0 +1,51 @@
+package com.shopify.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.math.BigDecimal;
+
+/**
+ * Class that represents an immutable data transfer object for the stock held by
+ * a warehouse, or by all warehouses when the warehouse id is null.
+ * 
+ * @author stephen
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ValuationDTO {
+	private final Long warehouseId;
+	private final long units;
+	private final long skuCount;
+	private final BigDecimal value;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param warehouseId id of warehouse or null for all warehouses
+	 * @param units       total quantity of inventory
+	 * @param skuCount    number of inventory items held
+	 * @param value       sum of price times quantity
+	 */
+	public ValuationDTO(Long warehouseId, long units, long skuCount, BigDecimal value) {
+		super();
+		this.warehouseId = warehouseId;
+		this.units = units;
+		this.skuCount = skuCount;
+		this.value = value;
+	}
+
+	public Long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public long getUnits() {
+		return units;
+	}
+
+	public long getSkuCount() {
+		return skuCount;
+	}
+
+	public BigDecimal getValue() {
+		return value;
+	}
+}
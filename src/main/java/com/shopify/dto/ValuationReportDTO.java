@@ -0,0 +1,35 @@
+package com.shopify.dto;
+
+import java.util.List;
+
+/**
+ * Class that represents a data transfer object holding the stock valuation of
+ * each warehouse and of the company.
+ * 
+ * @author stephen
+ *
+ */
+public class ValuationReportDTO {
+	private final ValuationDTO total;
+	private final List<ValuationDTO> warehouses;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param total      valuation of all warehouses
+	 * @param warehouses valuation of each warehouse
+	 */
+	public ValuationReportDTO(ValuationDTO total, List<ValuationDTO> warehouses) {
+		super();
+		this.total = total;
+		this.warehouses = warehouses;
+	}
+
+	public ValuationDTO getTotal() {
+		return total;
+	}
+
+	public List<ValuationDTO> getWarehouses() {
+		return warehouses;
+	}
+}
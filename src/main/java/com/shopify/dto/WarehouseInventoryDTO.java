@@ -0,0 +1,54 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents an immutable data transfer object for the quantity of
+ * an inventory item held by one warehouse.
+ * 
+ * @author stephen
+ *
+ */
+public final class WarehouseInventoryDTO {
+	private final long inventoryId;
+	private final long warehouseId;
+	private final String name;
+	private final int quantity;
+	private final double price;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse holding inventory
+	 * @param name        name of inventory
+	 * @param quantity    quantity of inventory in warehouse
+	 * @param price       price of inventory
+	 */
+	public WarehouseInventoryDTO(long inventoryId, long warehouseId, String name, int quantity, double price) {
+		super();
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+		this.name = name;
+		this.quantity = quantity;
+		this.price = price;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+}
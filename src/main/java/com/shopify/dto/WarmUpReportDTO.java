@@ -0,0 +1,90 @@
+package com.shopify.dto;
+
+/**
+ * Class that represents a data transfer object holding the outcome of the
+ * warm-up run before the application reports that it is ready.
+ * 
+ * @author stephen
+ *
+ */
+public class WarmUpReportDTO {
+	private String state;
+	private int connectionsOpened;
+	private int warehousesLoaded;
+	private int inventoriesLoaded;
+	private int rounds;
+	private double firstRoundMillis;
+	private double lastRoundMillis;
+	private double durationMillis;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public WarmUpReportDTO() {
+		super();
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public void setState(String state) {
+		this.state = state;
+	}
+
+	public int getConnectionsOpened() {
+		return connectionsOpened;
+	}
+
+	public void setConnectionsOpened(int connectionsOpened) {
+		this.connectionsOpened = connectionsOpened;
+	}
+
+	public int getWarehousesLoaded() {
+		return warehousesLoaded;
+	}
+
+	public void setWarehousesLoaded(int warehousesLoaded) {
+		this.warehousesLoaded = warehousesLoaded;
+	}
+
+	public int getInventoriesLoaded() {
+		return inventoriesLoaded;
+	}
+
+	public void setInventoriesLoaded(int inventoriesLoaded) {
+		this.inventoriesLoaded = inventoriesLoaded;
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	public void setRounds(int rounds) {
+		this.rounds = rounds;
+	}
+
+	public double getFirstRoundMillis() {
+		return firstRoundMillis;
+	}
+
+	public void setFirstRoundMillis(double firstRoundMillis) {
+		this.firstRoundMillis = firstRoundMillis;
+	}
+
+	public double getLastRoundMillis() {
+		return lastRoundMillis;
+	}
+
+	public void setLastRoundMillis(double lastRoundMillis) {
+		this.lastRoundMillis = lastRoundMillis;
+	}
+
+	public double getDurationMillis() {
+		return durationMillis;
+	}
+
+	public void setDurationMillis(double durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+}
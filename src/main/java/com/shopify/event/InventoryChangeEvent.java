@@ -0,0 +1,62 @@
+package com.shopify.event;
+
+/**
+ * Class that represents an application event published after an inventory item
+ * has been created, updated or deleted in the database. Deleting an inventory
+ * item also removes it from every warehouse.
+ * 
+ * @author stephen
+ *
+ */
+public class InventoryChangeEvent {
+	/**
+	 * Kind of change made to an Inventory row.
+	 */
+	public enum Type {
+		CREATED, UPDATED, DELETED
+	}
+
+	private final Type type;
+	private final long inventoryId;
+	private final String name;
+	private final double price;
+	private final double previousPrice;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param type          kind of change
+	 * @param inventoryId   id of inventory that changed
+	 * @param name          current name of inventory
+	 * @param price         current price of inventory
+	 * @param previousPrice price of inventory before the change
+	 */
+	public InventoryChangeEvent(Type type, long inventoryId, String name, double price, double previousPrice) {
+		super();
+		this.type = type;
+		this.inventoryId = inventoryId;
+		this.name = name;
+		this.price = price;
+		this.previousPrice = previousPrice;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public double getPreviousPrice() {
+		return previousPrice;
+	}
+}
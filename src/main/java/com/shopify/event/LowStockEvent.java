@@ -0,0 +1,49 @@
+package com.shopify.event;
+
+/**
+ * Class that represents an application event published when the quantity of an
+ * inventory in a warehouse drops below its reorder threshold. It is published
+ * once per crossing, not again for further decreases while the inventory stays
+ * low.
+ * 
+ * @author stephen
+ *
+ */
+public class LowStockEvent {
+	private final long inventoryId;
+	private final long warehouseId;
+	private final int quantity;
+	private final int threshold;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param inventoryId id of inventory that is low
+	 * @param warehouseId id of warehouse holding the inventory
+	 * @param quantity    quantity left in warehouse
+	 * @param threshold   reorder threshold of inventory in warehouse
+	 */
+	public LowStockEvent(long inventoryId, long warehouseId, int quantity, int threshold) {
+		super();
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+		this.quantity = quantity;
+		this.threshold = threshold;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+}
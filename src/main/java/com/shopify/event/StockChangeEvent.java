@@ -0,0 +1,73 @@
+package com.shopify.event;
+
+/**
+ * Class that represents an application event published after the quantity of
+ * an inventory in a warehouse has been written to the database.
+ * 
+ * @author stephen
+ *
+ */
+public class StockChangeEvent {
+	/**
+	 * Kind of change made to an InventoryWarehouse row.
+	 */
+	public enum Type {
+		/**
+		 * Inventory was placed in the warehouse. Quantity is the amount placed.
+		 */
+		PLACED,
+		/**
+		 * Quantity was increased or decreased. Quantity is the new total.
+		 */
+		ADJUSTED,
+		/**
+		 * Inventory was removed from the warehouse. Quantity is zero.
+		 */
+		REMOVED
+	}
+
+	private final Type type;
+	private final long inventoryId;
+	private final long warehouseId;
+	private final int quantity;
+	private final int previousQuantity;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param type             kind of change
+	 * @param inventoryId      id of inventory that changed
+	 * @param warehouseId      id of warehouse holding the inventory
+	 * @param quantity         quantity as described by the type
+	 * @param previousQuantity total quantity in the warehouse before the change,
+	 *                         zero for placements
+	 */
+	public StockChangeEvent(Type type, long inventoryId, long warehouseId, int quantity, int previousQuantity) {
+		super();
+		this.type = type;
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+		this.quantity = quantity;
+		this.previousQuantity = previousQuantity;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public int getPreviousQuantity() {
+		return previousQuantity;
+	}
+}
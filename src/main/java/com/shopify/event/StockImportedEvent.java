@@ -0,0 +1,28 @@
+package com.shopify.event;
+
+/**
+ * Class that represents an application event published after a bulk import has
+ * written quantities directly to the database. No stock change events are
+ * published for the rows of an import, so anything kept in step with
+ * quantities has to be rebuilt when it is received.
+ * 
+ * @author stephen
+ *
+ */
+public class StockImportedEvent {
+	private final long rowsImported;
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param rowsImported number of quantities written
+	 */
+	public StockImportedEvent(long rowsImported) {
+		super();
+		this.rowsImported = rowsImported;
+	}
+
+	public long getRowsImported() {
+		return rowsImported;
+	}
+}
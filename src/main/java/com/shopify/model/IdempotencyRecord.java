@@ -0,0 +1,135 @@
+package com.shopify.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Class that represents an idempotency record table in application's
+ * relational database. A row holds the response to a request sent with an
+ * Idempotency-Key header, so that retries of the request are answered with it
+ * instead of being executed again. Rows are keyed by a hash of the client
+ * followed by the idempotency key, and expire by creation time.
+ * 
+ * New records are inserted without a lookup first, since their key is assigned
+ * by the client rather than generated.
+ * 
+ * @author stephen
+ *
+ */
+@Entity
+@Table(indexes = @Index(name = "IDEMPOTENCY_CREATED_AT_IDX", columnList = "createdAt"))
+public class IdempotencyRecord implements Persistable<String> {
+	@Id
+	@Column(length = 161)
+	private String idempotencyKey;
+	@Column(length = 32)
+	private String fingerprint;
+	private int status;
+	private String contentType;
+	@Lob
+	private byte[] body;
+	private long createdAt;
+	@Transient
+	private boolean stored;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public IdempotencyRecord() {
+		super();
+	}
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param idempotencyKey key sent by the client, prefixed with a hash of the
+	 *                       client
+	 * @param fingerprint    hash of the request the key was first sent with
+	 * @param status         http status of the response, or 0 while the request
+	 *                       is in progress
+	 * @param contentType    content type of the response or null
+	 * @param body           body of the response
+	 */
+	public IdempotencyRecord(String idempotencyKey, String fingerprint, int status, String contentType,
+			byte[] body) {
+		super();
+		this.idempotencyKey = idempotencyKey;
+		this.fingerprint = fingerprint;
+		this.status = status;
+		this.contentType = contentType;
+		this.body = body;
+		this.createdAt = System.currentTimeMillis();
+	}
+
+	@PostLoad
+	@PostPersist
+	void markStored() {
+		stored = true;
+	}
+
+	@Override
+	public String getId() {
+		return idempotencyKey;
+	}
+
+	@Override
+	public boolean isNew() {
+		return !stored;
+	}
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+	public void setBody(byte[] body) {
+		this.body = body;
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(long createdAt) {
+		this.createdAt = createdAt;
+	}
+}
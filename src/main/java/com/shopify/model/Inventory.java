@@ -1,20 +1,30 @@
 package com.shopify.model;
 
 import java.util.Objects;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Class that represents an inventory table in application's relational
- * database.
+ * database. Entities are held in the second-level cache so that lookups by
+ * primary key are served from memory. Prices are indexed for price range
+ * queries.
  * 
  * @author stephen
  *
  */
 @Entity
+@Table(indexes = @Index(name = "INVENTORY_PRICE_IDX", columnList = "price"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Inventory {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -2,18 +2,26 @@ package com.shopify.model;
 
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.MapsId;
+import javax.persistence.Table;
 
 /**
  * A class that represents an "is contained in" relationship between an
  * inventory entity and a warehouse entity. Inventories can be contained in
- * warehouses.
+ * warehouses. Quantities are indexed per warehouse for filtered and sorted
+ * inventory queries. An optional reorder threshold marks the quantity below
+ * which the inventory is low in the warehouse.
  * 
  * @author stephen
  *
  */
 @Entity
+@Table(indexes = @Index(name = "IW_WAREHOUSE_QUANTITY_IDX", columnList = "warehouse_warehouse_id, totalQuantity"))
 public class InventoryWarehouse {
 
 	@EmbeddedId
@@ -21,12 +29,17 @@ public class InventoryWarehouse {
 
 	private int totalQuantity;
 
-	@ManyToOne
+	private Integer reorderThreshold;
+
+	@ManyToOne(fetch = FetchType.LAZY)
 	@MapsId("inventoryId")
+	@JoinColumn(name = "inventory_inventory_id", foreignKey = @ForeignKey(name = "INVENTORY_ID_FK", foreignKeyDefinition = "FOREIGN KEY (inventory_inventory_id) REFERENCES "
+			+ "inventory(inventory_id) ON DELETE CASCADE"))
 	private Inventory inventory;
 
-	@ManyToOne
-	@MapsId("locationId")
+	@ManyToOne(fetch = FetchType.LAZY)
+	@MapsId("warehouseId")
+	@JoinColumn(name = "warehouse_warehouse_id", foreignKey = @ForeignKey(name = "WAREHOUSE_ID_FK"))
 	private Warehouse warehouse;
 
 	/**
@@ -39,13 +52,15 @@ public class InventoryWarehouse {
 	/**
 	 * Constructs an instance of this class with specified parameters.
 	 * 
-	 * @param id       composite primary key consisting of an inventory and a
-	 *                 warehouse entity
-	 * @param quantity quantity of inventory to be added to warehouse
+	 * @param inventory inventory contained in warehouse
+	 * @param warehouse warehouse containing inventory
+	 * @param quantity  quantity of inventory to be added to warehouse
 	 */
-	public InventoryWarehouse(InventoryWarehouseId id, int quantity) {
+	public InventoryWarehouse(Inventory inventory, Warehouse warehouse, int quantity) {
 		super();
-		this.id = id;
+		this.id = new InventoryWarehouseId(inventory.getInventoryId(), warehouse.getWarehouseId());
+		this.inventory = inventory;
+		this.warehouse = warehouse;
 		this.totalQuantity = quantity;
 	}
 
@@ -65,6 +80,14 @@ public class InventoryWarehouse {
 		this.totalQuantity = quantity;
 	}
 
+	public Integer getReorderThreshold() {
+		return reorderThreshold;
+	}
+
+	public void setReorderThreshold(Integer reorderThreshold) {
+		this.reorderThreshold = reorderThreshold;
+	}
+
 	public Inventory getInventory() {
 		return inventory;
 	}
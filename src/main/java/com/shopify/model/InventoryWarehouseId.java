@@ -1,15 +1,13 @@
 package com.shopify.model;
 
 import java.io.Serializable;
-import java.util.Objects;
 import javax.persistence.Embeddable;
-import javax.persistence.ForeignKey;
-import javax.persistence.JoinColumn;
-import javax.persistence.ManyToOne;
 
 /**
- * A class that represents a composite primary key consisting of an inventory
- * and a warehouse entity.
+ * A class that represents a composite primary key consisting of the ids of an
+ * inventory and a warehouse entity. The key only holds the ids, so hashing and
+ * comparing it never touches the entities, and changing an inventory's name or
+ * price does not change the key.
  * 
  * @author stephen
  *
@@ -19,16 +17,11 @@ public class InventoryWarehouseId implements Serializable {
 	/**
 	 * 
 	 */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
-	@ManyToOne
-	@JoinColumn(referencedColumnName = "warehouseId", foreignKey = @ForeignKey(name = "WAREHOUSE_ID_FK"))
-	private Warehouse warehouse;
+	private long inventoryId;
 
-	@ManyToOne
-	@JoinColumn(referencedColumnName = "inventoryId", foreignKey = @ForeignKey(name = "INVENTORY_ID_FK", foreignKeyDefinition = "FOREIGN KEY (inventory_inventory_id) REFERENCES "
-			+ "inventory(inventory_id) ON DELETE CASCADE"))
-	private Inventory inventory;
+	private long warehouseId;
 
 	/**
 	 * Constructs an instance of this class without any parameters.
@@ -40,34 +33,34 @@ public class InventoryWarehouseId implements Serializable {
 	/**
 	 * Constructs an instance of this class with specified parameters.
 	 * 
-	 * @param warehouse composite warehouse key
-	 * @param inventory composite inventory key
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
 	 */
-	public InventoryWarehouseId(Warehouse warehouse, Inventory inventory) {
+	public InventoryWarehouseId(long inventoryId, long warehouseId) {
 		super();
-		this.warehouse = warehouse;
-		this.inventory = inventory;
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
 	}
 
-	public Warehouse getWarehouse() {
-		return warehouse;
+	public long getInventoryId() {
+		return inventoryId;
 	}
 
-	public void setWarehouse(Warehouse warehouse) {
-		this.warehouse = warehouse;
+	public void setInventoryId(long inventoryId) {
+		this.inventoryId = inventoryId;
 	}
 
-	public Inventory getInventory() {
-		return inventory;
+	public long getWarehouseId() {
+		return warehouseId;
 	}
 
-	public void setInventory(Inventory inventory) {
-		this.inventory = inventory;
+	public void setWarehouseId(long warehouseId) {
+		this.warehouseId = warehouseId;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(inventory, warehouse);
+		return 31 * Long.hashCode(inventoryId) + Long.hashCode(warehouseId);
 	}
 
 	@Override
@@ -79,6 +72,6 @@ public class InventoryWarehouseId implements Serializable {
 		if (getClass() != obj.getClass())
 			return false;
 		InventoryWarehouseId other = (InventoryWarehouseId) obj;
-		return Objects.equals(inventory, other.inventory) && Objects.equals(warehouse, other.warehouse);
+		return inventoryId == other.inventoryId && warehouseId == other.warehouseId;
 	}
 }
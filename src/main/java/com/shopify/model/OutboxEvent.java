@@ -0,0 +1,122 @@
+package com.shopify.model;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+/**
+ * Class that represents an outbox table in application's relational database.
+ * A row is written in the same transaction as every change to inventory or to
+ * the quantity of inventory in a warehouse, and is deleted once it has been
+ * relayed.
+ * 
+ * @author stephen
+ *
+ */
+@Entity
+public class OutboxEvent {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+	private String eventType;
+	private long inventoryId;
+	private Long warehouseId;
+	private Integer quantity;
+	private String inventoryName;
+	private Double price;
+	private long createdAt;
+
+	/**
+	 * Constructs an instance of this class without any parameters.
+	 */
+	public OutboxEvent() {
+		super();
+	}
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param eventType     kind of change, such as STOCK_ADJUSTED
+	 * @param inventoryId   id of inventory that changed
+	 * @param warehouseId   id of warehouse that changed or null
+	 * @param quantity      quantity of inventory in warehouse or null
+	 * @param inventoryName name of inventory or null
+	 * @param price         price of inventory or null
+	 */
+	public OutboxEvent(String eventType, long inventoryId, Long warehouseId, Integer quantity, String inventoryName,
+			Double price) {
+		super();
+		this.eventType = eventType;
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+		this.quantity = quantity;
+		this.inventoryName = inventoryName;
+		this.price = price;
+		this.createdAt = System.currentTimeMillis();
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public String getEventType() {
+		return eventType;
+	}
+
+	public void setEventType(String eventType) {
+		this.eventType = eventType;
+	}
+
+	public long getInventoryId() {
+		return inventoryId;
+	}
+
+	public void setInventoryId(long inventoryId) {
+		this.inventoryId = inventoryId;
+	}
+
+	public Long getWarehouseId() {
+		return warehouseId;
+	}
+
+	public void setWarehouseId(Long warehouseId) {
+		this.warehouseId = warehouseId;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+
+	public String getInventoryName() {
+		return inventoryName;
+	}
+
+	public void setInventoryName(String inventoryName) {
+		this.inventoryName = inventoryName;
+	}
+
+	public Double getPrice() {
+		return price;
+	}
+
+	public void setPrice(Double price) {
+		this.price = price;
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(long createdAt) {
+		this.createdAt = createdAt;
+	}
+}
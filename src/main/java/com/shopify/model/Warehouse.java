@@ -1,20 +1,26 @@
 package com.shopify.model;
 
 import java.util.Objects;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Class that represents a warehouse entity in application's relational
- * database.
+ * database. Entities are held in the second-level cache so that lookups by
+ * primary key are served from memory.
  * 
  * @author stephen
  *
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Warehouse {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
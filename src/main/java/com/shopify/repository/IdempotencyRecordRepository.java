@@ -0,0 +1,70 @@
+package com.shopify.repository;
+
+import com.shopify.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Interface that represents a repository for the IdempotencyRecord entity.
+ * 
+ * @author stephen
+ *
+ */
+@Repository
+public interface IdempotencyRecordRepository
+		extends CrudRepository<IdempotencyRecord, String>, IdempotencyRecordRepositoryCustom {
+	/**
+	 * Store the response to a request whose key is still claimed.
+	 * 
+	 * @param idempotencyKey key of the request
+	 * @param status         http status of the response
+	 * @param contentType    content type of the response or null
+	 * @param body           body of the response
+	 * @return 1 if the claim was completed, 0 if it no longer exists
+	 */
+	@Modifying
+	@Transactional
+	@Query("update IdempotencyRecord r set r.status = :status, r.contentType = :contentType, r.body = :body "
+			+ "where r.idempotencyKey = :idempotencyKey and r.status = 0")
+	int completeClaim(@Param("idempotencyKey") String idempotencyKey, @Param("status") int status,
+			@Param("contentType") String contentType, @Param("body") byte[] body);
+
+	/**
+	 * Delete the claim of a key whose request has not completed.
+	 * 
+	 * @param idempotencyKey key of the request
+	 * @return number of deleted records
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from IdempotencyRecord r where r.idempotencyKey = :idempotencyKey and r.status = 0")
+	int deleteClaim(@Param("idempotencyKey") String idempotencyKey);
+
+	/**
+	 * Delete a record only if it is still the one created at a point in time, so
+	 * that a record stored again meanwhile is kept.
+	 * 
+	 * @param idempotencyKey key of the request
+	 * @param createdAt      creation time of the record to delete
+	 * @return number of deleted records
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from IdempotencyRecord r where r.idempotencyKey = :idempotencyKey and r.createdAt = :createdAt")
+	int deleteCreatedAt(@Param("idempotencyKey") String idempotencyKey, @Param("createdAt") long createdAt);
+
+	/**
+	 * Delete records created before a point in time.
+	 * 
+	 * @param createdAt expiry cutoff in epoch milliseconds
+	 * @return number of deleted records
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from IdempotencyRecord r where r.createdAt < :createdAt")
+	int deleteCreatedBefore(@Param("createdAt") long createdAt);
+}
@@ -0,0 +1,22 @@
+package com.shopify.repository;
+
+import com.shopify.model.IdempotencyRecord;
+
+/**
+ * Interface that represents writes of the IdempotencyRecord repository that
+ * bypass the persistence context.
+ * 
+ * @author stephen
+ *
+ */
+public interface IdempotencyRecordRepositoryCustom {
+	/**
+	 * Insert a record unless its key is already stored, in one statement. A
+	 * taken key is reported by the count of inserted rows rather than by a
+	 * constraint violation.
+	 * 
+	 * @param record record to insert
+	 * @return true if the record was inserted, false if its key is taken
+	 */
+	boolean insertIfAbsent(IdempotencyRecord record);
+}
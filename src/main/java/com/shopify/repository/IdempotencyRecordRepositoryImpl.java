@@ -0,0 +1,53 @@
+package com.shopify.repository;
+
+import com.shopify.model.IdempotencyRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Class that represents an implementation of the
+ * IdempotencyRecordRepositoryCustom interface.
+ * 
+ * Records are inserted with the statement of the database in use that skips
+ * rows whose key is taken, so a retry's claim costs one statement and no
+ * error, where inserting the entity would fail on the primary key.
+ * 
+ * @author stephen
+ *
+ */
+public class IdempotencyRecordRepositoryImpl implements IdempotencyRecordRepositoryCustom {
+
+	private static final String H2_INSERT_IF_ABSENT = "merge into idempotency_record t "
+			+ "using (select cast(? as varchar) idempotency_key) s on (t.idempotency_key = s.idempotency_key) "
+			+ "when not matched then insert (idempotency_key, fingerprint, status, content_type, body, created_at) "
+			+ "values (s.idempotency_key, ?, ?, ?, ?, ?)";
+	private static final String MYSQL_INSERT_IF_ABSENT = "insert ignore into idempotency_record "
+			+ "(idempotency_key, fingerprint, status, content_type, body, created_at) values (?, ?, ?, ?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private volatile Boolean h2;
+
+	@Override
+	public boolean insertIfAbsent(IdempotencyRecord record) {
+		try {
+			return jdbcTemplate.update(isH2() ? H2_INSERT_IF_ABSENT : MYSQL_INSERT_IF_ABSENT,
+					record.getIdempotencyKey(), record.getFingerprint(), record.getStatus(), record.getContentType(),
+					record.getBody(), record.getCreatedAt()) > 0;
+		} catch (DuplicateKeyException e) {
+			// inserted by another request between the check and the insert of the merge
+			return false;
+		}
+	}
+
+	private boolean isH2() {
+		if (h2 == null) {
+			h2 = "H2".equals(jdbcTemplate.execute(
+					(ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+		}
+		return h2;
+	}
+}
@@ -1,7 +1,15 @@
 package com.shopify.repository;
 
+import com.shopify.dto.InventorySearchDTO;
 import com.shopify.model.Inventory;
-import org.springframework.data.repository.CrudRepository;
+import java.util.Collection;
+import java.util.List;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -11,12 +19,37 @@ import org.springframework.stereotype.Repository;
  *
  */
 @Repository
-public interface InventoryRepository extends CrudRepository<Inventory, Long> {
+public interface InventoryRepository extends JpaRepository<Inventory, Long> {
 	/**
-	 * Get inventory by inventory name.
+	 * Get inventory by inventory name. The result is kept in the query cache and is
+	 * invalidated whenever the inventory table is written to.
 	 * 
 	 * @param name name of inventory to search for
 	 * @return inventory or null if it does not exist
 	 */
+	@QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
 	Inventory findByInventoryName(String name);
+
+	/**
+	 * Get a page of inventory names and prices ordered by id, starting after an
+	 * id, for rebuilding the search index without loading entities.
+	 * 
+	 * @param afterId  id of last inventory of previous page or 0
+	 * @param pageable size of page
+	 * @return inventory names and prices
+	 */
+	@Query("select new com.shopify.dto.InventorySearchDTO(i.inventoryId, i.inventoryName, i.price) "
+			+ "from Inventory i where i.inventoryId > :afterId order by i.inventoryId")
+	List<InventorySearchDTO> findSearchPage(@Param("afterId") long afterId, Pageable pageable);
+
+	/**
+	 * Get ids, names and prices of inventory with the given names, for resolving
+	 * names in bulk without loading entities.
+	 * 
+	 * @param names names of inventory
+	 * @return inventory names and prices of names that exist
+	 */
+	@Query("select new com.shopify.dto.InventorySearchDTO(i.inventoryId, i.inventoryName, i.price) "
+			+ "from Inventory i where i.inventoryName in :names")
+	List<InventorySearchDTO> findSearchItemsByNames(@Param("names") Collection<String> names);
 }
@@ -1,10 +1,15 @@
 package com.shopify.repository;
 
 import com.shopify.dto.InventoryDTO;
+import com.shopify.dto.LowStockDTO;
+import com.shopify.dto.StockValueDTO;
+import com.shopify.dto.WarehouseInventoryDTO;
 import com.shopify.model.Inventory;
 import com.shopify.model.InventoryWarehouse;
 import com.shopify.model.Warehouse;
 import java.util.List;
+import javax.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -17,7 +22,8 @@ import org.springframework.stereotype.Repository;
  *
  */
 @Repository
-public interface InventoryWarehouseRepository extends CrudRepository<InventoryWarehouse, Long> {
+public interface InventoryWarehouseRepository
+		extends CrudRepository<InventoryWarehouse, Long>, InventoryWarehouseRepositoryCustom {
 	/**
 	 * Find inventory warehouse entry by each of its composite keys, inventory and
 	 * warehouse.
@@ -28,15 +34,51 @@ public interface InventoryWarehouseRepository extends CrudRepository<InventoryWa
 	 */
 	InventoryWarehouse findByInventoryAndWarehouse(Inventory inventory, Warehouse warehouse);
 
+	/**
+	 * Find inventory warehouse entry by the ids of its inventory and warehouse,
+	 * without loading either of them.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 * @return InventoryWarehouse instance or null if there is no match
+	 */
+	@Query("select iw from InventoryWarehouse iw where iw.id.inventoryId = :inventoryId "
+			+ "and iw.id.warehouseId = :warehouseId")
+	InventoryWarehouse findByIds(@Param("inventoryId") long inventoryId, @Param("warehouseId") long warehouseId);
+
+	/**
+	 * Find inventory warehouse entry by the ids of its inventory and warehouse,
+	 * locking it until the transaction ends, so that it can be changed based on
+	 * its current quantity.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 * @return InventoryWarehouse instance or null if there is no match
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select iw from InventoryWarehouse iw where iw.id.inventoryId = :inventoryId "
+			+ "and iw.id.warehouseId = :warehouseId")
+	InventoryWarehouse findByIdsForUpdate(@Param("inventoryId") long inventoryId,
+			@Param("warehouseId") long warehouseId);
+
+	/**
+	 * Find inventory warehouse entries of an inventory in every warehouse holding
+	 * it.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @return InventoryWarehouse instances
+	 */
+	@Query("select iw from InventoryWarehouse iw where iw.id.inventoryId = :inventoryId")
+	List<InventoryWarehouse> findEntriesByInventoryId(@Param("inventoryId") long inventoryId);
+
 	/**
 	 * Find all inventories in all warehouses and return the sum of quantities of
 	 * each inventory along with id, price and name.
 	 * 
 	 * @return dto object holding query result
 	 */
-	@Query(value = "select inventory_id as id, inventory_name as name, "
-			+ "sum(total_quantity) as quantity, price from inventory_warehouse left join inventory on inventory_id="
-			+ "inventory_inventory_id  group by inventory_inventory_id", nativeQuery = true)
+	@Query("select new com.shopify.dto.InventoryDTO(i.inventoryId, i.inventoryName, sum(iw.totalQuantity), i.price) "
+			+ "from InventoryWarehouse iw join iw.inventory i group by i.inventoryId, i.inventoryName, i.price")
 	List<InventoryDTO> findIdPriceQuantityGroupById();
 
 	/**
@@ -45,12 +87,42 @@ public interface InventoryWarehouseRepository extends CrudRepository<InventoryWa
 	 * @param warehouseId warehouse upon which inventory is queried
 	 * @return dto object holding query result
 	 */
-	@Query(value = "select total_quantity as quantity, inventory_name as name, "
-			+ "inventory_id as id, price from inventory_warehouse w left join inventory "
-			+ "i on inventory_id = inventory_inventory_id left join warehouse"
-			+ " on warehouse_id = warehouse_warehouse_id where warehouse_warehouse_id = :id", nativeQuery = true)
+	@Query("select new com.shopify.dto.InventoryDTO(i.inventoryId, i.inventoryName, cast(iw.totalQuantity as long), "
+			+ "i.price) from InventoryWarehouse iw join iw.inventory i where iw.id.warehouseId = :id")
 	List<InventoryDTO> findIdPriceQuantityByWarehouseId(@Param("id") long warehouseId);
 
+	/**
+	 * Find quantity of an inventory in each warehouse holding it.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @return dto objects holding query result
+	 */
+	@Query("select new com.shopify.dto.WarehouseInventoryDTO(i.inventoryId, iw.id.warehouseId, "
+			+ "i.inventoryName, iw.totalQuantity, i.price) from InventoryWarehouse iw join iw.inventory i "
+			+ "where i.inventoryId = :id")
+	List<WarehouseInventoryDTO> findByInventoryId(@Param("id") long inventoryId);
+
+	/**
+	 * Find quantity and reorder threshold of every inventory in every warehouse
+	 * that has a threshold.
+	 * 
+	 * @return dto objects holding query result
+	 */
+	@Query("select new com.shopify.dto.LowStockDTO(iw.id.inventoryId, iw.id.warehouseId, "
+			+ "iw.totalQuantity, iw.reorderThreshold) from InventoryWarehouse iw where iw.reorderThreshold is not null")
+	List<LowStockDTO> findAllWithThreshold();
+
+	/**
+	 * Find total units and number of inventory items of each warehouse grouped by
+	 * price, so that values can be computed exactly from the result.
+	 * 
+	 * @return dto objects holding query result
+	 */
+	@Query("select new com.shopify.dto.StockValueDTO(iw.id.warehouseId, i.price, sum(iw.totalQuantity), "
+			+ "count(iw)) from InventoryWarehouse iw join iw.inventory i "
+			+ "group by iw.id.warehouseId, i.price")
+	List<StockValueDTO> findStockValues();
+
 	/**
 	 * Method used to validate delete request. To ensure all inventory is accounted
 	 * for, a warehouse with inventory cannot be deleted. If returned list is not
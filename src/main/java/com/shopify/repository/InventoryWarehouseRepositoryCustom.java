@@ -0,0 +1,126 @@
+package com.shopify.repository;
+
+import com.shopify.dto.InventoryFilterDTO;
+import com.shopify.dto.SnapshotRowDTO;
+import com.shopify.dto.WarehouseInventoryDTO;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Interface that represents queries of the InventoryWarehouse repository that
+ * are built at run time.
+ * 
+ * @author stephen
+ *
+ */
+public interface InventoryWarehouseRepositoryCustom {
+	/**
+	 * Find quantities of inventory per warehouse matching a filter, in the
+	 * filter's sort order, starting after the filter's position.
+	 * 
+	 * @param filter filters, sort order, position and page size
+	 * @param limit  maximum number of rows to return
+	 * @return matching rows
+	 */
+	List<WarehouseInventoryDTO> findByFilter(InventoryFilterDTO filter, int limit);
+
+	/**
+	 * Stream every inventory in every warehouse with names, ordered by inventory
+	 * id and then warehouse id, starting after a key. Rows are fetched from the
+	 * database in chunks as the stream is consumed; the stream must be closed and
+	 * read inside a transaction.
+	 * 
+	 * @param afterInventoryId inventory id of last row already read or 0
+	 * @param afterWarehouseId warehouse id of last row already read or 0
+	 * @param fetchSize        number of rows fetched per round trip
+	 * @return stream of rows
+	 */
+	Stream<SnapshotRowDTO> streamSnapshot(long afterInventoryId, long afterWarehouseId, int fetchSize);
+
+	/**
+	 * Set quantities of inventory in warehouses in one batch, inserting rows that
+	 * do not exist yet. Reorder thresholds of existing rows are kept. Runs in the
+	 * current transaction, if any, and bypasses the persistence context.
+	 * 
+	 * @param inventoryIds ids of inventory
+	 * @param warehouseIds ids of warehouses
+	 * @param quantities   quantities to set
+	 * @param count        number of leading elements of the arrays to write
+	 */
+	void upsertQuantities(long[] inventoryIds, long[] warehouseIds, int[] quantities, int count);
+
+	/**
+	 * Add to the quantity of inventory in a warehouse, inserting the row if it
+	 * does not exist yet, without loading entities. The row is read with a lock
+	 * before it is written, and read again only if it did not exist, in case
+	 * another transaction inserted it in between, so the quantity it held is
+	 * known either way. Must run in a transaction for the lock to hold; bypasses
+	 * the persistence context.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 * @param quantity    quantity to add
+	 * @return quantity the row held before, or -1 if it was inserted
+	 */
+	int upsertIncrement(long inventoryId, long warehouseId, int quantity);
+
+	/**
+	 * Add to quantities of inventory in warehouses in one batch, inserting rows
+	 * that do not exist yet, with one statement per row and without reading them
+	 * first. Runs in the current transaction, if any, and bypasses the
+	 * persistence context.
+	 * 
+	 * @param inventoryIds ids of inventory
+	 * @param warehouseIds ids of warehouses
+	 * @param quantities   quantities to add
+	 * @param count        number of leading elements of the arrays to write
+	 * @see #upsertIncrement(long, long, int)
+	 */
+	void upsertIncrements(long[] inventoryIds, long[] warehouseIds, int[] quantities, int count);
+
+	/**
+	 * Read the quantity of inventory in a warehouse through the current
+	 * transaction, if any, bypassing the persistence context.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 * @param lock        true to lock the row until the transaction ends, which
+	 *                    also reads its latest committed quantity
+	 * @return quantity or null if the inventory is not in the warehouse
+	 */
+	Integer findQuantity(long inventoryId, long warehouseId, boolean lock);
+
+	/**
+	 * Set quantities of inventory in warehouses in one batch, each only if it
+	 * still holds an expected quantity. Entries changed or removed since their
+	 * quantity was read are left alone. Must run in a transaction to be batched;
+	 * with drivers that do not report the count of each batched statement, the
+	 * batch is rolled back to a savepoint and entries are updated one by one.
+	 * 
+	 * @param inventoryIds ids of inventory
+	 * @param warehouseIds ids of warehouses
+	 * @param expected     quantities the entries are expected to hold
+	 * @param quantities   quantities to set
+	 * @param count        number of leading elements of the arrays to write
+	 * @return for each entry, whether it was updated
+	 */
+	boolean[] compareAndSetQuantities(long[] inventoryIds, long[] warehouseIds, int[] expected, int[] quantities,
+			int count);
+
+	/**
+	 * Read the quantity of every inventory in every warehouse, streaming rows from
+	 * the database in chunks instead of loading them all at once.
+	 * 
+	 * @param fetchSize number of rows fetched per round trip
+	 * @param handler   called with each row
+	 */
+	void scanQuantities(int fetchSize, QuantityHandler handler);
+
+	/**
+	 * Callback receiving rows of {@link #scanQuantities(int, QuantityHandler)}.
+	 */
+	@FunctionalInterface
+	interface QuantityHandler {
+		void accept(long inventoryId, long warehouseId, int quantity);
+	}
+}
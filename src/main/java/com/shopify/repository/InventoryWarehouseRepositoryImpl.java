@@ -0,0 +1,285 @@
+package com.shopify.repository;
+
+import com.shopify.dto.InventoryFilterDTO;
+import com.shopify.dto.SnapshotRowDTO;
+import com.shopify.dto.WarehouseInventoryDTO;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * Class that represents an implementation of the
+ * InventoryWarehouseRepositoryCustom interface.
+ * 
+ * Filters are compiled into a single query with bound parameters. Pages are
+ * found by seeking past the last row of the previous page on the sort value,
+ * inventory id and warehouse id instead of with an offset, so later pages cost
+ * the same as the first.
+ * 
+ * Bulk writes go through jdbc batches with the upsert statement of the
+ * database in use, since loading and merging entities one by one costs several
+ * statements per row.
+ * 
+ * @author stephen
+ *
+ */
+public class InventoryWarehouseRepositoryImpl implements InventoryWarehouseRepositoryCustom {
+
+	private static final String H2_UPSERT = "merge into inventory_warehouse "
+			+ "(inventory_inventory_id, warehouse_warehouse_id, total_quantity) "
+			+ "key (inventory_inventory_id, warehouse_warehouse_id) values (?, ?, ?)";
+	private static final String MYSQL_UPSERT = "insert into inventory_warehouse "
+			+ "(inventory_inventory_id, warehouse_warehouse_id, total_quantity) values (?, ?, ?) "
+			+ "on duplicate key update total_quantity = values(total_quantity)";
+	private static final String H2_UPSERT_INCREMENT = "merge into inventory_warehouse t "
+			+ "using (select cast(? as bigint) inventory_id, cast(? as bigint) warehouse_id, "
+			+ "cast(? as int) quantity) s "
+			+ "on (t.inventory_inventory_id = s.inventory_id and t.warehouse_warehouse_id = s.warehouse_id) "
+			+ "when matched then update set t.total_quantity = t.total_quantity + s.quantity "
+			+ "when not matched then insert (inventory_inventory_id, warehouse_warehouse_id, total_quantity) "
+			+ "values (s.inventory_id, s.warehouse_id, s.quantity)";
+	private static final String MYSQL_UPSERT_INCREMENT = "insert into inventory_warehouse "
+			+ "(inventory_inventory_id, warehouse_warehouse_id, total_quantity) values (?, ?, ?) "
+			+ "on duplicate key update total_quantity = total_quantity + values(total_quantity)";
+
+	private static final String SELECT_QUANTITY = "select total_quantity from inventory_warehouse "
+			+ "where inventory_inventory_id = ? and warehouse_warehouse_id = ?";
+	private static final String COMPARE_AND_SET_QUANTITY = "update inventory_warehouse set total_quantity = ? "
+			+ "where inventory_inventory_id = ? and warehouse_warehouse_id = ? and total_quantity = ?";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private volatile Boolean h2;
+
+	private volatile boolean batchCountsUnknown;
+
+	@Override
+	public List<WarehouseInventoryDTO> findByFilter(InventoryFilterDTO filter, int limit) {
+		List<String> conditions = new ArrayList<>();
+		Map<String, Object> parameters = new HashMap<>();
+
+		if (filter.getWarehouseIds() != null && !filter.getWarehouseIds().isEmpty()) {
+			conditions.add("iw.id.warehouseId in :warehouseIds");
+			parameters.put("warehouseIds", filter.getWarehouseIds());
+		}
+		if (filter.getMinQuantity() != null) {
+			conditions.add("iw.totalQuantity >= :minQuantity");
+			parameters.put("minQuantity", filter.getMinQuantity());
+		}
+		if (filter.getMaxQuantity() != null) {
+			conditions.add("iw.totalQuantity <= :maxQuantity");
+			parameters.put("maxQuantity", filter.getMaxQuantity());
+		}
+		if (filter.getMinPrice() != null) {
+			conditions.add("i.price >= :minPrice");
+			parameters.put("minPrice", filter.getMinPrice());
+		}
+		if (filter.getMaxPrice() != null) {
+			conditions.add("i.price <= :maxPrice");
+			parameters.put("maxPrice", filter.getMaxPrice());
+		}
+		if (filter.getNamePrefix() != null) {
+			conditions.add("i.inventoryName like :namePrefix escape '\\'");
+			parameters.put("namePrefix", escapeLike(filter.getNamePrefix()) + "%");
+		}
+
+		String sortValue = sortExpression(filter);
+		if (filter.getAfterValue() != null) {
+			conditions.add("(" + sortValue + (filter.isDescending() ? " < " : " > ") + ":afterValue or (" + sortValue
+					+ " = :afterValue and (i.inventoryId > :afterInventoryId or (i.inventoryId = :afterInventoryId "
+					+ "and iw.id.warehouseId > :afterWarehouseId))))");
+			parameters.put("afterValue", filter.getAfterValue());
+			parameters.put("afterInventoryId", filter.getAfterInventoryId());
+			parameters.put("afterWarehouseId", filter.getAfterWarehouseId());
+		}
+
+		StringBuilder jpql = new StringBuilder(
+				"select new com.shopify.dto.WarehouseInventoryDTO(i.inventoryId, iw.id.warehouseId, "
+						+ "i.inventoryName, iw.totalQuantity, i.price) from InventoryWarehouse iw join iw.inventory i");
+		if (!conditions.isEmpty()) {
+			jpql.append(" where ").append(String.join(" and ", conditions));
+		}
+		jpql.append(" order by ").append(sortValue).append(filter.isDescending() ? " desc" : " asc")
+				.append(", i.inventoryId asc, iw.id.warehouseId asc");
+
+		TypedQuery<WarehouseInventoryDTO> query = entityManager.createQuery(jpql.toString(),
+				WarehouseInventoryDTO.class);
+		parameters.forEach(query::setParameter);
+		return query.setMaxResults(limit).getResultList();
+	}
+
+	@Override
+	public Stream<SnapshotRowDTO> streamSnapshot(long afterInventoryId, long afterWarehouseId, int fetchSize) {
+		return entityManager.createQuery("select new com.shopify.dto.SnapshotRowDTO(i.inventoryId, i.inventoryName, "
+				+ "i.price, w.warehouseId, w.warehouseName, iw.totalQuantity) from InventoryWarehouse iw "
+				+ "join iw.inventory i join iw.warehouse w where i.inventoryId > :afterInventoryId "
+				+ "or (i.inventoryId = :afterInventoryId and w.warehouseId > :afterWarehouseId) "
+				+ "order by i.inventoryId, w.warehouseId", SnapshotRowDTO.class)
+				.setParameter("afterInventoryId", afterInventoryId).setParameter("afterWarehouseId", afterWarehouseId)
+				.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize).setHint(QueryHints.HINT_READONLY, true)
+				.getResultStream();
+	}
+
+	@Override
+	public void upsertQuantities(long[] inventoryIds, long[] warehouseIds, int[] quantities, int count) {
+		batchUpsert(isH2() ? H2_UPSERT : MYSQL_UPSERT, inventoryIds, warehouseIds, quantities, count);
+	}
+
+	@Override
+	public int upsertIncrement(long inventoryId, long warehouseId, int quantity) {
+		if (entityManager.isJoinedToTransaction()) {
+			entityManager.flush();
+		}
+		Integer previous = findQuantity(inventoryId, warehouseId, true);
+		upsertIncrements(new long[] { inventoryId }, new long[] { warehouseId }, new int[] { quantity }, 1);
+		if (previous != null) {
+			return previous;
+		}
+		// nothing was there to lock, so another transaction may have inserted the row
+		// since; the upsert then waited for it and added to its quantity
+		int current = findQuantity(inventoryId, warehouseId, false);
+		return current == quantity ? -1 : current - quantity;
+	}
+
+	@Override
+	public void upsertIncrements(long[] inventoryIds, long[] warehouseIds, int[] quantities, int count) {
+		batchUpsert(isH2() ? H2_UPSERT_INCREMENT : MYSQL_UPSERT_INCREMENT, inventoryIds, warehouseIds, quantities,
+				count);
+	}
+
+	@Override
+	public Integer findQuantity(long inventoryId, long warehouseId, boolean lock) {
+		List<Integer> quantities = jdbcTemplate.queryForList(lock ? SELECT_QUANTITY + " for update" : SELECT_QUANTITY,
+				Integer.class, inventoryId, warehouseId);
+		return quantities.isEmpty() ? null : quantities.get(0);
+	}
+
+	@Override
+	public boolean[] compareAndSetQuantities(long[] inventoryIds, long[] warehouseIds, int[] expected,
+			int[] quantities, int count) {
+		boolean[] result = new boolean[count];
+		if (count == 0) {
+			return result;
+		}
+		if (entityManager.isJoinedToTransaction()) {
+			entityManager.flush();
+		}
+		return jdbcTemplate.execute((ConnectionCallback<boolean[]>) connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(COMPARE_AND_SET_QUANTITY)) {
+				if (!batchCountsUnknown && !connection.getAutoCommit()) {
+					Savepoint savepoint = connection.setSavepoint();
+					for (int i = 0; i < count; i++) {
+						setCompareAndSet(statement, inventoryIds[i], warehouseIds[i], expected[i], quantities[i]);
+						statement.addBatch();
+					}
+					int[] updated = statement.executeBatch();
+					boolean known = true;
+					for (int i = 0; i < count; i++) {
+						known &= updated[i] != Statement.SUCCESS_NO_INFO;
+						result[i] = updated[i] > 0;
+					}
+					if (known) {
+						connection.releaseSavepoint(savepoint);
+						return result;
+					}
+					// the driver does not tell which entries matched, so undo the batch and
+					// update entries one by one from now on
+					connection.rollback(savepoint);
+					batchCountsUnknown = true;
+				}
+				for (int i = 0; i < count; i++) {
+					setCompareAndSet(statement, inventoryIds[i], warehouseIds[i], expected[i], quantities[i]);
+					result[i] = statement.executeUpdate() > 0;
+				}
+				return result;
+			}
+		});
+	}
+
+	@Override
+	public void scanQuantities(int fetchSize, QuantityHandler handler) {
+		jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(
+					"select inventory_inventory_id, warehouse_warehouse_id, total_quantity from inventory_warehouse");
+			statement.setFetchSize(fetchSize);
+			return statement;
+		}, (RowCallbackHandler) row -> handler.accept(row.getLong(1), row.getLong(2), row.getInt(3)));
+	}
+
+	private void batchUpsert(String sql, long[] inventoryIds, long[] warehouseIds, int[] quantities, int count) {
+		if (count == 0) {
+			return;
+		}
+		// pending entity changes must reach the database before rows they may touch
+		if (entityManager.isJoinedToTransaction()) {
+			entityManager.flush();
+		}
+		if (count == 1) {
+			jdbcTemplate.update(sql, inventoryIds[0], warehouseIds[0], quantities[0]);
+			return;
+		}
+		jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement statement, int i) throws SQLException {
+				statement.setLong(1, inventoryIds[i]);
+				statement.setLong(2, warehouseIds[i]);
+				statement.setInt(3, quantities[i]);
+			}
+
+			@Override
+			public int getBatchSize() {
+				return count;
+			}
+		});
+	}
+
+	private static void setCompareAndSet(PreparedStatement statement, long inventoryId, long warehouseId,
+			int expected, int quantity) throws SQLException {
+		statement.setInt(1, quantity);
+		statement.setLong(2, inventoryId);
+		statement.setLong(3, warehouseId);
+		statement.setInt(4, expected);
+	}
+
+	private boolean isH2() {
+		if (h2 == null) {
+			h2 = "H2".equals(jdbcTemplate.execute(
+					(ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+		}
+		return h2;
+	}
+
+	private static String sortExpression(InventoryFilterDTO filter) {
+		switch (filter.getSort()) {
+		case PRICE:
+			return "i.price";
+		case QUANTITY:
+			return "iw.totalQuantity";
+		default:
+			return "i.inventoryName";
+		}
+	}
+
+	private static String escapeLike(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
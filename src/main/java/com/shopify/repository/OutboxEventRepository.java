@@ -0,0 +1,44 @@
+package com.shopify.repository;
+
+import com.shopify.model.OutboxEvent;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Interface that represents a repository for the OutboxEvent entity.
+ * 
+ * @author stephen
+ *
+ */
+@Repository
+public interface OutboxEventRepository
+		extends CrudRepository<OutboxEvent, Long>, OutboxEventRepositoryCustom {
+	/**
+	 * Find the oldest events waiting to be relayed.
+	 * 
+	 * @param pageable size of batch
+	 * @return events in id order
+	 */
+	@Query("select e from OutboxEvent e order by e.id")
+	List<OutboxEvent> findBatch(Pageable pageable);
+
+	/**
+	 * Delete relayed events. Events are deleted by id rather than by range since
+	 * transactions that write events at the same time can commit out of order,
+	 * and a range could remove an event that committed after the batch was read.
+	 * 
+	 * @param ids ids of relayed events
+	 * @return number of deleted events
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from OutboxEvent e where e.id in :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
+}
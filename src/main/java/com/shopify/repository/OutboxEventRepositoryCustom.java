@@ -0,0 +1,22 @@
+package com.shopify.repository;
+
+import com.shopify.model.OutboxEvent;
+import java.util.List;
+
+/**
+ * Interface that represents writes of the OutboxEvent repository that bypass
+ * the persistence context.
+ * 
+ * @author stephen
+ *
+ */
+public interface OutboxEventRepositoryCustom {
+	/**
+	 * Insert events in one batch, in order, through the current transaction.
+	 * Ids are assigned by the database; the given events are not updated with
+	 * them.
+	 * 
+	 * @param events events to insert
+	 */
+	void insertAll(List<OutboxEvent> events);
+}
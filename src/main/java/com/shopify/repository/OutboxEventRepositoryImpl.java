@@ -0,0 +1,56 @@
+package com.shopify.repository;
+
+import com.shopify.model.OutboxEvent;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Class that represents an implementation of the OutboxEventRepositoryCustom
+ * interface.
+ * 
+ * Events go through a single jdbc batch, which drivers that rewrite batches
+ * send as one multi-row insert, instead of one insert per event as identity
+ * ids would require of entities.
+ * 
+ * @author stephen
+ *
+ */
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+
+	private static final String INSERT = "insert into outbox_event "
+			+ "(event_type, inventory_id, warehouse_id, quantity, inventory_name, price, created_at) "
+			+ "values (?, ?, ?, ?, ?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public void insertAll(List<OutboxEvent> events) {
+		if (events.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement statement, int i) throws SQLException {
+				OutboxEvent event = events.get(i);
+				statement.setString(1, event.getEventType());
+				statement.setLong(2, event.getInventoryId());
+				statement.setObject(3, event.getWarehouseId(), Types.BIGINT);
+				statement.setObject(4, event.getQuantity(), Types.INTEGER);
+				statement.setString(5, event.getInventoryName());
+				statement.setObject(6, event.getPrice(), Types.DOUBLE);
+				statement.setLong(7, event.getCreatedAt());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return events.size();
+			}
+		});
+	}
+}
@@ -1,6 +1,8 @@
 package com.shopify.repository;
 
 import com.shopify.model.Warehouse;
+import javax.persistence.QueryHint;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,10 +15,12 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface WarehouseRepository extends CrudRepository<Warehouse, Long> {
 	/**
-	 * Get warehouse by warehouse name.
+	 * Get warehouse by warehouse name. The result is kept in the query cache and is
+	 * invalidated whenever the warehouse table is written to.
 	 * 
 	 * @param name name of warehouse to search for
 	 * @return warehouse or null if it does not exist
 	 */
+	@QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
 	Warehouse findByWarehouseName(String name);
 }
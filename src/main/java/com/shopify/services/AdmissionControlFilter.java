@@ -0,0 +1,93 @@
+package com.shopify.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopify.dto.ResponseDTO;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Class that represents a filter admitting api requests through the
+ * {@link AdmissionService} before they reach the controller. GET, HEAD and
+ * OPTIONS requests count as reads, all others as writes. Clients are told apart
+ * by the {@link ClientIdentityResolver}. Rate limited requests are
+ * answered with 429 and overloads with 503, both with a Retry-After header.
+ * 
+ * Readiness checks and the long lived stock feed are not admission controlled.
+ * The filter runs before the {@link IdempotencyFilter}, so rejected requests
+ * never claim an idempotency key.
+ * 
+ * @author stephen
+ *
+ */
+@Component
+@Order(AdmissionControlFilter.ORDER)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+	/**
+	 * Order of the filter, after the filters of the framework, which parse form
+	 * bodies among others.
+	 */
+	public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 100;
+
+	@Autowired
+	private AdmissionService admissionService;
+
+	@Autowired
+	private ClientIdentityResolver clientIdentityResolver;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${admission.enabled:true}")
+	private boolean enabled;
+
+	@Value("${admission.exempt-paths:/api/v1/readiness,/api/v1/stock/feed}")
+	private List<String> exemptPaths;
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return !enabled || !path.startsWith("/api/") || exemptPaths.contains(path);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		boolean write = !Arrays.asList("GET", "HEAD", "OPTIONS").contains(request.getMethod());
+		switch (admissionService.admit(clientIdentityResolver.resolve(request), write)) {
+		case RATE_LIMITED:
+			reject(response, 429, "Rate limit exceeded");
+			return;
+		case OVERLOADED:
+			reject(response, 503, "Server is busy");
+			return;
+		default:
+			break;
+		}
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			admissionService.release(write);
+		}
+	}
+
+	private void reject(HttpServletResponse response, int status, String message) throws IOException {
+		response.setStatus(status);
+		response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), new ResponseDTO(message, true));
+	}
+}
@@ -0,0 +1,57 @@
+package com.shopify.services;
+
+import com.shopify.dto.AdmissionStatisticsDTO;
+
+/**
+ * Interface that provides a contract for admission control of api requests.
+ * Each client is rate limited with token buckets, and the number of requests
+ * in progress is limited to what the database connection pool can serve, with
+ * separate budgets for reads and writes. Requests over a limit are rejected
+ * rather than queued for long.
+ * 
+ * @author stephen
+ *
+ */
+public interface AdmissionService {
+	/**
+	 * Outcome of a request for admission.
+	 */
+	public enum Decision {
+		/**
+		 * The request may proceed and must be released when done.
+		 */
+		ADMITTED,
+		/**
+		 * The client exceeded its rate limit.
+		 */
+		RATE_LIMITED,
+		/**
+		 * Too many requests are in progress.
+		 */
+		OVERLOADED
+	}
+
+	/**
+	 * Admit a request, waiting briefly for a request in progress to finish if
+	 * the concurrency limit is reached.
+	 * 
+	 * @param clientId identity of the calling client
+	 * @param write    true for requests that change data
+	 * @return outcome of admission
+	 */
+	public Decision admit(String clientId, boolean write);
+
+	/**
+	 * Release an admitted request.
+	 * 
+	 * @param write true for requests that change data
+	 */
+	public void release(boolean write);
+
+	/**
+	 * Get admission and rejection counts and queue times.
+	 * 
+	 * @return admission statistics
+	 */
+	public AdmissionStatisticsDTO getStatistics();
+}
@@ -0,0 +1,182 @@
+package com.shopify.services;
+
+import com.shopify.dto.AdmissionStatisticsDTO;
+import com.shopify.util.TokenBucket;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the AdmissionService interface.
+ * 
+ * Reads may use as many requests in progress as the connection pool has
+ * connections, writes half of that unless configured otherwise, so a flood of
+ * writes leaves connections for reads. Buckets of clients that are full again,
+ * which are no different from new ones, are dropped on a schedule. Once a
+ * maximum number of clients are known, further new clients share one bucket
+ * until the next sweep, so that a flood of client identities neither grows the
+ * buckets without bound nor makes admission scan them.
+ * 
+ * The service is never initialized lazily, since the sweep is only scheduled
+ * once it has been created.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+@Lazy(false)
+public class AdmissionServiceImpl implements AdmissionService {
+
+	private static final int DEFAULT_POOL_SIZE = 10;
+
+	private static final String OVERFLOW_CLIENT = "";
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Value("${admission.read.rate:100}")
+	private double readRate;
+
+	@Value("${admission.read.burst:200}")
+	private double readBurst;
+
+	@Value("${admission.write.rate:20}")
+	private double writeRate;
+
+	@Value("${admission.write.burst:40}")
+	private double writeBurst;
+
+	/**
+	 * Requests in progress allowed; 0 to derive from the pool size.
+	 */
+	@Value("${admission.read.concurrency:0}")
+	private int readConcurrency;
+
+	@Value("${admission.write.concurrency:0}")
+	private int writeConcurrency;
+
+	@Value("${admission.queue-timeout-ms:50}")
+	private long queueTimeoutMs;
+
+	@Value("${admission.max-clients:10000}")
+	private int maxClients;
+
+	private final Map<String, TokenBucket> readBuckets = new ConcurrentHashMap<>();
+	private final Map<String, TokenBucket> writeBuckets = new ConcurrentHashMap<>();
+
+	private Semaphore readPermits;
+	private Semaphore writePermits;
+
+	private final LongAdder readAdmitted = new LongAdder();
+	private final LongAdder writeAdmitted = new LongAdder();
+	private final LongAdder readRateLimited = new LongAdder();
+	private final LongAdder writeRateLimited = new LongAdder();
+	private final LongAdder readShed = new LongAdder();
+	private final LongAdder writeShed = new LongAdder();
+	private final LongAdder queued = new LongAdder();
+	private final LongAdder queueNanos = new LongAdder();
+	private final AtomicLong maxQueueNanos = new AtomicLong();
+
+	@PostConstruct
+	void init() throws SQLException {
+		int poolSize = DEFAULT_POOL_SIZE;
+		if (dataSource.isWrapperFor(HikariDataSource.class)) {
+			// a size left unset reads as -1 until the pool starts, which is deferred in the startup profile
+			poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+			if (poolSize <= 0) {
+				poolSize = DEFAULT_POOL_SIZE;
+			}
+		}
+		if (readConcurrency <= 0) {
+			readConcurrency = poolSize;
+		}
+		if (writeConcurrency <= 0) {
+			writeConcurrency = Math.max(1, poolSize / 2);
+		}
+		readPermits = new Semaphore(readConcurrency);
+		writePermits = new Semaphore(writeConcurrency);
+	}
+
+	@Override
+	public Decision admit(String clientId, boolean write) {
+		long now = System.nanoTime();
+		Map<String, TokenBucket> buckets = write ? writeBuckets : readBuckets;
+		TokenBucket bucket = buckets.get(clientId);
+		if (bucket == null) {
+			String key = buckets.size() >= maxClients ? OVERFLOW_CLIENT : clientId;
+			bucket = buckets.computeIfAbsent(key,
+					c -> write ? new TokenBucket(writeBurst, writeRate, now) : new TokenBucket(readBurst, readRate, now));
+		}
+		if (!bucket.tryAcquire(now)) {
+			(write ? writeRateLimited : readRateLimited).increment();
+			return Decision.RATE_LIMITED;
+		}
+
+		Semaphore permits = write ? writePermits : readPermits;
+		boolean acquired = permits.tryAcquire();
+		if (!acquired) {
+			long start = System.nanoTime();
+			try {
+				acquired = permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			long waited = System.nanoTime() - start;
+			queued.increment();
+			queueNanos.add(waited);
+			maxQueueNanos.accumulateAndGet(waited, Math::max);
+		}
+		if (!acquired) {
+			(write ? writeShed : readShed).increment();
+			return Decision.OVERLOADED;
+		}
+		(write ? writeAdmitted : readAdmitted).increment();
+		return Decision.ADMITTED;
+	}
+
+	/**
+	 * Drop the buckets of clients that are full again.
+	 */
+	@Scheduled(fixedDelayString = "${admission.sweep-interval-ms:10000}")
+	public void sweep() {
+		long now = System.nanoTime();
+		readBuckets.values().removeIf(bucket -> bucket.isFull(now));
+		writeBuckets.values().removeIf(bucket -> bucket.isFull(now));
+	}
+
+	@Override
+	public void release(boolean write) {
+		(write ? writePermits : readPermits).release();
+	}
+
+	@Override
+	public AdmissionStatisticsDTO getStatistics() {
+		AdmissionStatisticsDTO result = new AdmissionStatisticsDTO();
+		result.setReadConcurrency(readConcurrency);
+		result.setWriteConcurrency(writeConcurrency);
+		result.setReadInFlight(readConcurrency - readPermits.availablePermits());
+		result.setWriteInFlight(writeConcurrency - writePermits.availablePermits());
+		result.setReadAdmitted(readAdmitted.sum());
+		result.setWriteAdmitted(writeAdmitted.sum());
+		result.setReadRateLimited(readRateLimited.sum());
+		result.setWriteRateLimited(writeRateLimited.sum());
+		result.setReadShed(readShed.sum());
+		result.setWriteShed(writeShed.sum());
+		long waits = queued.sum();
+		result.setAverageQueueMillis(waits == 0 ? 0 : queueNanos.sum() / 1e6 / waits);
+		result.setMaxQueueMillis(maxQueueNanos.get() / 1e6);
+		return result;
+	}
+}
@@ -0,0 +1,44 @@
+package com.shopify.services;
+
+import com.shopify.dto.AvailabilityDTO;
+import com.shopify.dto.SkuAvailabilityDTO;
+import java.util.List;
+
+/**
+ * Interface that provides a contract for answering how much of an inventory is
+ * available, in one warehouse or in total, from memory without querying the
+ * database.
+ * 
+ * @author stephen
+ *
+ */
+public interface AvailabilityService {
+	/**
+	 * Get quantity of an inventory available in a warehouse or in all warehouses.
+	 * Inventory that is not in the warehouse has a quantity of 0.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse or null for all warehouses
+	 * @return availability of inventory
+	 */
+	public AvailabilityDTO getAvailability(long inventoryId, Long warehouseId);
+
+	/**
+	 * Get quantities of many inventories per warehouse and in total at once.
+	 * Inventories are returned once each in the order they were first requested;
+	 * unknown inventories have a total of 0 and no warehouses.
+	 * 
+	 * @param inventoryIds ids of inventories
+	 * @param warehouseIds ids of warehouses to include or null for all warehouses
+	 * @return availability of each inventory, totalled over the included
+	 *         warehouses
+	 */
+	public List<SkuAvailabilityDTO> getAvailability(List<Long> inventoryIds, List<Long> warehouseIds);
+
+	/**
+	 * Replace the quantities held in memory with the quantities in the database.
+	 * 
+	 * @return number of inventory warehouse entries loaded
+	 */
+	public int rebuild();
+}
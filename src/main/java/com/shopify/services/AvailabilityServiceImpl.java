@@ -0,0 +1,192 @@
+package com.shopify.services;
+
+import com.shopify.dto.AvailabilityDTO;
+import com.shopify.dto.SkuAvailabilityDTO;
+import com.shopify.event.StockChangeEvent;
+import com.shopify.event.StockImportedEvent;
+import com.shopify.model.InventoryWarehouseId;
+import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.util.PendingChanges;
+import com.shopify.util.StockTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the AvailabilityService interface.
+ * 
+ * Quantities are mirrored in a {@link StockTable} that is loaded by a streaming
+ * scan once the application is ready and after bulk imports, and then kept in
+ * step with stock change events. Reads only touch the table. Events are applied
+ * as they are published, inside the transaction making the change, so reads
+ * may see quantities that are not committed yet; such changes are undone if
+ * their transaction rolls back.
+ * 
+ * Changes keep being applied while a rebuild scans the database. The scan only
+ * sees committed quantities and may read an entry before or after a change, so
+ * entries changed during the scan, or by transactions still open when it
+ * started, are taken from the live table when the rebuilt one replaces it.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class AvailabilityServiceImpl implements AvailabilityService {
+
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Value("${availability.rebuild.fetch-size:10000}")
+	private int fetchSize;
+
+	private volatile StockTable table = new StockTable(0);
+
+	private final Object rebuildLock = new Object();
+
+	/**
+	 * Entries changed since a rebuild started, or null when no rebuild is
+	 * running. Guarded by this service's monitor, like changes to the table.
+	 */
+	private Set<InventoryWarehouseId> changedDuringRebuild;
+
+	/**
+	 * Quantities changed by each transaction as they were before it.
+	 */
+	private final PendingChanges<InventoryWarehouseId, Integer> pendingChanges = new PendingChanges<>(this::revert);
+
+	@Override
+	public AvailabilityDTO getAvailability(long inventoryId, Long warehouseId) {
+		long quantity = warehouseId == null ? table.getTotal(inventoryId) : table.get(inventoryId, warehouseId);
+		return new AvailabilityDTO(inventoryId, warehouseId, Math.max(0, quantity));
+	}
+
+	@Override
+	public List<SkuAvailabilityDTO> getAvailability(List<Long> inventoryIds, List<Long> warehouseIds) {
+		StockTable current = table;
+		long[] warehouses;
+		if (warehouseIds == null) {
+			warehouses = current.getWarehouseIds();
+		} else {
+			warehouses = new LinkedHashSet<>(warehouseIds).stream().mapToLong(Long::longValue).toArray();
+		}
+		Arrays.sort(warehouses);
+
+		List<SkuAvailabilityDTO> result = new ArrayList<>(inventoryIds.size());
+		for (long inventoryId : new LinkedHashSet<>(inventoryIds)) {
+			Map<Long, Long> quantities = Collections.emptyMap();
+			long total = 0;
+			if (warehouseIds != null || current.getTotal(inventoryId) >= 0) {
+				quantities = new LinkedHashMap<>();
+				for (long warehouseId : warehouses) {
+					long quantity = current.get(inventoryId, warehouseId);
+					if (quantity >= 0) {
+						quantities.put(warehouseId, quantity);
+						total += quantity;
+					}
+				}
+			}
+			result.add(new SkuAvailabilityDTO(inventoryId, total, quantities));
+		}
+		return result;
+	}
+
+	/**
+	 * Load quantities once the application has started.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public void onApplicationReady() {
+		rebuild();
+	}
+
+	/**
+	 * Reload quantities after a bulk import, which changes quantities without
+	 * stock change events.
+	 * 
+	 * @param event bulk import
+	 */
+	@EventListener
+	public void onStockImported(StockImportedEvent event) {
+		rebuild();
+	}
+
+	@Override
+	public int rebuild() {
+		synchronized (rebuildLock) {
+			synchronized (this) {
+				changedDuringRebuild = new HashSet<>(pendingChanges.openKeys());
+			}
+			try {
+				StockTable loaded = new StockTable(
+						(int) Math.min(Integer.MAX_VALUE, inventoryWarehouseRepository.count()));
+				inventoryWarehouseRepository.scanQuantities(fetchSize, loaded::put);
+
+				synchronized (this) {
+					for (InventoryWarehouseId key : changedDuringRebuild) {
+						long quantity = table.get(key.getInventoryId(), key.getWarehouseId());
+						if (quantity < 0) {
+							loaded.remove(key.getInventoryId(), key.getWarehouseId());
+						} else {
+							loaded.put(key.getInventoryId(), key.getWarehouseId(), (int) quantity);
+						}
+					}
+					table = loaded;
+				}
+				return loaded.size();
+			} finally {
+				synchronized (this) {
+					changedDuringRebuild = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Apply a change of quantity to the table.
+	 * 
+	 * @param event stock change
+	 */
+	@EventListener
+	public synchronized void onStockChange(StockChangeEvent event) {
+		InventoryWarehouseId key = new InventoryWarehouseId(event.getInventoryId(), event.getWarehouseId());
+		Map<InventoryWarehouseId, Integer> changes = pendingChanges.current();
+		if (changes != null) {
+			long original = table.get(key.getInventoryId(), key.getWarehouseId());
+			changes.putIfAbsent(key, original < 0 ? null : (int) original);
+		}
+		if (changedDuringRebuild != null) {
+			changedDuringRebuild.add(key);
+		}
+		if (event.getType() == StockChangeEvent.Type.REMOVED) {
+			table.remove(key.getInventoryId(), key.getWarehouseId());
+		} else {
+			table.put(key.getInventoryId(), key.getWarehouseId(), event.getQuantity());
+		}
+	}
+
+	private synchronized void revert(Map<InventoryWarehouseId, Integer> changes) {
+		changes.forEach((key, quantity) -> {
+			if (quantity == null) {
+				table.remove(key.getInventoryId(), key.getWarehouseId());
+			} else {
+				table.put(key.getInventoryId(), key.getWarehouseId(), quantity);
+			}
+			if (changedDuringRebuild != null) {
+				changedDuringRebuild.add(key);
+			}
+		});
+	}
+}
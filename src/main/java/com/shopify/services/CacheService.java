@@ -0,0 +1,19 @@
+package com.shopify.services;
+
+import com.shopify.dto.CacheStatisticsDTO;
+
+/**
+ * Interface that provides a contract for inspecting the hibernate second-level
+ * and query caches.
+ * 
+ * @author stephen
+ *
+ */
+public interface CacheService {
+	/**
+	 * Get hit, miss and put counts of the second-level and query caches.
+	 * 
+	 * @return cache statistics
+	 */
+	public CacheStatisticsDTO getCacheStatistics();
+}
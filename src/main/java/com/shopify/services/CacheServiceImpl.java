@@ -0,0 +1,37 @@
+package com.shopify.services;
+
+import com.shopify.dto.CacheStatisticsDTO;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the CacheService interface.
+ * Statistics are read from the hibernate session factory and require
+ * hibernate.generate_statistics to be enabled.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class CacheServiceImpl implements CacheService {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Override
+	public CacheStatisticsDTO getCacheStatistics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		CacheStatisticsDTO result = new CacheStatisticsDTO();
+		result.setSecondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount());
+		result.setSecondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount());
+		result.setSecondLevelCachePutCount(statistics.getSecondLevelCachePutCount());
+		result.setQueryCacheHitCount(statistics.getQueryCacheHitCount());
+		result.setQueryCacheMissCount(statistics.getQueryCacheMissCount());
+		result.setQueryCachePutCount(statistics.getQueryCachePutCount());
+		result.setQueryExecutionCount(statistics.getQueryExecutionCount());
+		return result;
+	}
+}
@@ -0,0 +1,75 @@
+package com.shopify.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Class that keeps a change version for each table backing a listing end point.
+ * Services bump the version after every successful write, which lets listing
+ * end points answer conditional requests without running the listing query.
+ * Versions live in memory, so every tag also carries the instance epoch to keep
+ * tags from different instances or restarts from ever matching. Tags are weak
+ * because the same version may be sent as json or cbor and with or without
+ * gzip, and because tomcat refuses to compress responses with strong tags.
+ * 
+ * When called inside a transaction the version is bumped again after commit,
+ * so a listing read between the first bump and the commit is never left with
+ * the latest tag.
+ * 
+ * @author stephen
+ *
+ */
+@Component
+public class ChangeVersionTracker {
+	private final String epoch = Long.toHexString(System.currentTimeMillis());
+	private final AtomicLong inventoryVersion = new AtomicLong();
+	private final AtomicLong warehouseVersion = new AtomicLong();
+
+	/**
+	 * Record a change to inventory or to inventory quantities in any warehouse.
+	 */
+	public void inventoryChanged() {
+		bump(inventoryVersion);
+	}
+
+	/**
+	 * Record a change to the warehouse table.
+	 */
+	public void warehouseChanged() {
+		bump(warehouseVersion);
+	}
+
+	/**
+	 * Get entity tag of the current inventory version. Must be read before the
+	 * listing it describes so that a tag never claims newer data than was sent.
+	 * 
+	 * @return inventory entity tag
+	 */
+	public String getInventoryTag() {
+		return "W/\"inv-" + epoch + "-" + inventoryVersion.get() + "\"";
+	}
+
+	/**
+	 * Get entity tag of the current warehouse version. Must be read before the
+	 * listing it describes so that a tag never claims newer data than was sent.
+	 * 
+	 * @return warehouse entity tag
+	 */
+	public String getWarehouseTag() {
+		return "W/\"wh-" + epoch + "-" + warehouseVersion.get() + "\"";
+	}
+
+	private void bump(AtomicLong version) {
+		version.incrementAndGet();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					version.incrementAndGet();
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.shopify.services;
+
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class that represents how api clients are told apart, for rate limits and
+ * idempotency keys. Clients are known by address unless the application runs
+ * behind a proxy that authenticates them and sets a client header; only then
+ * is the header trusted, since any client could otherwise send a new value with
+ * each request, or another client's value.
+ *
+ * @author stephen
+ *
+ */
+@Component
+public class ClientIdentityResolver {
+
+	@Value("${admission.client-header:X-Client-Id}")
+	private String clientHeader;
+
+	@Value("${admission.trust-client-header:false}")
+	private boolean trustClientHeader;
+
+	/**
+	 * Get the identity of the client that sent a request.
+	 *
+	 * @param request api request
+	 * @return value of the client header if trusted and present, otherwise the
+	 *         remote address
+	 */
+	public String resolve(HttpServletRequest request) {
+		if (trustClientHeader) {
+			String clientId = request.getHeader(clientHeader);
+			if (clientId != null && !clientId.isEmpty()) {
+				return clientId;
+			}
+		}
+		return request.getRemoteAddr();
+	}
+}
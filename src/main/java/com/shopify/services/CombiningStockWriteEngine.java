@@ -0,0 +1,166 @@
+package com.shopify.services;
+
+import com.shopify.event.StockChangeEvent;
+import com.shopify.model.InventoryWarehouse;
+import com.shopify.model.InventoryWarehouseId;
+import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.util.StripedCombiner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Class that represents the default implementation of the StockWriteEngine
+ * interface, applying changes through jpa.
+ * 
+ * Changes are queued in memory per inventory and warehouse, in stripes of a
+ * {@link StripedCombiner}, before a transaction is started. Concurrent changes
+ * of one entry therefore wait without holding a database connection, and the
+ * changes queued meanwhile are applied together with one locking select and one
+ * update per entry. The lock keeps placements and removals, which change
+ * entries outside the combiner, from being overwritten. Each change still
+ * publishes its own stock change event. If a batch fails, each of its changes
+ * is retried in a transaction of its own, so one failing change does not fail
+ * the changes queued with it. Changes made within a caller's transaction are
+ * applied directly, since a batch must not join a transaction that might roll
+ * back other callers' changes.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "stock.write-engine", havingValue = "combining", matchIfMissing = true)
+public class CombiningStockWriteEngine implements StockWriteEngine {
+
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Autowired
+	private ChangeVersionTracker changeVersionTracker;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${stock.combine.stripes:256}")
+	private int stripeCount;
+
+	@Value("${stock.combine.max-batch:64}")
+	private int maxBatch;
+
+	private StripedCombiner<StockDelta> stockUpdates;
+
+	private TransactionTemplate transactionTemplate;
+
+	@PostConstruct
+	void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		stockUpdates = new StripedCombiner<>(stripeCount, maxBatch, this::applyDeltas);
+	}
+
+	@Override
+	public void adjust(long inventoryId, long warehouseId, int quantity) {
+		StockDelta delta = new StockDelta(inventoryId, warehouseId, quantity);
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			applyDeltas(Collections.singletonList(delta));
+		} else {
+			stockUpdates.submit(inventoryId * 1_000_003L + warehouseId, delta);
+		}
+		if (delta.failure != null) {
+			throw delta.failure;
+		}
+		if (!delta.applied) {
+			throw new IllegalStateException("Inventory " + inventoryId + " is not in warehouse " + warehouseId);
+		}
+	}
+
+	/**
+	 * Apply changes of quantity in one transaction, or each in its own
+	 * transaction if that fails.
+	 */
+	private void applyDeltas(List<StockDelta> batch) {
+		try {
+			applyInTransaction(batch);
+		} catch (RuntimeException e) {
+			if (batch.size() == 1) {
+				throw e;
+			}
+			for (StockDelta delta : batch) {
+				try {
+					applyInTransaction(Collections.singletonList(delta));
+				} catch (RuntimeException failure) {
+					delta.failure = failure;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Apply changes of quantity in one transaction, loading and locking each entry
+	 * once and leaving it to be updated once on commit.
+	 */
+	private void applyInTransaction(List<StockDelta> batch) {
+		Map<InventoryWarehouseId, List<StockDelta>> byEntry = new LinkedHashMap<>();
+		for (StockDelta delta : batch) {
+			byEntry.computeIfAbsent(new InventoryWarehouseId(delta.inventoryId, delta.warehouseId),
+					key -> new ArrayList<>(2)).add(delta);
+		}
+
+		List<StockDelta> changed = new ArrayList<>(batch.size());
+		transactionTemplate.executeWithoutResult(status -> {
+			// entries are changed one after the other, so that loading the next one flushes the
+			// previous one only once
+			for (Map.Entry<InventoryWarehouseId, List<StockDelta>> entry : byEntry.entrySet()) {
+				long invId = entry.getKey().getInventoryId();
+				long id = entry.getKey().getWarehouseId();
+				InventoryWarehouse inventoryWarehouse = inventoryWarehouseRepository.findByIdsForUpdate(invId, id);
+				if (inventoryWarehouse == null) {
+					continue;
+				}
+				for (StockDelta delta : entry.getValue()) {
+					int previousQuantity = inventoryWarehouse.getTotalQuantity();
+					int newQuantity = Math.max(0, previousQuantity + delta.quantity);
+					inventoryWarehouse.setTotalQuantity(newQuantity);
+					eventPublisher.publishEvent(new StockChangeEvent(StockChangeEvent.Type.ADJUSTED, invId, id,
+							newQuantity, previousQuantity));
+					changed.add(delta);
+				}
+			}
+			changeVersionTracker.inventoryChanged();
+		});
+		// set once committed, since a failed commit fails every change of the batch
+		for (StockDelta delta : changed) {
+			delta.applied = true;
+		}
+	}
+
+	/**
+	 * Change of quantity of inventory in a warehouse, negative for decreases.
+	 */
+	private static final class StockDelta {
+		private final long inventoryId;
+		private final long warehouseId;
+		private final int quantity;
+		private boolean applied;
+		private RuntimeException failure;
+
+		private StockDelta(long inventoryId, long warehouseId, int quantity) {
+			this.inventoryId = inventoryId;
+			this.warehouseId = warehouseId;
+			this.quantity = quantity;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.shopify.services;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Class that represents a configuration registering the adaptive concurrency
+ * limit around the inventory and warehouse services.
+ * 
+ * @author stephen
+ *
+ */
+@Configuration
+public class ConcurrencyLimitConfiguration {
+
+	@Bean
+	public static ConcurrencyLimitPostProcessor concurrencyLimitPostProcessor(
+			@Lazy ConcurrencyLimitService concurrencyLimitService) {
+		return new ConcurrencyLimitPostProcessor(concurrencyLimitService);
+	}
+}
@@ -0,0 +1,21 @@
+package com.shopify.services;
+
+/**
+ * Exception thrown when a service operation is turned away by the adaptive
+ * concurrency limit.
+ * 
+ * @author stephen
+ *
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructs an instance of this class with specified message.
+	 * 
+	 * @param message detail message
+	 */
+	public ConcurrencyLimitExceededException(String message) {
+		super(message);
+	}
+}
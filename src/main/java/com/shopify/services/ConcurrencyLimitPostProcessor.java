@@ -0,0 +1,97 @@
+package com.shopify.services;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Class that represents a bean post processor putting the operations of the
+ * inventory and warehouse services under the adaptive concurrency limit. The
+ * limit is applied outside of transactions, so operations that are turned away
+ * never take a connection and measured latency includes the commit. Operations
+ * called from within another limited operation are not limited again.
+ * 
+ * @author stephen
+ *
+ */
+public class ConcurrencyLimitPostProcessor extends AbstractAdvisingBeanPostProcessor {
+	private static final long serialVersionUID = 1L;
+
+	private static final List<Class<?>> LIMITED_SERVICES = Arrays.asList(InventoryService.class,
+			WarehouseService.class);
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 * 
+	 * @param concurrencyLimitService service deciding on admission, resolved
+	 *                                lazily since post processors are created
+	 *                                before other beans
+	 */
+	public ConcurrencyLimitPostProcessor(ConcurrencyLimitService concurrencyLimitService) {
+		this.advisor = new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return findServiceMethod(method, targetClass) != null;
+			}
+		}, new Interceptor(concurrencyLimitService));
+		setBeforeExistingAdvisors(true);
+	}
+
+	/**
+	 * Find the method of a limited service interface that a method implements.
+	 */
+	private static Method findServiceMethod(Method method, Class<?> targetClass) {
+		for (Class<?> service : LIMITED_SERVICES) {
+			if (service.isAssignableFrom(targetClass)) {
+				Method serviceMethod = ReflectionUtils.findMethod(service, method.getName(),
+						method.getParameterTypes());
+				if (serviceMethod != null) {
+					return serviceMethod;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static final class Interceptor implements MethodInterceptor {
+		private final ThreadLocal<Boolean> active = new ThreadLocal<>();
+		private final ConcurrencyLimitService concurrencyLimitService;
+
+		private Interceptor(ConcurrencyLimitService concurrencyLimitService) {
+			this.concurrencyLimitService = concurrencyLimitService;
+		}
+
+		@Override
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			if (active.get() != null) {
+				return invocation.proceed();
+			}
+			ConcurrencyLimited.Priority priority = ConcurrencyLimited.Priority.NORMAL;
+			Method serviceMethod = findServiceMethod(invocation.getMethod(), invocation.getThis().getClass());
+			ConcurrencyLimited annotation = serviceMethod == null ? null
+					: AnnotationUtils.findAnnotation(serviceMethod, ConcurrencyLimited.class);
+			if (annotation != null) {
+				priority = annotation.value();
+			}
+
+			long start = concurrencyLimitService.acquire(priority);
+			boolean succeeded = false;
+			active.set(Boolean.TRUE);
+			try {
+				Object result = invocation.proceed();
+				succeeded = true;
+				return result;
+			} finally {
+				active.remove();
+				concurrencyLimitService.release(priority, start, succeeded);
+			}
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.shopify.services;
+
+import com.shopify.dto.ConcurrencyLimitStatisticsDTO;
+
+/**
+ * Interface that provides a contract for the adaptive concurrency limit applied
+ * to inventory and warehouse service operations. The limit follows the latency
+ * of the operations, which is dominated by the database, and operations of
+ * lower priority are turned away first as it shrinks.
+ * 
+ * @author stephen
+ *
+ */
+public interface ConcurrencyLimitService {
+	/**
+	 * Admit an operation.
+	 * 
+	 * @param priority priority of operation
+	 * @return start time of operation, to be passed to release
+	 * @throws ConcurrencyLimitExceededException if the operation is turned away
+	 */
+	public long acquire(ConcurrencyLimited.Priority priority);
+
+	/**
+	 * Release an admitted operation. The latency of bulk operations grows with
+	 * the amount of data they return rather than with load, so it is not
+	 * measured.
+	 * 
+	 * @param priority  priority the operation was admitted with
+	 * @param start     start time returned when admitted
+	 * @param succeeded false if the operation failed, in which case its latency
+	 *                  is not measured
+	 */
+	public void release(ConcurrencyLimited.Priority priority, long start, boolean succeeded);
+
+	/**
+	 * Get the current limit, latency and rejection counts.
+	 * 
+	 * @return concurrency limit statistics
+	 */
+	public ConcurrencyLimitStatisticsDTO getStatistics();
+}
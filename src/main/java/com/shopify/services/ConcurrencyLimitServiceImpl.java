@@ -0,0 +1,90 @@
+package com.shopify.services;
+
+import com.shopify.dto.ConcurrencyLimitStatisticsDTO;
+import com.shopify.util.GradientLimiter;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the ConcurrencyLimitService
+ * interface backed by a {@link GradientLimiter}. Critical operations may use
+ * the whole limit, normal ones most of it and bulk ones half, so listings are
+ * the first to be turned away. Only the latency of critical and normal
+ * operations moves the limit.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class ConcurrencyLimitServiceImpl implements ConcurrencyLimitService {
+
+	@Value("${concurrency.initial-limit:20}")
+	private int initialLimit;
+
+	@Value("${concurrency.min-limit:4}")
+	private int minLimit;
+
+	@Value("${concurrency.max-limit:200}")
+	private int maxLimit;
+
+	@Value("${concurrency.normal-share:0.9}")
+	private double normalShare;
+
+	@Value("${concurrency.bulk-share:0.5}")
+	private double bulkShare;
+
+	private GradientLimiter limiter;
+
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder rejectedCritical = new LongAdder();
+	private final LongAdder rejectedNormal = new LongAdder();
+	private final LongAdder rejectedBulk = new LongAdder();
+
+	@PostConstruct
+	void init() {
+		limiter = new GradientLimiter(initialLimit, minLimit, maxLimit);
+	}
+
+	@Override
+	public long acquire(ConcurrencyLimited.Priority priority) {
+		double share = priority == ConcurrencyLimited.Priority.CRITICAL ? 1.0
+				: priority == ConcurrencyLimited.Priority.NORMAL ? normalShare : bulkShare;
+		if (!limiter.tryAcquire(share)) {
+			switch (priority) {
+			case CRITICAL:
+				rejectedCritical.increment();
+				break;
+			case NORMAL:
+				rejectedNormal.increment();
+				break;
+			default:
+				rejectedBulk.increment();
+			}
+			throw new ConcurrencyLimitExceededException("Concurrency limit reached for " + priority + " operations");
+		}
+		return System.nanoTime();
+	}
+
+	@Override
+	public void release(ConcurrencyLimited.Priority priority, long start, boolean succeeded) {
+		boolean measured = succeeded && priority != ConcurrencyLimited.Priority.BULK;
+		limiter.release(measured ? System.nanoTime() - start : -1);
+		completed.increment();
+	}
+
+	@Override
+	public ConcurrencyLimitStatisticsDTO getStatistics() {
+		ConcurrencyLimitStatisticsDTO result = new ConcurrencyLimitStatisticsDTO();
+		result.setLimit(limiter.getLimit());
+		result.setInFlight(limiter.getInFlight());
+		result.setShortLatencyMillis(limiter.getShortRttNanos() / 1e6);
+		result.setLongLatencyMillis(limiter.getLongRttNanos() / 1e6);
+		result.setCompleted(completed.sum());
+		result.setRejectedCritical(rejectedCritical.sum());
+		result.setRejectedNormal(rejectedNormal.sum());
+		result.setRejectedBulk(rejectedBulk.sum());
+		return result;
+	}
+}
@@ -0,0 +1,43 @@
+package com.shopify.services;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation that sets the priority of a service operation under the adaptive
+ * concurrency limit. Operations without it have normal priority.
+ * 
+ * @author stephen
+ *
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConcurrencyLimited {
+	/**
+	 * Priority of operations, from first to last turned away when the limit is
+	 * reached.
+	 */
+	public enum Priority {
+		/**
+		 * Listings and other reads of many rows.
+		 */
+		BULK,
+		/**
+		 * Everything else.
+		 */
+		NORMAL,
+		/**
+		 * Stock decrements, which must not be lost to listings.
+		 */
+		CRITICAL
+	}
+
+	/**
+	 * Priority of operation.
+	 * 
+	 * @return priority
+	 */
+	public Priority value();
+}
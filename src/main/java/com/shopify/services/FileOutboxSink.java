@@ -0,0 +1,63 @@
+package com.shopify.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopify.model.OutboxEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class that represents an outbox sink appending events to a local file, one
+ * json document per line. A batch is written with a single write and forced to
+ * disk before it is acknowledged.
+ * 
+ * @author stephen
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+	@Value("${outbox.file.path:outbox-events.jsonl}")
+	private String path;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private FileChannel channel;
+
+	@PostConstruct
+	void open() throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+	}
+
+	@PreDestroy
+	void close() throws IOException {
+		channel.close();
+	}
+
+	@Override
+	public synchronized void deliver(List<OutboxEvent> events) throws IOException {
+		ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 128);
+		for (OutboxEvent event : events) {
+			lines.write(objectMapper.writeValueAsBytes(event));
+			lines.write('\n');
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+}
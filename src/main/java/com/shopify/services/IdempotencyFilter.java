@@ -0,0 +1,280 @@
+package com.shopify.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopify.dto.ResponseDTO;
+import com.shopify.model.IdempotencyRecord;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Class that represents a filter making api requests that change data
+ * idempotent when they carry an Idempotency-Key header. The first request with
+ * a key is executed and its response stored through the
+ * {@link IdempotencyService}; retries with the same key are answered with the
+ * stored response and an Idempotent-Replayed header without being executed.
+ * Keys are stored per client, as told apart by the
+ * {@link ClientIdentityResolver}, so clients cannot collide with or replay each
+ * other's keys.
+ * 
+ * A key may only be reused for the same method, path, parameters and body;
+ * other requests with it are answered with 422, and retries while the first
+ * request is still in progress with 409. Bodies other than forms, whose fields
+ * are already among the parameters, are read ahead of the request to be hashed,
+ * into memory or, if large, such as stock imports, into a temporary file.
+ * Server errors, rate limits and conflicts are not stored, so they can be
+ * retried with the same key.
+ * 
+ * @author stephen
+ *
+ */
+@Component
+@Order(AdmissionControlFilter.ORDER + 1)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+	private static final int MAX_KEY_LENGTH = 128;
+
+	private static final int MEMORY_THRESHOLD = 64 * 1024;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private ClientIdentityResolver clientIdentityResolver;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${idempotency.enabled:true}")
+	private boolean enabled;
+
+	@Value("${idempotency.header:Idempotency-Key}")
+	private String keyHeader;
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return !enabled || !path.startsWith("/api/")
+				|| Arrays.asList("GET", "HEAD", "OPTIONS").contains(request.getMethod())
+				|| request.getHeader(keyHeader) == null;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String key = request.getHeader(keyHeader);
+		if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+			reject(response, 400, "Invalid idempotency key");
+			return;
+		}
+		// keys are chosen by clients, so one client must not be able to replay another's
+		String clientHash = DigestUtils
+				.md5DigestAsHex(clientIdentityResolver.resolve(request).getBytes(StandardCharsets.UTF_8));
+		String scopedKey = clientHash + ":" + key;
+		BufferedBodyRequest buffered = isForm(request) ? null : new BufferedBodyRequest(request);
+		if (buffered != null) {
+			request = buffered;
+		}
+		String fingerprint = fingerprint(request, buffered == null ? null : buffered.hash);
+
+		IdempotencyRecord existing = null;
+		ContentCachingResponseWrapper wrapper = null;
+		boolean completed = false;
+		try {
+			existing = idempotencyService.claim(scopedKey, fingerprint);
+			if (existing != null) {
+				if (!existing.getFingerprint().equals(fingerprint)) {
+					reject(response, 422, "Idempotency key was used for a different request");
+				} else if (existing.getStatus() == 0) {
+					reject(response, 409, "Request with this idempotency key is in progress");
+				} else {
+					replay(response, existing);
+				}
+				return;
+			}
+
+			wrapper = new ContentCachingResponseWrapper(response);
+			filterChain.doFilter(request, wrapper);
+			int status = wrapper.getStatus();
+			if (status < 500 && status != 409 && status != 429) {
+				idempotencyService.complete(new IdempotencyRecord(scopedKey, fingerprint, status,
+						wrapper.getContentType(), wrapper.getContentAsByteArray()));
+				completed = true;
+			}
+		} finally {
+			if (existing == null && !completed) {
+				idempotencyService.abandon(scopedKey);
+			}
+			if (wrapper != null) {
+				wrapper.copyBodyToResponse();
+			}
+			if (buffered != null) {
+				buffered.delete();
+			}
+		}
+	}
+
+	/**
+	 * Hash the method, path, parameters and body hash of a request, with
+	 * parameters in name order so that their order does not matter.
+	 */
+	private String fingerprint(HttpServletRequest request, String bodyHash) {
+		StringBuilder text = new StringBuilder(request.getMethod()).append(' ').append(request.getRequestURI());
+		for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+			text.append('\n').append(parameter.getKey()).append('=')
+					.append(String.join("\u0000", parameter.getValue()));
+		}
+		if (bodyHash != null) {
+			text.append("\n\u0000").append(bodyHash);
+		}
+		return DigestUtils.md5DigestAsHex(text.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static boolean isForm(HttpServletRequest request) {
+		String contentType = request.getContentType();
+		return contentType != null && (contentType.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+				|| contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE));
+	}
+
+	private void replay(HttpServletResponse response, IdempotencyRecord record) throws IOException {
+		response.setStatus(record.getStatus());
+		response.setHeader("Idempotent-Replayed", "true");
+		if (record.getContentType() != null) {
+			response.setContentType(record.getContentType());
+		}
+		response.getOutputStream().write(record.getBody());
+	}
+
+	private void reject(HttpServletResponse response, int status, String message) throws IOException {
+		response.setStatus(status);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), new ResponseDTO(message, true));
+	}
+
+	/**
+	 * Request whose body has been read ahead and hashed, and is read again from
+	 * memory or from a temporary file.
+	 */
+	private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+		private final String hash;
+		private byte[] body;
+		private Path file;
+
+		BufferedBodyRequest(HttpServletRequest request) throws IOException {
+			super(request);
+			MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("MD5 is not available", e);
+			}
+			ByteArrayOutputStream memory = new ByteArrayOutputStream();
+			OutputStream out = memory;
+			try (InputStream in = new DigestInputStream(request.getInputStream(), digest)) {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					if (file == null && memory.size() + read > MEMORY_THRESHOLD) {
+						file = Files.createTempFile("idempotent-body", ".tmp");
+						out = Files.newOutputStream(file);
+						memory.writeTo(out);
+						memory = null;
+					}
+					out.write(buffer, 0, read);
+				}
+			} catch (IOException | RuntimeException e) {
+				out.close();
+				delete();
+				throw e;
+			}
+			out.close();
+			body = memory == null ? null : memory.toByteArray();
+			hash = Base64.getEncoder().encodeToString(digest.digest());
+		}
+
+		@Override
+		public ServletInputStream getInputStream() throws IOException {
+			InputStream in = file == null ? new ByteArrayInputStream(body) : Files.newInputStream(file);
+			return new ServletInputStream() {
+				private boolean finished;
+
+				@Override
+				public int read() throws IOException {
+					int value = in.read();
+					finished = value == -1;
+					return value;
+				}
+
+				@Override
+				public int read(byte[] buffer, int offset, int length) throws IOException {
+					int read = in.read(buffer, offset, length);
+					finished = read == -1;
+					return read;
+				}
+
+				@Override
+				public void close() throws IOException {
+					in.close();
+				}
+
+				@Override
+				public boolean isFinished() {
+					return finished;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setReadListener(ReadListener readListener) {
+					throw new UnsupportedOperationException("Body was already read");
+				}
+			};
+		}
+
+		@Override
+		public BufferedReader getReader() throws IOException {
+			String encoding = getCharacterEncoding();
+			return new BufferedReader(new InputStreamReader(getInputStream(),
+					encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding)));
+		}
+
+		void delete() throws IOException {
+			if (file != null) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+}
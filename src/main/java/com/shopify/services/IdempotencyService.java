@@ -0,0 +1,47 @@
+package com.shopify.services;
+
+import com.shopify.model.IdempotencyRecord;
+
+/**
+ * Interface that provides a contract for deduplicating requests sent with an
+ * idempotency key. Responses are kept in a bounded in-memory store for recent
+ * keys and in the database for durability, and both expire after a fixed time.
+ * 
+ * @author stephen
+ *
+ */
+public interface IdempotencyService {
+	/**
+	 * Claim a key for a request. Recent keys are answered from memory; others
+	 * cost one insert, and one lookup by primary key if the key is taken.
+	 * 
+	 * @param key         idempotency key sent by the client
+	 * @param fingerprint hash of the request
+	 * @return null if the caller claimed the key and must execute the request,
+	 *         otherwise the record of the request the key was first sent with,
+	 *         with a status of 0 if it is still in progress
+	 */
+	public IdempotencyRecord claim(String key, String fingerprint);
+
+	/**
+	 * Store the response to a claimed key, ending its claim.
+	 * 
+	 * @param record response to replay for the key
+	 */
+	public void complete(IdempotencyRecord record);
+
+	/**
+	 * Release a claimed key without storing a response, so that the request can
+	 * be retried.
+	 * 
+	 * @param key idempotency key sent by the client
+	 */
+	public void abandon(String key);
+
+	/**
+	 * Remove expired records from memory and the database.
+	 * 
+	 * @return number of records deleted from the database
+	 */
+	public int purge();
+}
@@ -0,0 +1,156 @@
+package com.shopify.services;
+
+import com.shopify.model.IdempotencyRecord;
+import com.shopify.repository.IdempotencyRecordRepository;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the IdempotencyService interface.
+ * 
+ * A key is claimed by inserting its row, with a status of 0, before the request
+ * is executed, so the primary key index is what lets only one of concurrent
+ * retries through, on any instance. The insert skips a taken key instead of
+ * failing on it. The row is updated with the response once the request has
+ * completed, or deleted if it failed. A claim left behind by a crash is taken
+ * over once it is older than the claim timeout.
+ * 
+ * A new key therefore costs two statements by primary key, the claim and its
+ * completion, rather than the single lookup a check after the request would
+ * take; checking only afterwards would let concurrent retries of a request,
+ * on different instances, all execute it. Each is a single statement, and
+ * retries answered from memory cost none.
+ * 
+ * Recent records are also kept in a map in insertion order, which is also
+ * creation order, so that both the oldest record beyond the size bound and
+ * expired records are removed from its head, and retries on the same instance
+ * are answered without a query.
+ * 
+ * The service is never initialized lazily, since the purge is only scheduled
+ * once it has been created.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+@Lazy(false)
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+	private static final Logger logger = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+
+	private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Value("${idempotency.ttl-ms:86400000}")
+	private long ttlMillis;
+
+	@Value("${idempotency.claim-timeout-ms:60000}")
+	private long claimTimeoutMillis;
+
+	@Value("${idempotency.max-entries:100000}")
+	private int maxEntries;
+
+	private final Map<String, IdempotencyRecord> recent = new LinkedHashMap<String, IdempotencyRecord>(256, 0.75f,
+			false) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	@Override
+	public IdempotencyRecord claim(String key, String fingerprint) {
+		long now = System.currentTimeMillis();
+		long cutoff = now - ttlMillis;
+		synchronized (recent) {
+			IdempotencyRecord existing = recent.get(key);
+			if (existing != null && existing.getCreatedAt() >= cutoff) {
+				return existing;
+			}
+			recent.remove(key);
+		}
+
+		for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+			IdempotencyRecord claimed = new IdempotencyRecord(key, fingerprint, 0, null, null);
+			if (idempotencyRecordRepository.insertIfAbsent(claimed)) {
+				remember(claimed);
+				return null;
+			}
+			IdempotencyRecord stored = idempotencyRecordRepository.findById(key).orElse(null);
+			if (stored == null) {
+				continue;
+			}
+			if (stored.getCreatedAt() < cutoff
+					|| (stored.getStatus() == 0 && stored.getCreatedAt() < now - claimTimeoutMillis)) {
+				// expired, or claimed by a request that never completed
+				idempotencyRecordRepository.deleteCreatedAt(key, stored.getCreatedAt());
+				continue;
+			}
+			if (stored.getStatus() != 0) {
+				remember(stored);
+			}
+			return stored;
+		}
+		// keeps being claimed and released by others, so report it as in progress
+		return new IdempotencyRecord(key, fingerprint, 0, null, null);
+	}
+
+	@Override
+	public void complete(IdempotencyRecord record) {
+		if (idempotencyRecordRepository.completeClaim(record.getIdempotencyKey(), record.getStatus(),
+				record.getContentType(), record.getBody()) == 0) {
+			logger.warn("Claim of idempotency key {} expired before its request completed",
+					record.getIdempotencyKey());
+		}
+		remember(record);
+	}
+
+	@Override
+	public void abandon(String key) {
+		synchronized (recent) {
+			IdempotencyRecord existing = recent.get(key);
+			if (existing != null && existing.getStatus() == 0) {
+				recent.remove(key);
+			}
+		}
+		idempotencyRecordRepository.deleteClaim(key);
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+	public int purge() {
+		long cutoff = System.currentTimeMillis() - ttlMillis;
+		synchronized (recent) {
+			Iterator<IdempotencyRecord> records = recent.values().iterator();
+			while (records.hasNext()) {
+				IdempotencyRecord record = records.next();
+				if (record.getCreatedAt() >= cutoff) {
+					break;
+				}
+				if (record.getStatus() != 0) {
+					records.remove();
+				}
+			}
+		}
+		return idempotencyRecordRepository.deleteCreatedBefore(cutoff);
+	}
+
+	private void remember(IdempotencyRecord record) {
+		synchronized (recent) {
+			recent.remove(record.getIdempotencyKey());
+			recent.put(record.getIdempotencyKey(), record);
+		}
+	}
+}
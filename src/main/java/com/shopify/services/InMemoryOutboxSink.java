@@ -0,0 +1,46 @@
+package com.shopify.services;
+
+import com.shopify.model.OutboxEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Class that represents an outbox sink keeping the most recently delivered
+ * events in memory. Used when no other sink is configured, mainly for tests.
+ * 
+ * @author stephen
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOutboxSink implements OutboxSink {
+
+	@Value("${outbox.memory.capacity:10000}")
+	private int capacity;
+
+	private final Deque<OutboxEvent> delivered = new ArrayDeque<>();
+
+	@Override
+	public synchronized void deliver(List<OutboxEvent> events) {
+		for (OutboxEvent event : events) {
+			if (delivered.size() == capacity) {
+				delivered.removeFirst();
+			}
+			delivered.addLast(event);
+		}
+	}
+
+	/**
+	 * Get delivered events, oldest first.
+	 * 
+	 * @return copy of delivered events
+	 */
+	public synchronized List<OutboxEvent> getDelivered() {
+		return new ArrayList<>(delivered);
+	}
+}
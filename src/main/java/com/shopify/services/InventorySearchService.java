@@ -0,0 +1,44 @@
+package com.shopify.services;
+
+import com.shopify.dto.InventorySearchDTO;
+import java.util.List;
+
+/**
+ * Interface that provides a contract for searching inventory by name without
+ * querying the database. The index is kept up to date from inventory changes
+ * and can be rebuilt from the database.
+ * 
+ * @author stephen
+ *
+ */
+public interface InventorySearchService {
+	/**
+	 * Find inventory whose name starts with a prefix, ignoring case, in name
+	 * order.
+	 * 
+	 * @param prefix prefix of name
+	 * @param page   zero based page number
+	 * @param size   page size
+	 * @return matching inventory
+	 */
+	public List<InventorySearchDTO> typeahead(String prefix, int page, int size);
+
+	/**
+	 * Find inventory whose name contains every word of a query, ignoring case.
+	 * The last word also matches words it is a prefix of, unless the query ends
+	 * with a space.
+	 * 
+	 * @param query words to search for
+	 * @param page  zero based page number
+	 * @param size  page size
+	 * @return matching inventory
+	 */
+	public List<InventorySearchDTO> search(String query, int page, int size);
+
+	/**
+	 * Replace the index with the inventory currently in the database.
+	 * 
+	 * @return number of inventory indexed
+	 */
+	public int rebuild();
+}
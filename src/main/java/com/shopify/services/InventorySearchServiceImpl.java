@@ -0,0 +1,187 @@
+package com.shopify.services;
+
+import com.shopify.dto.InventorySearchDTO;
+import com.shopify.event.InventoryChangeEvent;
+import com.shopify.repository.InventoryRepository;
+import com.shopify.util.InventorySearchIndex;
+import com.shopify.util.PendingChanges;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the InventorySearchService
+ * interface.
+ * 
+ * Changes are applied to the index as soon as they are made, so a search in the
+ * same transaction sees them, and undone if that transaction rolls back. The
+ * index is built from the database once the application is ready; searches
+ * before that return partial results.
+ * 
+ * A rebuild reads the database into a new index without holding the lock that
+ * changes take, so changes are not held up while it runs. The items changed
+ * meanwhile are then copied over from the current index, and the new index
+ * replaces it.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class InventorySearchServiceImpl implements InventorySearchService {
+
+	private static final Logger logger = LoggerFactory.getLogger(InventorySearchServiceImpl.class);
+
+	@Autowired
+	private InventoryRepository inventoryRepository;
+
+	@Value("${search.rebuild.batch-size:10000}")
+	private int batchSize;
+
+	private volatile InventorySearchIndex index = new InventorySearchIndex();
+
+	private final Object rebuildLock = new Object();
+
+	/**
+	 * Ids of items changed since a rebuild started, or null when no rebuild is
+	 * running. Guarded by this service's monitor, like changes to the index.
+	 */
+	private Set<Long> changedDuringRebuild;
+
+	/**
+	 * Items changed by each transaction, with the entries they had before it.
+	 */
+	private final PendingChanges<Long, PendingChange> pendingChanges = new PendingChanges<>(this::undo);
+
+	@Override
+	public List<InventorySearchDTO> typeahead(String prefix, int page, int size) {
+		return index.findByPrefix(prefix, page * size, size);
+	}
+
+	@Override
+	public List<InventorySearchDTO> search(String query, int page, int size) {
+		return index.findByWords(query, page * size, size);
+	}
+
+	/**
+	 * Build the index once the application has started.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public void onApplicationReady() {
+		long start = System.nanoTime();
+		int count = rebuild();
+		logger.info("Indexed {} inventory names in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	@Override
+	public int rebuild() {
+		synchronized (rebuildLock) {
+			synchronized (this) {
+				changedDuringRebuild = new HashSet<>();
+			}
+			InventorySearchIndex rebuilt = new InventorySearchIndex();
+			try {
+				long afterId = 0;
+				List<InventorySearchDTO> page;
+				do {
+					page = inventoryRepository.findSearchPage(afterId, PageRequest.of(0, batchSize));
+					for (InventorySearchDTO item : page) {
+						rebuilt.put(item);
+					}
+					if (!page.isEmpty()) {
+						afterId = page.get(page.size() - 1).getId();
+					}
+				} while (page.size() == batchSize);
+
+				synchronized (this) {
+					// items changed while pages were read may have been read before the change
+					for (long id : changedDuringRebuild) {
+						InventorySearchDTO current = index.get(id);
+						if (current == null) {
+							rebuilt.remove(id);
+						} else {
+							rebuilt.put(current);
+						}
+					}
+					index = rebuilt;
+				}
+			} finally {
+				synchronized (this) {
+					changedDuringRebuild = null;
+				}
+			}
+			return rebuilt.size();
+		}
+	}
+
+	/**
+	 * Apply a change of inventory to the index.
+	 * 
+	 * @param event inventory change
+	 */
+	@EventListener
+	public synchronized void onInventoryChange(InventoryChangeEvent event) {
+		long id = event.getInventoryId();
+		InventorySearchDTO previous = index.get(id);
+		InventorySearchDTO current = null;
+		if (event.getType() == InventoryChangeEvent.Type.DELETED) {
+			index.remove(id);
+		} else {
+			current = new InventorySearchDTO(id, event.getName(), event.getPrice());
+			index.put(current);
+		}
+
+		if (changedDuringRebuild != null) {
+			changedDuringRebuild.add(id);
+		}
+
+		Map<Long, PendingChange> changes = pendingChanges.current();
+		if (changes != null) {
+			changes.computeIfAbsent(id, key -> new PendingChange(previous)).applied = current;
+		}
+	}
+
+	/**
+	 * Restore the entries items had before a rolled back transaction, unless an
+	 * item has been changed again since.
+	 */
+	private synchronized void undo(Map<Long, PendingChange> changes) {
+		for (Map.Entry<Long, PendingChange> entry : changes.entrySet()) {
+			PendingChange change = entry.getValue();
+			if (index.get(entry.getKey()) != change.applied) {
+				continue;
+			}
+			if (change.original == null) {
+				index.remove(entry.getKey());
+			} else {
+				index.put(change.original);
+			}
+			if (changedDuringRebuild != null) {
+				changedDuringRebuild.add(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Entry an item had before a transaction and the entry it last changed it to.
+	 */
+	private static class PendingChange {
+		private final InventorySearchDTO original;
+		private InventorySearchDTO applied;
+
+		private PendingChange(InventorySearchDTO original) {
+			this.original = original;
+		}
+	}
+}
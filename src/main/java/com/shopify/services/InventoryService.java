@@ -4,7 +4,8 @@ import com.shopify.model.Inventory;
 
 /**
  * Interface that provides a contract for handling business logic related to
- * inventory.
+ * inventory. Operations run under the adaptive concurrency limit with normal
+ * priority.
  * 
  * @author stephen
  *
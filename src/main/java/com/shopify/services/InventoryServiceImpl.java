@@ -1,9 +1,16 @@
 package com.shopify.services;
 
+import com.shopify.event.InventoryChangeEvent;
+import com.shopify.event.StockChangeEvent;
 import com.shopify.model.Inventory;
+import com.shopify.model.InventoryWarehouse;
 import com.shopify.repository.InventoryRepository;
+import com.shopify.repository.InventoryWarehouseRepository;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Class that represents an implementation of the InventoryService interface.
@@ -17,16 +24,31 @@ public class InventoryServiceImpl implements InventoryService {
 	@Autowired
 	private InventoryRepository inventoryRepository;
 
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Autowired
+	private ChangeVersionTracker changeVersionTracker;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	@Override
+	@Transactional
 	public Inventory createInventory(String name, double price) {
 		Inventory inventory = new Inventory(name, price);
 		inventoryRepository.save(inventory);
+		changeVersionTracker.inventoryChanged();
+		eventPublisher.publishEvent(new InventoryChangeEvent(InventoryChangeEvent.Type.CREATED,
+				inventory.getInventoryId(), name, price, price));
 		return inventory;
 	}
 
 	@Override
+	@Transactional
 	public void updateInventory(long id, Double price, String name) {
 		Inventory inv = inventoryRepository.findById(id).orElse(null);
+		double previousPrice = inv.getPrice();
 		if (name != null) {
 			inv.setInventoryName(name);
 		}
@@ -34,12 +56,29 @@ public class InventoryServiceImpl implements InventoryService {
 			inv.setPrice(price);
 		}
 		inventoryRepository.save(inv);
-
+		changeVersionTracker.inventoryChanged();
+		eventPublisher.publishEvent(new InventoryChangeEvent(InventoryChangeEvent.Type.UPDATED, id,
+				inv.getInventoryName(), inv.getPrice(), previousPrice));
 	}
 
 	@Override
+	@Transactional
 	public void deleteInventory(long id) {
 		Inventory inventory = inventoryRepository.findById(id).orElse(null);
+		// Deleting inventory removes it from every warehouse. Placements are removed
+		// as entities rather than left to the database cascade, since a placement
+		// still managed by this transaction would keep the inventory from being
+		// deleted.
+		List<InventoryWarehouse> placements = inventoryWarehouseRepository.findEntriesByInventoryId(id);
+		for (InventoryWarehouse placement : placements) {
+			eventPublisher.publishEvent(new StockChangeEvent(StockChangeEvent.Type.REMOVED, id,
+					placement.getId().getWarehouseId(), 0, placement.getTotalQuantity()));
+		}
+		inventoryWarehouseRepository.deleteAll(placements);
 		inventoryRepository.delete(inventory);
+		inventoryRepository.flush();
+		changeVersionTracker.inventoryChanged();
+		eventPublisher.publishEvent(new InventoryChangeEvent(InventoryChangeEvent.Type.DELETED, id,
+				inventory.getInventoryName(), inventory.getPrice(), inventory.getPrice()));
 	}
 }
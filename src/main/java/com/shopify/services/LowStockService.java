@@ -0,0 +1,31 @@
+package com.shopify.services;
+
+import com.shopify.dto.LowStockDTO;
+import java.util.List;
+
+/**
+ * Interface that provides a contract for reorder thresholds and for tracking
+ * which inventory is below its threshold in which warehouse.
+ * 
+ * @author stephen
+ *
+ */
+public interface LowStockService {
+	/**
+	 * Set or clear the reorder threshold of an inventory in a warehouse.
+	 * 
+	 * @param id        id of warehouse
+	 * @param invId     id of inventory
+	 * @param threshold quantity below which inventory is low, or null to stop
+	 *                  tracking it
+	 */
+	public void setThreshold(long id, long invId, Integer threshold);
+
+	/**
+	 * Get inventory currently below its threshold, largest shortfall first.
+	 * 
+	 * @param limit maximum number of entries to return
+	 * @return low inventory
+	 */
+	public List<LowStockDTO> getLowStock(int limit);
+}
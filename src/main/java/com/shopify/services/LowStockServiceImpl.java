@@ -0,0 +1,199 @@
+package com.shopify.services;
+
+import com.shopify.dto.LowStockDTO;
+import com.shopify.event.InventoryChangeEvent;
+import com.shopify.event.LowStockEvent;
+import com.shopify.event.StockChangeEvent;
+import com.shopify.event.StockImportedEvent;
+import com.shopify.model.InventoryWarehouse;
+import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.util.PendingChanges;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Class that represents an implementation of the LowStockService interface.
+ * 
+ * Quantity and threshold of every inventory with a threshold are kept in
+ * memory, and inventory below its threshold is also kept in a set sorted by
+ * shortfall. Each stock change only looks at the entry it changes, so finding
+ * crossings never scans, and listing the k lowest entries only reads k entries.
+ * A {@link LowStockEvent} is published when an entry goes from not low to low;
+ * it is published again only after the entry has recovered. Changes are undone
+ * if their transaction rolls back.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class LowStockServiceImpl implements LowStockService {
+
+	private static final Comparator<LowStockDTO> BY_SHORTFALL = Comparator
+			.comparingInt(LowStockDTO::getShortfall).reversed().thenComparingLong(LowStockDTO::getInventoryId)
+			.thenComparingLong(LowStockDTO::getWarehouseId);
+
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	/**
+	 * Tracked entries by inventory id and then warehouse id.
+	 */
+	private final Map<Long, Map<Long, LowStockDTO>> tracked = new ConcurrentHashMap<>();
+	private final NavigableSet<LowStockDTO> low = new ConcurrentSkipListSet<>(BY_SHORTFALL);
+
+	/**
+	 * Entries changed by each transaction as they were before it.
+	 */
+	private final PendingChanges<Long, Map<Long, LowStockDTO>> pendingChanges = new PendingChanges<>(this::restore);
+
+	@Override
+	@Transactional
+	public void setThreshold(long id, long invId, Integer threshold) {
+		InventoryWarehouse inventoryWarehouse = inventoryWarehouseRepository.findByIds(invId, id);
+		inventoryWarehouse.setReorderThreshold(threshold);
+		inventoryWarehouseRepository.save(inventoryWarehouse);
+		update(invId, id, threshold == null ? null
+				: new LowStockDTO(invId, id, inventoryWarehouse.getTotalQuantity(), threshold));
+	}
+
+	@Override
+	public List<LowStockDTO> getLowStock(int limit) {
+		List<LowStockDTO> result = new ArrayList<>(Math.min(limit, 64));
+		for (LowStockDTO entry : low) {
+			if (result.size() == limit) {
+				break;
+			}
+			result.add(entry);
+		}
+		return result;
+	}
+
+	/**
+	 * Load thresholds once the application has started.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public synchronized void onApplicationReady() {
+		for (LowStockDTO entry : inventoryWarehouseRepository.findAllWithThreshold()) {
+			replace(entry.getInventoryId(), entry.getWarehouseId(), entry, false);
+		}
+	}
+
+	/**
+	 * Reload quantities after a bulk import. No alerts are published for entries
+	 * the import made low, since the import has no transaction left to record
+	 * them in.
+	 * 
+	 * @param event bulk import
+	 */
+	@EventListener
+	public void onStockImported(StockImportedEvent event) {
+		onApplicationReady();
+	}
+
+	/**
+	 * Apply a change of quantity to the tracked entry, if any.
+	 * 
+	 * @param event stock change
+	 */
+	@EventListener
+	public synchronized void onStockChange(StockChangeEvent event) {
+		LowStockDTO current = get(event.getInventoryId(), event.getWarehouseId());
+		if (current == null) {
+			return;
+		}
+		if (event.getType() == StockChangeEvent.Type.REMOVED) {
+			update(event.getInventoryId(), event.getWarehouseId(), null);
+		} else if (event.getType() == StockChangeEvent.Type.ADJUSTED) {
+			update(event.getInventoryId(), event.getWarehouseId(), new LowStockDTO(event.getInventoryId(),
+					event.getWarehouseId(), event.getQuantity(), current.getThreshold()));
+		}
+	}
+
+	/**
+	 * Stop tracking deleted inventory in every warehouse.
+	 * 
+	 * @param event inventory change
+	 */
+	@EventListener
+	public synchronized void onInventoryChange(InventoryChangeEvent event) {
+		if (event.getType() != InventoryChangeEvent.Type.DELETED) {
+			return;
+		}
+		Map<Long, LowStockDTO> byWarehouse = tracked.get(event.getInventoryId());
+		if (byWarehouse != null) {
+			for (Long warehouseId : new ArrayList<>(byWarehouse.keySet())) {
+				update(event.getInventoryId(), warehouseId, null);
+			}
+		}
+	}
+
+	private LowStockDTO get(long invId, long id) {
+		Map<Long, LowStockDTO> byWarehouse = tracked.get(invId);
+		return byWarehouse == null ? null : byWarehouse.get(id);
+	}
+
+	/**
+	 * Replace an entry, remembering the one it had when the transaction started
+	 * so that it can be restored on rollback.
+	 */
+	private synchronized void update(long invId, long id, LowStockDTO next) {
+		LowStockDTO previous = replace(invId, id, next, true);
+		Map<Long, Map<Long, LowStockDTO>> changes = pendingChanges.current();
+		if (changes != null) {
+			changes.computeIfAbsent(invId, key -> new HashMap<>()).putIfAbsent(id, previous);
+		}
+	}
+
+	/**
+	 * Replace an entry and move it in or out of the low set, publishing an alert
+	 * if it has just become low.
+	 */
+	private LowStockDTO replace(long invId, long id, LowStockDTO next, boolean alert) {
+		LowStockDTO previous;
+		if (next == null) {
+			Map<Long, LowStockDTO> byWarehouse = tracked.get(invId);
+			previous = byWarehouse == null ? null : byWarehouse.remove(id);
+			if (byWarehouse != null && byWarehouse.isEmpty()) {
+				tracked.remove(invId);
+			}
+		} else {
+			previous = tracked.computeIfAbsent(invId, key -> new ConcurrentHashMap<>()).put(id, next);
+		}
+
+		boolean wasLow = previous != null && previous.getShortfall() > 0;
+		if (wasLow) {
+			low.remove(previous);
+		}
+		if (next != null && next.getShortfall() > 0) {
+			low.add(next);
+			if (alert && !wasLow) {
+				eventPublisher.publishEvent(
+						new LowStockEvent(invId, id, next.getQuantity(), next.getThreshold()));
+			}
+		}
+		return previous;
+	}
+
+	private synchronized void restore(Map<Long, Map<Long, LowStockDTO>> changes) {
+		changes.forEach((invId, byWarehouse) -> byWarehouse
+				.forEach((id, original) -> replace(invId, id, original, false)));
+	}
+}
@@ -0,0 +1,40 @@
+package com.shopify.services;
+
+import com.shopify.dto.OutboxStatisticsDTO;
+
+/**
+ * Interface that provides a contract for the transactional outbox. Changes are
+ * recorded in the outbox table in the transaction that makes them, and relayed
+ * to the configured {@link OutboxSink} in id order afterwards.
+ * 
+ * @author stephen
+ *
+ */
+public interface OutboxService {
+	/**
+	 * Record quantities set by a bulk import in the outbox, one STOCK_IMPORTED
+	 * event per quantity, written with one batched insert. Must be called in the
+	 * transaction that writes the quantities.
+	 * 
+	 * @param inventoryIds ids of inventory
+	 * @param warehouseIds ids of warehouses
+	 * @param quantities   quantities set
+	 * @param count        number of leading elements of the arrays to record
+	 */
+	public void recordImported(long[] inventoryIds, long[] warehouseIds, int[] quantities, int count);
+
+	/**
+	 * Relay one batch of the oldest events to the sink and remove them from the
+	 * outbox.
+	 * 
+	 * @return number of events relayed
+	 */
+	public int relay();
+
+	/**
+	 * Get relay throughput and failure counts.
+	 * 
+	 * @return outbox statistics
+	 */
+	public OutboxStatisticsDTO getStatistics();
+}
@@ -0,0 +1,201 @@
+package com.shopify.services;
+
+import com.shopify.dto.OutboxStatisticsDTO;
+import com.shopify.event.InventoryChangeEvent;
+import com.shopify.event.LowStockEvent;
+import com.shopify.event.StockChangeEvent;
+import com.shopify.model.OutboxEvent;
+import com.shopify.repository.OutboxEventRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Class that represents an implementation of the OutboxService interface.
+ * 
+ * Events are recorded by listeners that must run inside the publishing
+ * service's transaction, so a change and its event commit or roll back
+ * together. A transaction's events are collected and written with one batched
+ * insert just before it commits, so they take ids close to their commit and
+ * cost one round trip however many there are. The relay runs on a fixed delay and delivers at least once: a crash
+ * after delivery but before the batch is deleted delivers it again. Running
+ * several instances against one database also results in duplicates. The
+ * service is never initialized lazily, since the relay is only scheduled once
+ * it has been created.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+@Lazy(false)
+public class OutboxServiceImpl implements OutboxService {
+
+	private static final Logger logger = LoggerFactory.getLogger(OutboxServiceImpl.class);
+
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+
+	@Autowired
+	private OutboxSink outboxSink;
+
+	@Value("${outbox.relay.batch-size:500}")
+	private int batchSize;
+
+	private long relayedCount;
+	private long batchCount;
+	private long failureCount;
+	private int lastBatchSize;
+	private long lastBatchNanos;
+	private long totalNanos;
+
+	/**
+	 * Record a change of quantity in the outbox.
+	 * 
+	 * @param event stock change
+	 */
+	@EventListener
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void onStockChange(StockChangeEvent event) {
+		record(new OutboxEvent("STOCK_" + event.getType().name(), event.getInventoryId(), event.getWarehouseId(),
+				event.getQuantity(), null, null));
+	}
+
+	/**
+	 * Record a change of inventory in the outbox.
+	 * 
+	 * @param event inventory change
+	 */
+	@EventListener
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void onInventoryChange(InventoryChangeEvent event) {
+		record(new OutboxEvent("INVENTORY_" + event.getType().name(), event.getInventoryId(), null, null,
+				event.getName(), event.getPrice()));
+	}
+
+	/**
+	 * Record an inventory dropping below its reorder threshold in the outbox.
+	 * 
+	 * @param event low stock alert
+	 */
+	@EventListener
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void onLowStock(LowStockEvent event) {
+		record(new OutboxEvent("STOCK_LOW", event.getInventoryId(), event.getWarehouseId(), event.getQuantity(),
+				null, null));
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void recordImported(long[] inventoryIds, long[] warehouseIds, int[] quantities, int count) {
+		List<OutboxEvent> events = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			events.add(new OutboxEvent("STOCK_IMPORTED", inventoryIds[i], warehouseIds[i], quantities[i], null, null));
+		}
+		outboxEventRepository.insertAll(events);
+	}
+
+	/**
+	 * Add an event to those of the current transaction. Events recorded once the
+	 * transaction's events have been written, by other work done just before
+	 * commit, are written right away.
+	 */
+	private void record(OutboxEvent event) {
+		PendingEvents pending = (PendingEvents) TransactionSynchronizationManager.getResource(this);
+		if (pending == null) {
+			PendingEvents registered = new PendingEvents();
+			TransactionSynchronizationManager.bindResource(this, registered);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					outboxEventRepository.insertAll(registered.events);
+					registered.written = true;
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(OutboxServiceImpl.this);
+				}
+			});
+			pending = registered;
+		}
+		if (pending.written) {
+			outboxEventRepository.insertAll(Collections.singletonList(event));
+		} else {
+			pending.events.add(event);
+		}
+	}
+
+	/**
+	 * Drain the outbox batch by batch until it is empty or delivery fails.
+	 */
+	@Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+	public void drain() {
+		int relayed;
+		do {
+			relayed = relay();
+		} while (relayed == batchSize);
+	}
+
+	@Override
+	public synchronized int relay() {
+		long start = System.nanoTime();
+		List<OutboxEvent> batch = outboxEventRepository.findBatch(PageRequest.of(0, batchSize));
+		if (batch.isEmpty()) {
+			return 0;
+		}
+
+		try {
+			outboxSink.deliver(batch);
+		} catch (Exception e) {
+			failureCount++;
+			logger.warn("Failed to relay {} outbox events starting at id {}", batch.size(), batch.get(0).getId(), e);
+			return 0;
+		}
+
+		List<Long> ids = new ArrayList<>(batch.size());
+		for (OutboxEvent event : batch) {
+			ids.add(event.getId());
+		}
+		outboxEventRepository.deleteByIds(ids);
+
+		lastBatchNanos = System.nanoTime() - start;
+		lastBatchSize = batch.size();
+		totalNanos += lastBatchNanos;
+		relayedCount += batch.size();
+		batchCount++;
+		return batch.size();
+	}
+
+	@Override
+	public synchronized OutboxStatisticsDTO getStatistics() {
+		OutboxStatisticsDTO result = new OutboxStatisticsDTO();
+		result.setRelayedCount(relayedCount);
+		result.setBatchCount(batchCount);
+		result.setFailureCount(failureCount);
+		result.setLastBatchSize(lastBatchSize);
+		result.setLastBatchMillis(lastBatchNanos / 1e6);
+		result.setEventsPerSecond(totalNanos == 0 ? 0 : relayedCount / (totalNanos / 1e9));
+		return result;
+	}
+
+	/**
+	 * Events of a transaction waiting to be written.
+	 */
+	private static final class PendingEvents {
+		private final List<OutboxEvent> events = new ArrayList<>();
+		private boolean written;
+	}
+}
@@ -0,0 +1,24 @@
+package com.shopify.services;
+
+import com.shopify.model.OutboxEvent;
+import java.util.List;
+
+/**
+ * Interface that provides a contract for a destination of relayed outbox
+ * events. Delivery is at least once: a batch is delivered again if the relay
+ * fails before it is removed from the outbox, so sinks must tolerate
+ * duplicates.
+ * 
+ * @author stephen
+ *
+ */
+public interface OutboxSink {
+	/**
+	 * Deliver a batch of events in id order. The batch is only removed from the
+	 * outbox if this method returns normally.
+	 * 
+	 * @param events events to deliver
+	 * @throws Exception if the batch could not be delivered
+	 */
+	public void deliver(List<OutboxEvent> events) throws Exception;
+}
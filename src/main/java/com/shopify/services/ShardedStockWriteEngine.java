@@ -0,0 +1,355 @@
+package com.shopify.services;
+
+import com.shopify.event.StockChangeEvent;
+import com.shopify.model.InventoryWarehouseId;
+import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.util.StockTable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Class that represents an implementation of the StockWriteEngine interface
+ * with single writer shards, chosen with stock.write-engine=sharded.
+ *
+ * Changes are routed by inventory id to one of a fixed number of shards. Each
+ * shard is a thread with a bounded queue that owns the quantities of its
+ * inventory in memory: it takes all queued changes, up to a batch, applies them
+ * to its quantities without locking, and writes the resulting quantities in one
+ * transaction with one batched update, a group commit. Callers wait until the
+ * commit of their change. Quantities are loaded from the database the first
+ * time a shard changes them.
+ *
+ * Other writers, such as placements, removals and imports, still change
+ * entries directly. Each update therefore only applies if the entry still
+ * holds the quantity the shard last wrote or read; otherwise the shard reads the
+ * entry again, locking it, and reapplies its changes. Changes made within a
+ * caller's transaction are applied directly on the caller's thread, without
+ * caching.
+ *
+ * Once the engine stops, changes not yet taken by a shard fail. Callers wait at
+ * most stock.shards.await-timeout-ms for their change, after which its outcome
+ * is unknown.
+ *
+ * @author stephen
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "stock.write-engine", havingValue = "sharded")
+public class ShardedStockWriteEngine implements StockWriteEngine {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardedStockWriteEngine.class);
+
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Autowired
+	private ChangeVersionTracker changeVersionTracker;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${stock.shards.count:0}")
+	private int shardCount;
+
+	@Value("${stock.shards.queue-capacity:4096}")
+	private int queueCapacity;
+
+	@Value("${stock.shards.max-batch:256}")
+	private int maxBatch;
+
+	@Value("${stock.shards.max-entries:100000}")
+	private int maxEntries;
+
+	@Value("${stock.shards.await-timeout-ms:30000}")
+	private long awaitTimeoutMs;
+
+	private Shard[] shards;
+
+	private TransactionTemplate transactionTemplate;
+
+	private volatile boolean running;
+
+	@PostConstruct
+	void start() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+		shards = new Shard[count];
+		running = true;
+		for (int i = 0; i < count; i++) {
+			shards[i] = new Shard(i);
+			shards[i].thread.start();
+		}
+	}
+
+	@PreDestroy
+	void stop() throws InterruptedException {
+		running = false;
+		for (Shard shard : shards) {
+			shard.thread.interrupt();
+		}
+		for (Shard shard : shards) {
+			shard.thread.join();
+		}
+		// changes queued after a shard took its last ones
+		for (Shard shard : shards) {
+			shard.failQueued();
+		}
+	}
+
+	@Override
+	public void adjust(long inventoryId, long warehouseId, int quantity) {
+		Change change = new Change(inventoryId, warehouseId, quantity);
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			apply(Collections.singletonList(change), new StockTable(16));
+			change.complete();
+		} else {
+			long mixed = inventoryId * 0x9E3779B97F4A7C15L;
+			Shard shard = shards[(int) ((mixed >>> 32) % shards.length)];
+			try {
+				// a full queue holds callers back until the shard catches up
+				while (!shard.queue.offer(change, 100, TimeUnit.MILLISECONDS)) {
+					if (!running) {
+						throw new IllegalStateException("Stock write engine is stopped");
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while queueing stock change", e);
+			}
+			// the shard may have stopped before taking the change; if it is still
+			// queued, nothing else will complete it
+			if (!running && shard.queue.remove(change)) {
+				throw new IllegalStateException("Stock write engine is stopped");
+			}
+			if (!change.await(awaitTimeoutMs)) {
+				throw new IllegalStateException("Timed out waiting for stock change of inventory " + inventoryId
+						+ " in warehouse " + warehouseId + "; it may still be applied");
+			}
+		}
+		if (change.failure != null) {
+			throw change.failure;
+		}
+	}
+
+	/**
+	 * Apply changes in one transaction. Changes of an entry that keeps being
+	 * changed by other writers fail after a few attempts, and changes of entries
+	 * that do not exist fail right away.
+	 */
+	private void apply(List<Change> batch, StockTable quantities) {
+		transactionTemplate.executeWithoutResult(status -> {
+			List<Change> pending = batch;
+			for (int attempt = 0; attempt < MAX_ATTEMPTS && !pending.isEmpty(); attempt++) {
+				pending = applyOnce(pending, quantities, attempt > 0);
+			}
+			for (Change change : pending) {
+				change.failure = new IllegalStateException("Quantity of inventory " + change.inventoryId
+						+ " in warehouse " + change.warehouseId + " kept changing");
+			}
+			changeVersionTracker.inventoryChanged();
+		});
+	}
+
+	/**
+	 * Apply changes to the known quantities of their entries and write the
+	 * results with one batched update.
+	 *
+	 * @return changes of entries that were changed by another writer meanwhile
+	 */
+	private List<Change> applyOnce(List<Change> changes, StockTable quantities, boolean lock) {
+		Map<InventoryWarehouseId, List<Change>> byEntry = new LinkedHashMap<>();
+		for (Change change : changes) {
+			byEntry.computeIfAbsent(new InventoryWarehouseId(change.inventoryId, change.warehouseId),
+					key -> new ArrayList<>(2)).add(change);
+		}
+
+		int size = byEntry.size();
+		long[] inventoryIds = new long[size];
+		long[] warehouseIds = new long[size];
+		int[] expected = new int[size];
+		int[] results = new int[size];
+		List<List<Change>> entries = new ArrayList<>(size);
+		int count = 0;
+		for (Map.Entry<InventoryWarehouseId, List<Change>> entry : byEntry.entrySet()) {
+			long inventoryId = entry.getKey().getInventoryId();
+			long warehouseId = entry.getKey().getWarehouseId();
+			long known = lock ? -1 : quantities.get(inventoryId, warehouseId);
+			if (known < 0) {
+				Integer stored = inventoryWarehouseRepository.findQuantity(inventoryId, warehouseId, lock);
+				if (stored == null) {
+					quantities.remove(inventoryId, warehouseId);
+					for (Change change : entry.getValue()) {
+						change.failure = new IllegalStateException(
+								"Inventory " + inventoryId + " is not in warehouse " + warehouseId);
+					}
+					continue;
+				}
+				known = stored;
+			}
+
+			int quantity = (int) known;
+			for (Change change : entry.getValue()) {
+				change.previousQuantity = quantity;
+				quantity = Math.max(0, quantity + change.quantity);
+				change.newQuantity = quantity;
+			}
+			inventoryIds[count] = inventoryId;
+			warehouseIds[count] = warehouseId;
+			expected[count] = (int) known;
+			results[count] = quantity;
+			entries.add(entry.getValue());
+			count++;
+		}
+
+		boolean[] updated = inventoryWarehouseRepository.compareAndSetQuantities(inventoryIds, warehouseIds, expected,
+				results, count);
+		List<Change> conflicting = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			if (!updated[i]) {
+				quantities.remove(inventoryIds[i], warehouseIds[i]);
+				conflicting.addAll(entries.get(i));
+				continue;
+			}
+			quantities.put(inventoryIds[i], warehouseIds[i], results[i]);
+			for (Change change : entries.get(i)) {
+				eventPublisher.publishEvent(new StockChangeEvent(StockChangeEvent.Type.ADJUSTED, change.inventoryId,
+						change.warehouseId, change.newQuantity, change.previousQuantity));
+			}
+		}
+		return conflicting;
+	}
+
+	/**
+	 * Thread applying the changes of one shard, with the quantities it owns.
+	 */
+	private final class Shard implements Runnable {
+		private final BlockingQueue<Change> queue = new ArrayBlockingQueue<>(queueCapacity);
+		private final Thread thread;
+		private StockTable quantities = new StockTable(1024);
+
+		private Shard(int index) {
+			thread = new Thread(this, "stock-shard-" + index);
+			thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			List<Change> batch = new ArrayList<>(maxBatch);
+			while (running) {
+				try {
+					Change first = queue.poll(1, TimeUnit.SECONDS);
+					if (first == null) {
+						continue;
+					}
+					batch.add(first);
+				} catch (InterruptedException e) {
+					continue;
+				}
+				queue.drainTo(batch, maxBatch - 1);
+				if (quantities.size() > maxEntries) {
+					quantities = new StockTable(1024);
+				}
+
+				try {
+					apply(batch, quantities);
+				} catch (RuntimeException e) {
+					logger.warn("Failed to apply {} stock changes", batch.size(), e);
+					// the known quantities may include changes that were rolled back
+					for (Change change : batch) {
+						quantities.remove(change.inventoryId, change.warehouseId);
+						change.failure = e;
+					}
+				}
+				for (Change change : batch) {
+					change.complete();
+				}
+				batch.clear();
+			}
+			failQueued();
+		}
+
+		/**
+		 * Fail the changes still queued once the engine is stopped.
+		 */
+		private void failQueued() {
+			List<Change> queued = new ArrayList<>();
+			queue.drainTo(queued);
+			for (Change change : queued) {
+				change.failure = new IllegalStateException("Stock write engine is stopped");
+				change.complete();
+			}
+		}
+	}
+
+	/**
+	 * Change of quantity of inventory in a warehouse, negative for decreases,
+	 * and its outcome.
+	 */
+	private static final class Change {
+		private final long inventoryId;
+		private final long warehouseId;
+		private final int quantity;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private int previousQuantity;
+		private int newQuantity;
+		private RuntimeException failure;
+
+		private Change(long inventoryId, long warehouseId, int quantity) {
+			this.inventoryId = inventoryId;
+			this.warehouseId = warehouseId;
+			this.quantity = quantity;
+		}
+
+		private void complete() {
+			done.countDown();
+		}
+
+		/**
+		 * Wait until the change is applied, at most for a timeout. The change is
+		 * queued and will be applied regardless, so interrupts are only passed on.
+		 *
+		 * @return false if the timeout elapsed first
+		 */
+		private boolean await(long timeoutMs) {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+			boolean interrupted = false;
+			boolean completed = false;
+			while (true) {
+				try {
+					completed = done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return completed;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.shopify.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Class that represents how far a snapshot export got: the length of the part
+ * file after the last complete chunk, the rows in it and the key of the last
+ * row. A checkpoint is saved next to the part file after every chunk, so an
+ * interrupted export can continue from it.
+ * 
+ * @author stephen
+ *
+ */
+final class SnapshotCheckpoint {
+	final long bytes;
+	final long rows;
+	final long inventoryId;
+	final long warehouseId;
+
+	SnapshotCheckpoint(long bytes, long rows, long inventoryId, long warehouseId) {
+		this.bytes = bytes;
+		this.rows = rows;
+		this.inventoryId = inventoryId;
+		this.warehouseId = warehouseId;
+	}
+
+	/**
+	 * Read a checkpoint, or return the start of an export if there is none.
+	 */
+	static SnapshotCheckpoint load(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return new SnapshotCheckpoint(0, 0, 0, 0);
+		}
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		return new SnapshotCheckpoint(Long.parseLong(properties.getProperty("bytes")),
+				Long.parseLong(properties.getProperty("rows")), Long.parseLong(properties.getProperty("inventoryId")),
+				Long.parseLong(properties.getProperty("warehouseId")));
+	}
+
+	/**
+	 * Write the checkpoint to a temporary file and move it over the previous one,
+	 * so a crash never leaves a partial checkpoint behind.
+	 */
+	void save(Path path) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("bytes", String.valueOf(bytes));
+		properties.setProperty("rows", String.valueOf(rows));
+		properties.setProperty("inventoryId", String.valueOf(inventoryId));
+		properties.setProperty("warehouseId", String.valueOf(warehouseId));
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,29 @@
+package com.shopify.services;
+
+import com.shopify.dto.SnapshotProgressDTO;
+
+/**
+ * Interface that provides a contract for exporting a point in time snapshot of
+ * stock held in every warehouse to a compressed csv file.
+ * 
+ * @author stephen
+ *
+ */
+public interface SnapshotExportService {
+	/**
+	 * Start an export in the background.
+	 * 
+	 * @param resume true to continue an interrupted export from its last
+	 *               checkpoint, false to start over
+	 * @return progress of the export
+	 * @throws IllegalStateException if an export is already running
+	 */
+	public SnapshotProgressDTO start(boolean resume);
+
+	/**
+	 * Get progress of the latest export.
+	 * 
+	 * @return progress of export
+	 */
+	public SnapshotProgressDTO getProgress();
+}
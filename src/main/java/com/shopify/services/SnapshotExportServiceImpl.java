@@ -0,0 +1,155 @@
+package com.shopify.services;
+
+import com.shopify.dto.SnapshotProgressDTO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the SnapshotExportService
+ * interface.
+ * 
+ * One export runs at a time on a background thread. It writes to a part file
+ * with a checkpoint next to it, and the part file is renamed to a timestamped
+ * name once complete, so a finished snapshot never appears half written. An
+ * export that fails or is interrupted by a restart leaves both files behind to
+ * be resumed.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class SnapshotExportServiceImpl implements SnapshotExportService {
+	private static final Logger logger = LoggerFactory.getLogger(SnapshotExportServiceImpl.class);
+
+	static final String PART_FILE = "stock-snapshot.csv.gz.part";
+	static final String CHECKPOINT_FILE = "stock-snapshot.checkpoint";
+
+	@Autowired
+	private SnapshotWriter snapshotWriter;
+
+	@Value("${export.directory:exports}")
+	private String directory;
+
+	private ExecutorService executor;
+
+	private final SnapshotProgressDTO progress = new SnapshotProgressDTO();
+
+	@PostConstruct
+	void init() {
+		progress.setState("IDLE");
+		executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "snapshot-export");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	void stop() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public synchronized SnapshotProgressDTO start(boolean resume) {
+		if ("RUNNING".equals(progress.getState())) {
+			throw new IllegalStateException("Export is already running");
+		}
+		progress.setState("RUNNING");
+		progress.setFile(null);
+		progress.setRowsWritten(0);
+		progress.setTotalRows(0);
+		progress.setResumedAtRow(0);
+		progress.setRowsPerSecond(0);
+		progress.setStartedAt(System.currentTimeMillis());
+		progress.setFinishedAt(null);
+		progress.setError(null);
+		executor.execute(() -> export(resume));
+		return copy();
+	}
+
+	@Override
+	public synchronized SnapshotProgressDTO getProgress() {
+		return copy();
+	}
+
+	private void export(boolean resume) {
+		try {
+			Path folder = Paths.get(directory);
+			Files.createDirectories(folder);
+			Path part = folder.resolve(PART_FILE);
+			Path checkpointFile = folder.resolve(CHECKPOINT_FILE);
+			if (!resume) {
+				Files.deleteIfExists(checkpointFile);
+			}
+			SnapshotCheckpoint checkpoint = SnapshotCheckpoint.load(checkpointFile);
+			synchronized (this) {
+				progress.setResumedAtRow(checkpoint.rows);
+				progress.setRowsWritten(checkpoint.rows);
+			}
+
+			snapshotWriter.write(part, checkpoint, saved -> {
+				try {
+					saved.save(checkpointFile);
+				} catch (IOException e) {
+					throw new IllegalStateException("Could not save checkpoint", e);
+				}
+				updateProgress(saved.rows);
+			}, total -> {
+				synchronized (this) {
+					progress.setTotalRows(total);
+				}
+			});
+
+			Path target = folder.resolve(
+					"stock-snapshot-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv.gz");
+			Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+			Files.deleteIfExists(checkpointFile);
+			synchronized (this) {
+				progress.setFile(target.toString());
+				progress.setFinishedAt(System.currentTimeMillis());
+				progress.setState("COMPLETED");
+			}
+		} catch (Exception e) {
+			logger.error("Snapshot export failed", e);
+			synchronized (this) {
+				progress.setError(e.getMessage());
+				progress.setFinishedAt(System.currentTimeMillis());
+				progress.setState("FAILED");
+			}
+		}
+	}
+
+	private synchronized void updateProgress(long rows) {
+		progress.setRowsWritten(rows);
+		long elapsed = Math.max(1, System.currentTimeMillis() - progress.getStartedAt());
+		progress.setRowsPerSecond((rows - progress.getResumedAtRow()) * 1000.0 / elapsed);
+	}
+
+	private SnapshotProgressDTO copy() {
+		SnapshotProgressDTO result = new SnapshotProgressDTO();
+		result.setState(progress.getState());
+		result.setFile(progress.getFile());
+		result.setRowsWritten(progress.getRowsWritten());
+		result.setTotalRows(progress.getTotalRows());
+		result.setResumedAtRow(progress.getResumedAtRow());
+		result.setRowsPerSecond(progress.getRowsPerSecond());
+		result.setStartedAt(progress.getStartedAt());
+		result.setFinishedAt(progress.getFinishedAt());
+		result.setError(progress.getError());
+		return result;
+	}
+}
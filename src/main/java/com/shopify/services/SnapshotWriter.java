@@ -0,0 +1,141 @@
+package com.shopify.services;
+
+import com.shopify.dto.SnapshotRowDTO;
+import com.shopify.repository.InventoryWarehouseRepository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Class that writes the rows of a stock snapshot to a gzip compressed csv file.
+ * 
+ * All rows are read in one repeatable read transaction, so the file reflects a
+ * single instant even while stock keeps changing. Rows are streamed from the
+ * database with a bounded fetch size and written in chunks, each compressed as
+ * its own gzip member; concatenated members form a valid gzip file. After each
+ * chunk is forced to disk a checkpoint is saved, and a resumed export truncates
+ * the file to the last checkpoint and continues after its key. The part written
+ * before resuming and the part written after come from different instants.
+ * 
+ * @author stephen
+ *
+ */
+@Component
+public class SnapshotWriter {
+	static final String HEADER = "inventory_id,inventory_name,price,warehouse_id,warehouse_name,quantity\n";
+
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Value("${export.fetch-size:1000}")
+	private int fetchSize;
+
+	@Value("${export.chunk-rows:10000}")
+	private int chunkRows;
+
+	/**
+	 * Write all rows after a checkpoint to a part file.
+	 * 
+	 * @param part       file to write to
+	 * @param checkpoint position to continue from
+	 * @param checkpoints called with each checkpoint saved
+	 * @param totalRows   called with the number of rows in the snapshot
+	 * @throws IOException if the file cannot be written
+	 */
+	@Transactional(isolation = Isolation.REPEATABLE_READ, readOnly = true)
+	public void write(Path part, SnapshotCheckpoint checkpoint, Consumer<SnapshotCheckpoint> checkpoints,
+			LongConsumer totalRows) throws IOException {
+		totalRows.accept(inventoryWarehouseRepository.count());
+
+		try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				Stream<SnapshotRowDTO> rows = inventoryWarehouseRepository
+						.streamSnapshot(checkpoint.inventoryId, checkpoint.warehouseId, fetchSize)) {
+			channel.truncate(checkpoint.bytes);
+			channel.position(checkpoint.bytes);
+
+			long written = checkpoint.rows;
+			Iterator<SnapshotRowDTO> iterator = rows.iterator();
+			StringBuilder chunk = new StringBuilder(chunkRows * 64);
+			if (checkpoint.bytes == 0) {
+				chunk.append(HEADER);
+			}
+			SnapshotRowDTO last = null;
+			int inChunk = 0;
+			while (iterator.hasNext()) {
+				last = iterator.next();
+				appendRow(chunk, last);
+				if (++inChunk == chunkRows) {
+					written += inChunk;
+					checkpoints.accept(flush(channel, chunk, written, last));
+					inChunk = 0;
+				}
+			}
+			if (chunk.length() > 0) {
+				written += inChunk;
+				checkpoints.accept(last == null ? flush(channel, chunk, written, checkpoint)
+						: flush(channel, chunk, written, last));
+			}
+		}
+	}
+
+	private static SnapshotCheckpoint flush(FileChannel channel, StringBuilder chunk, long rows, SnapshotRowDTO last)
+			throws IOException {
+		return flush(channel, chunk, rows, last.getInventoryId(), last.getWarehouseId());
+	}
+
+	private static SnapshotCheckpoint flush(FileChannel channel, StringBuilder chunk, long rows,
+			SnapshotCheckpoint previous) throws IOException {
+		return flush(channel, chunk, rows, previous.inventoryId, previous.warehouseId);
+	}
+
+	private static SnapshotCheckpoint flush(FileChannel channel, StringBuilder chunk, long rows, long inventoryId,
+			long warehouseId) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(chunk.length() / 4);
+		try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed, 8192), StandardCharsets.UTF_8)) {
+			writer.append(chunk);
+		}
+		chunk.setLength(0);
+		ByteBuffer buffer = ByteBuffer.wrap(compressed.toByteArray());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+		return new SnapshotCheckpoint(channel.position(), rows, inventoryId, warehouseId);
+	}
+
+	private static void appendRow(StringBuilder chunk, SnapshotRowDTO row) {
+		chunk.append(row.getInventoryId()).append(',');
+		appendText(chunk, row.getInventoryName());
+		chunk.append(',').append(row.getPrice()).append(',').append(row.getWarehouseId()).append(',');
+		appendText(chunk, row.getWarehouseName());
+		chunk.append(',').append(row.getQuantity()).append('\n');
+	}
+
+	/**
+	 * Append a value, quoting it if it contains a separator, quote or line break.
+	 */
+	private static void appendText(StringBuilder chunk, String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+				&& value.indexOf('\r') < 0) {
+			chunk.append(value);
+			return;
+		}
+		chunk.append('"').append(value.replace("\"", "\"\"")).append('"');
+	}
+}
@@ -0,0 +1,26 @@
+package com.shopify.services;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Interface that provides a contract for pushing stock and inventory changes to
+ * subscribed clients as server-sent events.
+ * 
+ * @author stephen
+ *
+ */
+public interface StockFeedService {
+	/**
+	 * Subscribe to the change feed. Events for the same inventory in the same
+	 * warehouse that arrive within one dispatch interval are coalesced into the
+	 * latest one. Inventory events are sent to every subscriber regardless of
+	 * warehouse filter.
+	 * 
+	 * @param warehouseId id of warehouse to receive stock events for, or null for
+	 *                    all warehouses
+	 * @param lastEventId id of the last event the client received, as sent in the
+	 *                    Last-Event-ID header, or null to start with live events
+	 * @return emitter streaming events to client
+	 */
+	public SseEmitter subscribe(Long warehouseId, String lastEventId);
+}
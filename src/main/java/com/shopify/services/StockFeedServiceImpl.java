@@ -0,0 +1,341 @@
+package com.shopify.services;
+
+import com.shopify.dto.StockEventDTO;
+import com.shopify.event.InventoryChangeEvent;
+import com.shopify.event.StockChangeEvent;
+import com.shopify.event.StockImportedEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Class that represents an implementation of the StockFeedService interface.
+ * 
+ * Changes are numbered and kept in a fixed size history so that clients can
+ * resume after a reconnect. Producers only append to the history and to each
+ * subscriber's pending buffer, so a slow client never blocks a write. A
+ * dispatcher thread hands the buffered events of each subscriber to a pooled
+ * sender thread at a fixed interval, with at most one send in flight per
+ * subscriber, so a slow client only delays its own events. Its buffer fills
+ * while it catches up; a subscriber whose buffer overflows has it discarded and
+ * is sent a reset event instead, and one whose send has not returned within the
+ * send timeout is dropped.
+ * 
+ * Bulk imports change quantities without stock change events, so every
+ * subscriber is sent a reset once an import commits, and clients resuming from
+ * before it are answered with a reset rather than a replay.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class StockFeedServiceImpl implements StockFeedService {
+
+	private static final String RESET = "RESET";
+
+	@Value("${feed.history-size:10000}")
+	private int historySize;
+
+	@Value("${feed.buffer-size:1000}")
+	private int bufferSize;
+
+	@Value("${feed.dispatch-interval-ms:100}")
+	private long dispatchIntervalMs;
+
+	@Value("${feed.timeout-ms:1800000}")
+	private long timeoutMs;
+
+	@Value("${feed.send-timeout-ms:10000}")
+	private long sendTimeoutMs;
+
+	/**
+	 * Prefix of event ids. Sequences restart with the application, so ids from an
+	 * earlier run are recognized and answered with a reset.
+	 */
+	private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	private StockEventDTO[] history;
+
+	private long sequence;
+
+	/**
+	 * Sequence of the last import, before which events cannot be replayed.
+	 */
+	private long importSequence;
+
+	private ScheduledExecutorService dispatcher;
+
+	private ExecutorService sender;
+
+	@PostConstruct
+	void start() {
+		history = new StockEventDTO[historySize];
+		dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "stock-feed");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// threads only exist while sending, so there are never more than subscribers
+		sender = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "stock-feed-send");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dispatcher.scheduleWithFixedDelay(this::dispatch, dispatchIntervalMs, dispatchIntervalMs,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	void stop() {
+		dispatcher.shutdownNow();
+		sender.shutdownNow();
+		for (Subscriber subscriber : subscribers) {
+			subscriber.emitter.complete();
+		}
+	}
+
+	/**
+	 * Append a change of quantity to the feed once it is committed, so clients
+	 * never see changes that are rolled back.
+	 * 
+	 * @param event stock change
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onStockChange(StockChangeEvent event) {
+		append(sequence -> new StockEventDTO(sequence, event.getType().name(), event.getInventoryId(),
+				event.getWarehouseId(), event.getQuantity(), null, null));
+	}
+
+	/**
+	 * Append a change of inventory name or price to the feed once it is
+	 * committed.
+	 * 
+	 * @param event inventory change
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onInventoryChange(InventoryChangeEvent event) {
+		append(sequence -> new StockEventDTO(sequence, event.getType().name(), event.getInventoryId(), null, null,
+				event.getName(), event.getPrice()));
+	}
+
+	/**
+	 * Reset every subscriber once a bulk import has committed, since its rows are
+	 * not in the feed.
+	 * 
+	 * @param event bulk import
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public synchronized void onStockImported(StockImportedEvent event) {
+		if (event.getRowsImported() == 0) {
+			return;
+		}
+		importSequence = ++sequence;
+		history[(int) (sequence % history.length)] = new StockEventDTO(sequence, RESET, null, null, null, null,
+				null);
+		for (Subscriber subscriber : subscribers) {
+			subscriber.reset(sequence);
+		}
+	}
+
+	@Override
+	public SseEmitter subscribe(Long warehouseId, String lastEventId) {
+		Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs), warehouseId);
+		subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+		subscriber.emitter.onTimeout(subscriber.emitter::complete);
+		subscriber.emitter.onError(error -> subscribers.remove(subscriber));
+
+		synchronized (this) {
+			if (lastEventId != null) {
+				long oldest = Math.max(1, sequence - history.length + 1);
+				long cursor = parseSequence(lastEventId);
+				if (cursor < oldest - 1 || cursor < importSequence || cursor > sequence) {
+					subscriber.reset(sequence);
+				} else {
+					for (long next = cursor + 1; next <= sequence; next++) {
+						subscriber.offer(history[(int) (next % history.length)]);
+					}
+				}
+			}
+			subscribers.add(subscriber);
+		}
+		return subscriber.emitter;
+	}
+
+	private synchronized void append(LongFunction<StockEventDTO> factory) {
+		StockEventDTO event = factory.apply(++sequence);
+		history[(int) (sequence % history.length)] = event;
+		for (Subscriber subscriber : subscribers) {
+			subscriber.offer(event);
+		}
+	}
+
+	private void dispatch() {
+		long now = System.nanoTime();
+		for (Subscriber subscriber : subscribers) {
+			subscriber.dispatch(now);
+		}
+	}
+
+	/**
+	 * Parse an event id sent back by a client. Ids from another run of the
+	 * application or that cannot be parsed map to -1, which forces a reset.
+	 */
+	private long parseSequence(String eventId) {
+		int separator = eventId.indexOf(':');
+		if (separator < 0 || !epoch.equals(eventId.substring(0, separator))) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(eventId.substring(separator + 1));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private String eventId(long sequence) {
+		return epoch + ":" + sequence;
+	}
+
+	/**
+	 * Key under which events are coalesced. Inventory events use warehouse 0,
+	 * which is never assigned to a warehouse.
+	 */
+	private static final class FeedKey {
+		private final long inventoryId;
+		private final long warehouseId;
+
+		FeedKey(StockEventDTO event) {
+			this.inventoryId = event.getInventoryId();
+			this.warehouseId = event.getWarehouseId() == null ? 0 : event.getWarehouseId();
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(inventoryId) + Long.hashCode(warehouseId);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FeedKey))
+				return false;
+			FeedKey other = (FeedKey) obj;
+			return inventoryId == other.inventoryId && warehouseId == other.warehouseId;
+		}
+	}
+
+	/**
+	 * A connected client together with the events waiting to be sent to it.
+	 */
+	private final class Subscriber {
+		private final SseEmitter emitter;
+		private final Long warehouseId;
+		private final Map<FeedKey, StockEventDTO> pending = new LinkedHashMap<>();
+		private long resetSequence = -1;
+		private boolean sending;
+		private long sendingSince;
+		private boolean dropped;
+
+		Subscriber(SseEmitter emitter, Long warehouseId) {
+			this.emitter = emitter;
+			this.warehouseId = warehouseId;
+		}
+
+		synchronized void offer(StockEventDTO event) {
+			if (warehouseId != null && event.getWarehouseId() != null && !warehouseId.equals(event.getWarehouseId())) {
+				return;
+			}
+			if (resetSequence >= 0) {
+				resetSequence = event.getSequence();
+				return;
+			}
+			// Re-inserting keeps pending events in sequence order, so the id of the
+			// last event a client saw is always a safe cursor.
+			FeedKey key = new FeedKey(event);
+			pending.remove(key);
+			pending.put(key, event);
+			if (pending.size() > bufferSize) {
+				reset(event.getSequence());
+			}
+		}
+
+		synchronized void reset(long sequence) {
+			pending.clear();
+			resetSequence = sequence;
+		}
+
+		/**
+		 * Hand pending events to a sender thread unless a send is still in flight,
+		 * dropping the subscriber if that send has taken longer than the send
+		 * timeout. The emitter is busy until the send returns, so it is completed by
+		 * the sender.
+		 */
+		synchronized void dispatch(long now) {
+			if (sending) {
+				if (!dropped && now - sendingSince > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)) {
+					dropped = true;
+					subscribers.remove(this);
+				}
+				return;
+			}
+			if (pending.isEmpty() && resetSequence < 0) {
+				return;
+			}
+			List<StockEventDTO> batch = new ArrayList<>(pending.values());
+			long reset = resetSequence;
+			pending.clear();
+			resetSequence = -1;
+			sending = true;
+			sendingSince = now;
+			try {
+				sender.execute(() -> send(batch, reset));
+			} catch (RejectedExecutionException e) {
+				sending = false;
+			}
+		}
+
+		private void send(List<StockEventDTO> batch, long reset) {
+			Exception failure = null;
+			try {
+				if (reset >= 0) {
+					StockEventDTO event = new StockEventDTO(reset, RESET, null, null, null, null, null);
+					emitter.send(SseEmitter.event().id(eventId(reset)).name("reset").data(event,
+							MediaType.APPLICATION_JSON));
+				}
+				for (StockEventDTO event : batch) {
+					emitter.send(SseEmitter.event().id(eventId(event.getSequence())).name("stock").data(event,
+							MediaType.APPLICATION_JSON));
+				}
+			} catch (IOException | IllegalStateException e) {
+				failure = e;
+			}
+			synchronized (this) {
+				sending = false;
+				if (failure == null && !dropped) {
+					return;
+				}
+			}
+			subscribers.remove(this);
+			emitter.completeWithError(failure != null ? failure
+					: new IOException("Subscriber did not receive events within the send timeout"));
+		}
+	}
+}
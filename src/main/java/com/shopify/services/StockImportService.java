@@ -0,0 +1,27 @@
+package com.shopify.services;
+
+import com.shopify.dto.ImportReportDTO;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Interface that provides a contract for importing physical stock counts. A
+ * count file is a csv file with one line per inventory in a warehouse holding
+ * the inventory name, the warehouse name and the counted quantity. Counted
+ * quantities replace the quantities held, and inventory that is not yet in a
+ * warehouse is added to it.
+ * 
+ * @author stephen
+ *
+ */
+public interface StockImportService {
+	/**
+	 * Import a stock count file. Lines with unknown names or invalid quantities
+	 * are skipped and reported.
+	 * 
+	 * @param file count file
+	 * @return numbers of lines read, imported and rejected
+	 * @throws IOException if the file cannot be read
+	 */
+	public ImportReportDTO importStock(Path file) throws IOException;
+}
@@ -0,0 +1,302 @@
+package com.shopify.services;
+
+import com.shopify.dto.ImportReportDTO;
+import com.shopify.dto.InventorySearchDTO;
+import com.shopify.event.StockImportedEvent;
+import com.shopify.model.Warehouse;
+import com.shopify.repository.InventoryRepository;
+import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.repository.WarehouseRepository;
+import com.shopify.util.StockCsvParser;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Class that represents an implementation of the StockImportService interface.
+ * 
+ * The file is memory mapped in chunks that end at line breaks, and chunks are
+ * parsed in parallel by a pool of worker threads while the calling thread
+ * writes the chunks already parsed, in file order. Only a few chunks are in
+ * flight at a time, so memory use does not grow with the file. Names of each
+ * chunk are resolved to ids with one query per batch of names not seen before
+ * in the import. Quantities are written with jdbc batch upserts and committed
+ * every commit interval, so an import that fails keeps the intervals already
+ * committed. Since rows are written past the persistence context, no stock
+ * change events are published for them; each batch is recorded in the outbox
+ * with the quantities it sets instead, and a single StockImportedEvent is
+ * published once the import ends with any rows committed.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class StockImportServiceImpl implements StockImportService {
+	private static final int MAX_REPORTED_REJECTIONS = 100;
+	private static final int NAMES_PER_QUERY = 1000;
+	private static final long UNKNOWN = -1;
+
+	@Autowired
+	private InventoryRepository inventoryRepository;
+
+	@Autowired
+	private WarehouseRepository warehouseRepository;
+
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@Autowired
+	private ChangeVersionTracker changeVersionTracker;
+
+	@Autowired
+	private OutboxService outboxService;
+
+	@Value("${import.parallelism:0}")
+	private int parallelism;
+
+	@Value("${import.chunk-bytes:4194304}")
+	private int chunkBytes;
+
+	@Value("${import.batch-size:1000}")
+	private int batchSize;
+
+	@Value("${import.commit-interval:50000}")
+	private int commitInterval;
+
+	private ExecutorService parsers;
+
+	@PostConstruct
+	void init() {
+		if (parallelism <= 0) {
+			parallelism = Runtime.getRuntime().availableProcessors();
+		}
+		parsers = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "stock-import");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	void stop() {
+		parsers.shutdownNow();
+	}
+
+	@Override
+	public ImportReportDTO importStock(Path file) throws IOException {
+		long start = System.currentTimeMillis();
+		Import state = new Import();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Deque<Future<StockCsvParser.Chunk>> inFlight = new ArrayDeque<>();
+			long position = 0;
+			long size = channel.size();
+			try {
+				while (position < size || !inFlight.isEmpty()) {
+					while (position < size && inFlight.size() < parallelism * 2) {
+						ByteBuffer buffer = nextChunk(channel, position, size);
+						boolean first = position == 0;
+						position += buffer.remaining();
+						inFlight.add(parsers.submit(() -> parse(buffer, first)));
+					}
+					state.write(inFlight.poll().get());
+				}
+				state.commit();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Import was interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Could not parse file", e.getCause());
+			} finally {
+				inFlight.forEach(future -> future.cancel(true));
+				state.rollback();
+			}
+		} finally {
+			// intervals committed before a failure stay imported
+			if (state.imported > 0) {
+				changeVersionTracker.inventoryChanged();
+				publisher.publishEvent(new StockImportedEvent(state.imported));
+			}
+		}
+		return new ImportReportDTO(state.lines, state.imported, state.rejected, state.rejections,
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Map the next chunk of the file, ending it after the last line break that
+	 * fits. A line longer than a chunk gets a chunk of its own.
+	 */
+	private ByteBuffer nextChunk(FileChannel channel, long position, long size) throws IOException {
+		long length = Math.min(chunkBytes, size - position);
+		while (true) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			if (position + length == size) {
+				return buffer;
+			}
+			for (int i = (int) length - 1; i >= 0; i--) {
+				if (buffer.get(i) == '\n') {
+					buffer.limit(i + 1);
+					return buffer;
+				}
+			}
+			length = Math.min(length * 2, size - position);
+		}
+	}
+
+	private static StockCsvParser.Chunk parse(ByteBuffer buffer, boolean first) {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return StockCsvParser.parse(data, data.length, first);
+	}
+
+	/**
+	 * State of one import, only used by the calling thread.
+	 */
+	private final class Import {
+		private final Map<String, Long> inventoryIds = new HashMap<>();
+		private final Map<String, Long> warehouseIds = new HashMap<>();
+		private final List<String> rejections = new ArrayList<>();
+		private final long[] batchInventoryIds = new long[batchSize];
+		private final long[] batchWarehouseIds = new long[batchSize];
+		private final int[] batchQuantities = new int[batchSize];
+		private int batched;
+		private long uncommitted;
+		private TransactionStatus transaction;
+		private long fileLines;
+		private long lines;
+		private long imported;
+		private long rejected;
+
+		private void write(StockCsvParser.Chunk chunk) {
+			long lineOffset = fileLines + 1;
+			fileLines += chunk.getLines();
+			lines += chunk.getLines() - (chunk.hasHeader() ? 1 : 0);
+			List<Integer> rejectedLines = chunk.getRejectedLines();
+			int nextRejected = 0;
+
+			resolveInventory(chunk);
+			for (int i = 0; i < chunk.size(); i++) {
+				// report rejected lines in line order
+				while (nextRejected < rejectedLines.size() && rejectedLines.get(nextRejected) < chunk.getLineNumber(i)) {
+					reject(lineOffset + rejectedLines.get(nextRejected), chunk.getRejections().get(nextRejected++));
+				}
+				long inventoryId = inventoryIds.get(chunk.getInventoryName(i));
+				long warehouseId = warehouseIds.computeIfAbsent(chunk.getWarehouseName(i), name -> {
+					Warehouse warehouse = warehouseRepository.findByWarehouseName(name);
+					return warehouse == null ? UNKNOWN : warehouse.getWarehouseId();
+				});
+				if (inventoryId == UNKNOWN) {
+					reject(lineOffset + chunk.getLineNumber(i),
+							"unknown inventory '" + chunk.getInventoryName(i) + "'");
+				} else if (warehouseId == UNKNOWN) {
+					reject(lineOffset + chunk.getLineNumber(i),
+							"unknown warehouse '" + chunk.getWarehouseName(i) + "'");
+				} else {
+					add(inventoryId, warehouseId, chunk.getQuantity(i));
+				}
+			}
+			for (; nextRejected < rejectedLines.size(); nextRejected++) {
+				reject(lineOffset + rejectedLines.get(nextRejected), chunk.getRejections().get(nextRejected));
+			}
+		}
+
+		/**
+		 * Look up ids of the inventory names of a chunk that were not seen before.
+		 */
+		private void resolveInventory(StockCsvParser.Chunk chunk) {
+			Set<String> missing = new LinkedHashSet<>();
+			for (int i = 0; i < chunk.size(); i++) {
+				if (!inventoryIds.containsKey(chunk.getInventoryName(i))) {
+					missing.add(chunk.getInventoryName(i));
+				}
+			}
+			List<String> names = new ArrayList<>(missing);
+			for (int from = 0; from < names.size(); from += NAMES_PER_QUERY) {
+				List<String> batch = names.subList(from, Math.min(from + NAMES_PER_QUERY, names.size()));
+				for (InventorySearchDTO item : inventoryRepository.findSearchItemsByNames(batch)) {
+					inventoryIds.put(item.getName(), item.getId());
+				}
+				for (String name : batch) {
+					inventoryIds.putIfAbsent(name, UNKNOWN);
+				}
+			}
+		}
+
+		private void add(long inventoryId, long warehouseId, int quantity) {
+			if (transaction == null) {
+				transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+			}
+			batchInventoryIds[batched] = inventoryId;
+			batchWarehouseIds[batched] = warehouseId;
+			batchQuantities[batched] = quantity;
+			if (++batched == batchSize) {
+				flush();
+			}
+			if (uncommitted + batched >= commitInterval) {
+				commit();
+			}
+		}
+
+		private void flush() {
+			inventoryWarehouseRepository.upsertQuantities(batchInventoryIds, batchWarehouseIds, batchQuantities,
+					batched);
+			outboxService.recordImported(batchInventoryIds, batchWarehouseIds, batchQuantities, batched);
+			uncommitted += batched;
+			batched = 0;
+		}
+
+		private void commit() {
+			if (transaction == null) {
+				return;
+			}
+			flush();
+			TransactionStatus committing = transaction;
+			transaction = null;
+			transactionManager.commit(committing);
+			imported += uncommitted;
+			uncommitted = 0;
+		}
+
+		private void rollback() {
+			if (transaction != null) {
+				transactionManager.rollback(transaction);
+				transaction = null;
+			}
+		}
+
+		private void reject(long line, String reason) {
+			rejected++;
+			if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+				rejections.add("line " + line + ": " + reason);
+			}
+		}
+	}
+}
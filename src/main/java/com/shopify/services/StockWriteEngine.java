@@ -0,0 +1,23 @@
+package com.shopify.services;
+
+/**
+ * Interface that provides a contract for applying increases and decreases of
+ * the quantity of inventory in warehouses. The engine in use is chosen with the
+ * stock.write-engine property: combining, the default, or sharded.
+ * 
+ * @author stephen
+ *
+ */
+public interface StockWriteEngine {
+	/**
+	 * Change the quantity of inventory in a warehouse, but not below zero, and
+	 * publish a stock change event for it. Returns once the change is committed,
+	 * or once it is part of the caller's transaction if there is one.
+	 * 
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 * @param quantity    quantity to add, negative to decrease
+	 * @throws IllegalStateException if the inventory is not in the warehouse
+	 */
+	public void adjust(long inventoryId, long warehouseId, int quantity);
+}
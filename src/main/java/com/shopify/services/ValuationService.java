@@ -0,0 +1,26 @@
+package com.shopify.services;
+
+import com.shopify.dto.ValuationReportDTO;
+
+/**
+ * Interface that provides a contract for stock valuation. Units, number of
+ * inventory items and value are kept per warehouse and updated as quantities
+ * and prices change.
+ * 
+ * @author stephen
+ *
+ */
+public interface ValuationService {
+	/**
+	 * Get valuation of each warehouse and of all warehouses.
+	 * 
+	 * @return valuation report
+	 */
+	public ValuationReportDTO getValuation();
+
+	/**
+	 * Replace the valuation with one computed from the database, discarding any
+	 * drift of the totals kept from changes.
+	 */
+	public void rebuild();
+}
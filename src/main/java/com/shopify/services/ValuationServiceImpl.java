@@ -0,0 +1,184 @@
+package com.shopify.services;
+
+import com.shopify.dto.StockValueDTO;
+import com.shopify.dto.ValuationDTO;
+import com.shopify.dto.ValuationReportDTO;
+import com.shopify.dto.WarehouseInventoryDTO;
+import com.shopify.event.InventoryChangeEvent;
+import com.shopify.event.StockChangeEvent;
+import com.shopify.event.StockImportedEvent;
+import com.shopify.model.Inventory;
+import com.shopify.repository.InventoryRepository;
+import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.util.PendingChanges;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Class that represents an implementation of the ValuationService interface.
+ * 
+ * Totals are computed from the database once the application is ready and then
+ * adjusted by the difference each stock change or price change makes, so a
+ * report costs one step per warehouse. A quantity change only needs the price
+ * of its inventory; a price change reads the quantities of that inventory in
+ * each warehouse holding it. Values are kept as exact decimals of the prices.
+ * Adjustments are reverted if their transaction rolls back.
+ * 
+ * A delta is priced with the price its transaction sees, which another
+ * transaction may be changing at the same time, so totals can drift from the
+ * database. They are recomputed on a schedule, and on demand, to bound that
+ * drift. The service is never initialized lazily, since the recompute is only
+ * scheduled once it has been created.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+@Lazy(false)
+public class ValuationServiceImpl implements ValuationService {
+
+	@Autowired
+	private InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Autowired
+	private InventoryRepository inventoryRepository;
+
+	private final Map<Long, Totals> totals = new TreeMap<>();
+
+	/**
+	 * Adjustments made by each transaction, per warehouse.
+	 */
+	private final PendingChanges<Long, Totals> pendingChanges = new PendingChanges<>(this::revert);
+
+	@Override
+	public synchronized ValuationReportDTO getValuation() {
+		List<ValuationDTO> warehouses = new ArrayList<>(totals.size());
+		Totals company = new Totals();
+		for (Map.Entry<Long, Totals> entry : totals.entrySet()) {
+			Totals warehouse = entry.getValue();
+			warehouses.add(new ValuationDTO(entry.getKey(), warehouse.units, warehouse.skuCount, warehouse.value));
+			company.add(warehouse.units, warehouse.skuCount, warehouse.value);
+		}
+		return new ValuationReportDTO(new ValuationDTO(null, company.units, company.skuCount, company.value),
+				warehouses);
+	}
+
+	/**
+	 * Compute totals once the application has started.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public void onApplicationReady() {
+		rebuild();
+	}
+
+	/**
+	 * Recompute totals after a bulk import, which changes quantities without
+	 * stock change events.
+	 * 
+	 * @param event bulk import
+	 */
+	@EventListener
+	public void onStockImported(StockImportedEvent event) {
+		rebuild();
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${valuation.recompute-interval-ms:300000}",
+			initialDelayString = "${valuation.recompute-interval-ms:300000}")
+	public synchronized void rebuild() {
+		totals.clear();
+		for (StockValueDTO row : inventoryWarehouseRepository.findStockValues()) {
+			totals.computeIfAbsent(row.getWarehouseId(), key -> new Totals()).add(row.getUnits(),
+					row.getSkuCount(), BigDecimal.valueOf(row.getPrice()).multiply(BigDecimal.valueOf(row.getUnits())));
+		}
+	}
+
+	/**
+	 * Adjust totals of a warehouse by a change of quantity.
+	 * 
+	 * @param event stock change
+	 */
+	@EventListener
+	public void onStockChange(StockChangeEvent event) {
+		Inventory inventory = inventoryRepository.findById(event.getInventoryId()).orElse(null);
+		if (inventory == null) {
+			return;
+		}
+		long skuDelta = 0;
+		if (event.getType() == StockChangeEvent.Type.PLACED) {
+			skuDelta = 1;
+		} else if (event.getType() == StockChangeEvent.Type.REMOVED) {
+			skuDelta = -1;
+		}
+		long unitDelta = (long) event.getQuantity() - event.getPreviousQuantity();
+		adjust(event.getWarehouseId(), unitDelta, skuDelta,
+				BigDecimal.valueOf(inventory.getPrice()).multiply(BigDecimal.valueOf(unitDelta)));
+	}
+
+	/**
+	 * Adjust value of every warehouse holding an inventory whose price changed.
+	 * 
+	 * @param event inventory change
+	 */
+	@EventListener
+	public void onInventoryChange(InventoryChangeEvent event) {
+		if (event.getType() != InventoryChangeEvent.Type.UPDATED || event.getPrice() == event.getPreviousPrice()) {
+			return;
+		}
+		BigDecimal priceDelta = BigDecimal.valueOf(event.getPrice())
+				.subtract(BigDecimal.valueOf(event.getPreviousPrice()));
+		for (WarehouseInventoryDTO placement : inventoryWarehouseRepository
+				.findByInventoryId(event.getInventoryId())) {
+			adjust(placement.getWarehouseId(), 0, 0,
+					priceDelta.multiply(BigDecimal.valueOf(placement.getQuantity())));
+		}
+	}
+
+	private synchronized void adjust(long warehouseId, long units, long skuCount, BigDecimal value) {
+		apply(warehouseId, units, skuCount, value);
+		Map<Long, Totals> changes = pendingChanges.current();
+		if (changes != null) {
+			changes.computeIfAbsent(warehouseId, key -> new Totals()).add(units, skuCount, value);
+		}
+	}
+
+	private void apply(long warehouseId, long units, long skuCount, BigDecimal value) {
+		Totals warehouse = totals.computeIfAbsent(warehouseId, key -> new Totals());
+		warehouse.add(units, skuCount, value);
+		if (warehouse.skuCount == 0) {
+			totals.remove(warehouseId);
+		}
+	}
+
+	private synchronized void revert(Map<Long, Totals> changes) {
+		changes.forEach((warehouseId, change) -> apply(warehouseId, -change.units, -change.skuCount,
+				change.value.negate()));
+	}
+
+	/**
+	 * Units, number of inventory items and value of one warehouse.
+	 */
+	private static class Totals {
+		private long units;
+		private long skuCount;
+		private BigDecimal value = BigDecimal.ZERO;
+
+		private void add(long units, long skuCount, BigDecimal value) {
+			this.units += units;
+			this.skuCount += skuCount;
+			this.value = this.value.add(value);
+		}
+	}
+}
@@ -1,12 +1,16 @@
 package com.shopify.services;
 
 import com.shopify.dto.InventoryDTO;
+import com.shopify.dto.InventoryFilterDTO;
+import com.shopify.dto.InventoryPageDTO;
 import com.shopify.model.Warehouse;
+import com.shopify.services.ConcurrencyLimited.Priority;
 import java.util.List;
 
 /**
  * Interface that provides a contract for handling business logic related to
- * warehouses.
+ * warehouses. Operations run under the adaptive concurrency limit with the
+ * priority given by {@link ConcurrencyLimited}.
  * 
  * @author stephen
  *
@@ -42,25 +46,22 @@ public interface WarehouseService {
 	public Iterable<Warehouse> getWarehouses();
 
 	/**
-	 * Add new inventory to warehouse. This creates a new entry in the
-	 * InventoryWarehouse table containing added inventory and selected warehouse.
+	 * Get entity tag identifying the current version of the warehouse listing.
 	 * 
-	 * @param id       id of warehouse to receive inventory
-	 * @param quantity quantity of inventory to be added
-	 * @param invId    id of inventory to be added
+	 * @return weak entity tag
 	 */
-	public void addNewInvToWarehouse(long id, int quantity, long invId);
+	public String getWarehousesTag();
 
 	/**
-	 * Add existing inventory to warehouse. This creates a new entry in the
-	 * InventoryWarehouse table containing already existing inventory and selected
-	 * warehouse.
+	 * Add inventory to warehouse. This creates a new entry in the
+	 * InventoryWarehouse table containing the inventory and selected warehouse,
+	 * or adds to its quantity if the entry already exists.
 	 * 
 	 * @param id       id of warehouse to receive inventory
 	 * @param quantity quantity of inventory to be added
-	 * @param invId    id of existing inventory to be added
+	 * @param invId    id of inventory to be added
 	 */
-	public void addExistingInvToWarehouse(long id, int quantity, long invId);
+	public void addInvToWarehouse(long id, int quantity, long invId);
 
 	/**
 	 * Delete inventory from warehouse. This deletes a row in InventoryWarehouse
@@ -72,7 +73,8 @@ public interface WarehouseService {
 	public void deleteInvFromWarehouse(long id, long invId);
 
 	/**
-	 * Increase quantity of inventory in warehouse.
+	 * Increase quantity of inventory in warehouse. Concurrent changes of the same
+	 * entry may be applied together in one transaction.
 	 * 
 	 * @param id       id of warehouse in focus
 	 * @param invId    id of inventory to be increased
@@ -81,12 +83,14 @@ public interface WarehouseService {
 	public void increaseInvInWarehouse(long id, long invId, int quantity);
 
 	/**
-	 * Decrease quantity of inventory in warehouse.
+	 * Decrease quantity of inventory in warehouse, but not below zero. Concurrent
+	 * changes of the same entry may be applied together in one transaction.
 	 * 
 	 * @param id       id of warehouse in focus
 	 * @param invId    id of inventory to be decreased
 	 * @param quantity quantity of decrease
 	 */
+	@ConcurrencyLimited(Priority.CRITICAL)
 	public void decreaseInvInWarehouse(long id, long invId, int quantity);
 
 	/**
@@ -95,13 +99,32 @@ public interface WarehouseService {
 	 * 
 	 * @return list of all inventory
 	 */
+	@ConcurrencyLimited(Priority.BULK)
 	public List<InventoryDTO> getAllInv();
 
+	/**
+	 * Get entity tag identifying the current version of the inventory listing. The
+	 * tag changes whenever inventory or its quantity in any warehouse changes.
+	 * 
+	 * @return weak entity tag
+	 */
+	public String getAllInvTag();
+
 	/**
 	 * Get inventory in specified warehouse.
 	 * 
 	 * @param id id of warehouse to retrieve inventory from
 	 * @return list of inventory in specified warehouse
 	 */
+	@ConcurrencyLimited(Priority.BULK)
 	public List<InventoryDTO> getAllInvByWarehouse(long id);
+
+	/**
+	 * Get one page of inventory quantities per warehouse matching a filter.
+	 * 
+	 * @param filter filters, sort order, position and page size
+	 * @return page of matching rows and cursor of next page
+	 */
+	@ConcurrencyLimited(Priority.BULK)
+	public InventoryPageDTO queryInventory(InventoryFilterDTO filter);
 }
@@ -1,20 +1,27 @@
 package com.shopify.services;
 
 import com.shopify.dto.InventoryDTO;
-import com.shopify.model.Inventory;
+import com.shopify.dto.InventoryFilterDTO;
+import com.shopify.dto.InventoryPageDTO;
+import com.shopify.dto.WarehouseInventoryDTO;
+import com.shopify.event.StockChangeEvent;
 import com.shopify.model.InventoryWarehouse;
-import com.shopify.model.InventoryWarehouseId;
 import com.shopify.model.Warehouse;
-import com.shopify.repository.InventoryRepository;
 import com.shopify.repository.InventoryWarehouseRepository;
 import com.shopify.repository.WarehouseRepository;
+import com.shopify.util.InventoryCursor;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Class that represents an implementation of the WarehouseService interface.
  * 
+ * Increases and decreases of quantity are applied by the configured
+ * {@link StockWriteEngine}, which starts transactions of its own.
+ * 
  * @author stephen
  *
  */
@@ -28,12 +35,19 @@ public class WarehouseServiceImpl implements WarehouseService {
 	private InventoryWarehouseRepository inventoryWarehouseRepository;
 
 	@Autowired
-	private InventoryRepository inventoryRepository;
+	private ChangeVersionTracker changeVersionTracker;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private StockWriteEngine stockWriteEngine;
 
 	@Override
 	public void createWarehouse(String name) {
 		Warehouse warehouse = new Warehouse(name);
 		warehouseRepository.save(warehouse);
+		changeVersionTracker.warehouseChanged();
 	}
 
 	@Override
@@ -41,12 +55,14 @@ public class WarehouseServiceImpl implements WarehouseService {
 		Warehouse warehouse = warehouseRepository.findById(id).orElse(null);
 		warehouse.setWarehouseName(name);
 		warehouseRepository.save(warehouse);
+		changeVersionTracker.warehouseChanged();
 	}
 
 	@Override
 	public void deleteWarehouse(long id) {
 		Warehouse warehouse = warehouseRepository.findById(id).orElse(null);
 		warehouseRepository.delete(warehouse);
+		changeVersionTracker.warehouseChanged();
 	}
 
 	@Override
@@ -55,56 +71,41 @@ public class WarehouseServiceImpl implements WarehouseService {
 	}
 
 	@Override
-	public void addNewInvToWarehouse(long id, int quantity, long invId) {
-		Inventory inv = inventoryRepository.findById(invId).orElse(null);
-		Warehouse warehouse = warehouseRepository.findById(id).orElse(null);
-		InventoryWarehouseId compositeKey = new InventoryWarehouseId(warehouse, inv);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(compositeKey, quantity);
-		inventoryWarehouseRepository.save(inventoryWarehouse);
-
+	public String getWarehousesTag() {
+		return changeVersionTracker.getWarehouseTag();
 	}
 
 	@Override
-	public void addExistingInvToWarehouse(long id, int quantity, long invId) {
-		Inventory inv = inventoryRepository.findById(invId).orElse(null);
-		Warehouse warehouse = warehouseRepository.findById(id).orElse(null);
-		InventoryWarehouseId compositeKey = new InventoryWarehouseId(warehouse, inv);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(compositeKey, quantity);
-		inventoryWarehouseRepository.save(inventoryWarehouse);
-
+	@Transactional
+	public void addInvToWarehouse(long id, int quantity, long invId) {
+		int previous = inventoryWarehouseRepository.upsertIncrement(invId, id, quantity);
+		changeVersionTracker.inventoryChanged();
+		if (previous < 0) {
+			eventPublisher.publishEvent(new StockChangeEvent(StockChangeEvent.Type.PLACED, invId, id, quantity, 0));
+		} else {
+			eventPublisher.publishEvent(new StockChangeEvent(StockChangeEvent.Type.ADJUSTED, invId, id,
+					previous + quantity, previous));
+		}
 	}
 
 	@Override
+	@Transactional
 	public void deleteInvFromWarehouse(long id, long invId) {
-		Inventory inv = inventoryRepository.findById(invId).orElse(null);
-		Warehouse warehouse = warehouseRepository.findById(id).orElse(null);
-		InventoryWarehouse inventoryWarehouse = inventoryWarehouseRepository.findByInventoryAndWarehouse(inv,
-				warehouse);
+		InventoryWarehouse inventoryWarehouse = inventoryWarehouseRepository.findByIds(invId, id);
 		inventoryWarehouseRepository.delete(inventoryWarehouse);
+		changeVersionTracker.inventoryChanged();
+		eventPublisher.publishEvent(new StockChangeEvent(StockChangeEvent.Type.REMOVED, invId, id, 0,
+				inventoryWarehouse.getTotalQuantity()));
 	}
 
 	@Override
 	public void increaseInvInWarehouse(long id, long invId, int quantity) {
-		Inventory inv = inventoryRepository.findById(invId).orElse(null);
-		Warehouse warehouse = warehouseRepository.findById(id).orElse(null);
-		InventoryWarehouse inventoryWarehouse = inventoryWarehouseRepository.findByInventoryAndWarehouse(inv,
-				warehouse);
-		int newQuantity = inventoryWarehouse.getTotalQuantity() + quantity;
-		inventoryWarehouse.setTotalQuantity(newQuantity);
-		inventoryWarehouseRepository.save(inventoryWarehouse);
-
+		stockWriteEngine.adjust(invId, id, quantity);
 	}
 
 	@Override
 	public void decreaseInvInWarehouse(long id, long invId, int quantity) {
-		Inventory inv = inventoryRepository.findById(invId).orElse(null);
-		Warehouse warehouse = warehouseRepository.findById(id).orElse(null);
-		InventoryWarehouse inventoryWarehouse = inventoryWarehouseRepository.findByInventoryAndWarehouse(inv,
-				warehouse);
-		int newQuantity = Math.max(0, inventoryWarehouse.getTotalQuantity() - quantity);
-		inventoryWarehouse.setTotalQuantity(newQuantity);
-		inventoryWarehouseRepository.save(inventoryWarehouse);
-
+		stockWriteEngine.adjust(invId, id, -quantity);
 	}
 
 	@Override
@@ -112,8 +113,24 @@ public class WarehouseServiceImpl implements WarehouseService {
 		return inventoryWarehouseRepository.findIdPriceQuantityGroupById();
 	}
 
+	@Override
+	public String getAllInvTag() {
+		return changeVersionTracker.getInventoryTag();
+	}
+
 	@Override
 	public List<InventoryDTO> getAllInvByWarehouse(long id) {
 		return inventoryWarehouseRepository.findIdPriceQuantityByWarehouseId(id);
 	}
+
+	@Override
+	public InventoryPageDTO queryInventory(InventoryFilterDTO filter) {
+		List<WarehouseInventoryDTO> rows = inventoryWarehouseRepository.findByFilter(filter, filter.getSize() + 1);
+		String nextCursor = null;
+		if (rows.size() > filter.getSize()) {
+			rows = rows.subList(0, filter.getSize());
+			nextCursor = InventoryCursor.encode(rows.get(rows.size() - 1), filter);
+		}
+		return new InventoryPageDTO(rows, nextCursor);
+	}
 }
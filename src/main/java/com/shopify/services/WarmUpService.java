@@ -0,0 +1,29 @@
+package com.shopify.services;
+
+import com.shopify.dto.WarmUpReportDTO;
+
+/**
+ * Interface that provides a contract for warming up the application before it
+ * reports that it is ready: opening database connections, loading caches and
+ * exercising frequently used endpoints so that they are compiled.
+ * 
+ * @author stephen
+ *
+ */
+public interface WarmUpService {
+	/**
+	 * Warm up the application. Failures are logged and recorded in the report
+	 * rather than thrown, so that a failed warm-up never keeps the application
+	 * from starting.
+	 * 
+	 * @return outcome of warm-up
+	 */
+	public WarmUpReportDTO warmUp();
+
+	/**
+	 * Get the outcome of the last warm-up.
+	 * 
+	 * @return outcome of warm-up
+	 */
+	public WarmUpReportDTO getReport();
+}
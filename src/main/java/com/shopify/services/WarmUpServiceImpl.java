@@ -0,0 +1,193 @@
+package com.shopify.services;
+
+import com.shopify.dto.WarmUpReportDTO;
+import com.shopify.model.Inventory;
+import com.shopify.model.Warehouse;
+import com.shopify.repository.InventoryRepository;
+import com.shopify.repository.WarehouseRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Class that represents an implementation of the WarmUpService interface.
+ * 
+ * Warm-up runs when the application is ready, after the in-memory projections
+ * have loaded. Spring Boot only reports the application as accepting traffic
+ * once all ready listeners have returned, so load balancers keep traffic away
+ * until warm-up is done. It fills the connection pool up to its minimum idle
+ * size, loads warehouses and the first inventories into the second-level cache,
+ * and then requests frequently used endpoints over the loopback interface for a
+ * number of rounds, so that request handling, queries and serialization are
+ * compiled before real traffic arrives. Endpoints are only requested when the
+ * application runs in a web server.
+ * 
+ * @author stephen
+ *
+ */
+@Service
+public class WarmUpServiceImpl implements WarmUpService {
+
+	private static final Logger logger = LoggerFactory.getLogger(WarmUpServiceImpl.class);
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private WarehouseRepository warehouseRepository;
+
+	@Autowired
+	private InventoryRepository inventoryRepository;
+
+	@Autowired
+	private Environment environment;
+
+	@Value("${warmup.enabled:true}")
+	private boolean enabled;
+
+	@Value("${warmup.inventory-count:200}")
+	private int inventoryCount;
+
+	@Value("${warmup.rounds:30}")
+	private int rounds;
+
+	private volatile WarmUpReportDTO report = createReport("PENDING");
+
+	/**
+	 * Warm up once the application is ready, after other ready listeners.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.LOWEST_PRECEDENCE)
+	public void onApplicationReady() {
+		if (enabled) {
+			warmUp();
+		}
+	}
+
+	@Override
+	public synchronized WarmUpReportDTO warmUp() {
+		long start = System.nanoTime();
+		WarmUpReportDTO result = createReport("RUNNING");
+		report = result;
+		try {
+			result.setConnectionsOpened(openConnections());
+			int warehouses = 0;
+			for (Iterator<Warehouse> i = warehouseRepository.findAll().iterator(); i.hasNext(); i.next()) {
+				warehouses++;
+			}
+			result.setWarehousesLoaded(warehouses);
+			List<Inventory> inventories = inventoryRepository
+					.findAll(PageRequest.of(0, inventoryCount, Sort.by("inventoryId"))).getContent();
+			result.setInventoriesLoaded(inventories.size());
+
+			Integer port = environment.getProperty("local.server.port", Integer.class);
+			if (port != null) {
+				requestEndpoints(port, inventories, result);
+			}
+			result.setState("COMPLETED");
+		} catch (Exception e) {
+			logger.warn("Warm-up failed, continuing cold", e);
+			result.setState("FAILED");
+		}
+		result.setDurationMillis((System.nanoTime() - start) / 1e6);
+		logger.info("Warm-up {} in {} ms: {} connections, {} warehouses, {} inventories, {} rounds, first round {} ms,"
+				+ " last round {} ms", result.getState().toLowerCase(), Math.round(result.getDurationMillis()),
+				result.getConnectionsOpened(), result.getWarehousesLoaded(), result.getInventoriesLoaded(),
+				result.getRounds(), Math.round(result.getFirstRoundMillis()), Math.round(result.getLastRoundMillis()));
+		return result;
+	}
+
+	@Override
+	public WarmUpReportDTO getReport() {
+		return report;
+	}
+
+	/**
+	 * Borrow as many connections as the pool keeps idle at the same time, so that
+	 * all of them are opened now rather than by the first requests.
+	 */
+	private int openConnections() throws SQLException {
+		int count = 1;
+		if (dataSource.isWrapperFor(HikariDataSource.class)) {
+			count = Math.max(1, dataSource.unwrap(HikariDataSource.class).getMinimumIdle());
+		}
+		List<Connection> connections = new ArrayList<>(count);
+		try {
+			for (int i = 0; i < count; i++) {
+				Connection connection = dataSource.getConnection();
+				connections.add(connection);
+				connection.isValid(1);
+			}
+		} finally {
+			for (Connection connection : connections) {
+				connection.close();
+			}
+		}
+		return connections.size();
+	}
+
+	/**
+	 * Request read endpoints for a number of rounds, timing each round.
+	 */
+	private void requestEndpoints(int port, List<Inventory> inventories, WarmUpReportDTO result) {
+		UriComponentsBuilder base = UriComponentsBuilder.fromHttpUrl("http://localhost:" + port + "/api/v1/");
+		List<URI> uris = new ArrayList<>();
+		uris.add(base.cloneBuilder().path("warehouse").build().toUri());
+		uris.add(base.cloneBuilder().path("inventory/query").queryParam("size", 20).build().toUri());
+		if (!inventories.isEmpty()) {
+			Inventory first = inventories.get(0);
+			String ids = inventories.stream().map(i -> String.valueOf(i.getInventoryId()))
+					.collect(Collectors.joining(","));
+			String prefix = first.getInventoryName().substring(0, Math.min(2, first.getInventoryName().length()));
+			uris.add(base.cloneBuilder().path("inventory/{id}/availability").build(first.getInventoryId()));
+			uris.add(base.cloneBuilder().path("inventory/availability").queryParam("ids", ids).build().toUri());
+			uris.add(base.cloneBuilder().path("inventory/typeahead").queryParam("prefix", "{prefix}").build(prefix));
+		}
+
+		RestTemplate restTemplate = new RestTemplate();
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		HttpEntity<Void> request = new HttpEntity<>(headers);
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			for (URI uri : uris) {
+				restTemplate.exchange(uri, HttpMethod.GET, request, byte[].class);
+			}
+			double millis = (System.nanoTime() - start) / 1e6;
+			if (round == 0) {
+				result.setFirstRoundMillis(millis);
+			}
+			result.setLastRoundMillis(millis);
+			result.setRounds(round + 1);
+		}
+	}
+
+	private static WarmUpReportDTO createReport(String state) {
+		WarmUpReportDTO result = new WarmUpReportDTO();
+		result.setState(state);
+		return result;
+	}
+}
@@ -6,7 +6,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Class that represents a configuration to specify the rules pertaining to
- * cross origin resource sharing.
+ * cross origin resource sharing. The ETag header is exposed so that browser
+ * clients can issue conditional requests.
  * 
  * @author stephen
  *
@@ -16,6 +17,6 @@ public class WebConfiguration implements WebMvcConfigurer {
 
 	@Override
 	public void addCorsMappings(CorsRegistry registry) {
-		registry.addMapping("/api/**").allowedMethods("*");
+		registry.addMapping("/api/**").allowedMethods("*").exposedHeaders("ETag");
 	}
 }
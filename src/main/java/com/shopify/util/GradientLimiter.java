@@ -0,0 +1,106 @@
+package com.shopify.util;
+
+/**
+ * Class that represents an adaptive concurrency limit following the gradient
+ * of latency. A slow moving average of latency is the baseline and a fast one
+ * the current latency; while current latency stays within a tolerance of the
+ * baseline the limit grows by about its square root per sample, and as current
+ * latency rises above that the limit shrinks in proportion, by at most half.
+ * Changes are smoothed, and the limit only grows when at least half of it is in
+ * use, so an idle system does not talk itself into a limit it never tested.
+ * If the baseline drifts far above current latency, as after a slow period, it
+ * decays towards it.
+ * 
+ * Operations are admitted up to a share of the limit, so that operations with a
+ * smaller share are turned away first when the limit shrinks.
+ * 
+ * @author stephen
+ *
+ */
+public class GradientLimiter {
+	private static final double TOLERANCE = 1.5;
+	private static final double SMOOTHING = 0.2;
+	private static final double LONG_WINDOW = 600;
+	private static final double SHORT_WINDOW = 10;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private double limit;
+	private int inFlight;
+	private double longRtt;
+	private double shortRtt;
+
+	/**
+	 * Constructs a limiter with specified bounds.
+	 * 
+	 * @param initialLimit limit before any latency was measured
+	 * @param minLimit     lowest limit
+	 * @param maxLimit     highest limit
+	 */
+	public GradientLimiter(int initialLimit, int minLimit, int maxLimit) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = initialLimit;
+	}
+
+	/**
+	 * Admit an operation if fewer operations are in flight than its share of the
+	 * limit.
+	 * 
+	 * @param share part of the limit the operation may use, at most 1
+	 * @return true if admitted, in which case it must be released
+	 */
+	public synchronized boolean tryAcquire(double share) {
+		if (inFlight >= Math.max(1, (int) (limit * share))) {
+			return false;
+		}
+		inFlight++;
+		return true;
+	}
+
+	/**
+	 * Release an admitted operation and adjust the limit to its latency.
+	 * 
+	 * @param rttNanos latency of the operation, or a negative value if its
+	 *                 latency says nothing about load, as when it failed
+	 */
+	public synchronized void release(long rttNanos) {
+		int observedInFlight = inFlight--;
+		if (rttNanos < 0) {
+			return;
+		}
+		if (longRtt == 0) {
+			longRtt = rttNanos;
+			shortRtt = rttNanos;
+		} else {
+			longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+			shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+		}
+		if (longRtt / shortRtt > 2) {
+			longRtt *= 0.95;
+		}
+
+		double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+		if (gradient == 1.0 && observedInFlight < limit / 2) {
+			return;
+		}
+		double target = limit * gradient + Math.sqrt(limit);
+		limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+	}
+
+	public synchronized double getLimit() {
+		return limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized double getLongRttNanos() {
+		return longRtt;
+	}
+
+	public synchronized double getShortRttNanos() {
+		return shortRtt;
+	}
+}
@@ -0,0 +1,82 @@
+package com.shopify.util;
+
+import com.shopify.dto.InventoryFilterDTO;
+import com.shopify.dto.WarehouseInventoryDTO;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Class that converts the position of an inventory query to and from the opaque
+ * cursor handed to clients. A cursor holds the sort order it was created for,
+ * so it cannot be replayed against a different order.
+ * 
+ * @author stephen
+ *
+ */
+public final class InventoryCursor {
+
+	private InventoryCursor() {
+	}
+
+	/**
+	 * Create the cursor of the page following a row.
+	 * 
+	 * @param row    last row of page
+	 * @param filter query the row was returned by
+	 * @return cursor
+	 */
+	public static String encode(WarehouseInventoryDTO row, InventoryFilterDTO filter) {
+		Object value;
+		switch (filter.getSort()) {
+		case PRICE:
+			value = row.getPrice();
+			break;
+		case QUANTITY:
+			value = row.getQuantity();
+			break;
+		default:
+			value = row.getName();
+		}
+		String position = filter.getSort() + "|" + filter.isDescending() + "|" + row.getInventoryId() + "|"
+				+ row.getWarehouseId() + "|" + value;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Set the position of a query to the one held by a cursor.
+	 * 
+	 * @param cursor cursor of page
+	 * @param filter query to continue
+	 * @throws IllegalArgumentException if cursor is malformed or was created for a
+	 *                                  different sort order
+	 */
+	public static void decode(String cursor, InventoryFilterDTO filter) {
+		String[] parts;
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 5);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+		if (parts.length != 5 || !parts[0].equals(filter.getSort().name())
+				|| !parts[1].equals(String.valueOf(filter.isDescending()))) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+
+		try {
+			Object value;
+			switch (filter.getSort()) {
+			case PRICE:
+				value = Double.valueOf(parts[4]);
+				break;
+			case QUANTITY:
+				value = Integer.valueOf(parts[4]);
+				break;
+			default:
+				value = parts[4];
+			}
+			filter.setAfter(value, Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package com.shopify.util;
+
+import com.shopify.dto.InventorySearchDTO;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Class that represents an in-memory index over inventory names. Two sorted
+ * structures are kept: full names for typeahead, and an inverted index from
+ * name words to inventory ids for word queries. Typeahead answers a page in time
+ * proportional to the page. Word queries scan either the ids of their rarest
+ * complete word or the ids of words their last, partial word completes to,
+ * usually whichever is fewer, and stop as soon as the page is full.
+ *
+ * Writes must be serialized by the caller; reads may run concurrently with
+ * writes and see either the old or the new entry of an item being changed.
+ *
+ * @author stephen
+ *
+ */
+public class InventorySearchIndex {
+	/**
+	 * Separates a lower case name from the id in name keys, so that names that
+	 * only differ in case do not collide. Sorts before every printable character.
+	 */
+	private static final char KEY_SEPARATOR = '\u0000';
+	private static final String RANGE_END = "\uffff";
+	private static final int MAX_COUNTED_WORDS = 256;
+
+	private final Map<Long, Entry> items = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListMap<String, Long> names = new ConcurrentSkipListMap<>();
+	private final ConcurrentSkipListMap<String, Posting> words = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Add or replace an item.
+	 *
+	 * @param item inventory to index
+	 */
+	public void put(InventorySearchDTO item) {
+		remove(item.getId());
+		List<String> itemWords = tokenize(item.getName());
+		for (int i = 0; i < itemWords.size(); i++) {
+			Map.Entry<String, Posting> existing = words.ceilingEntry(itemWords.get(i));
+			Posting posting;
+			if (existing != null && existing.getKey().equals(itemWords.get(i))) {
+				// share one string per word instead of one per item
+				itemWords.set(i, existing.getKey());
+				posting = existing.getValue();
+			} else {
+				posting = new Posting();
+				words.put(itemWords.get(i), posting);
+			}
+			if (posting.ids.add(item.getId())) {
+				posting.size++;
+			}
+		}
+		items.put(item.getId(), new Entry(item, itemWords));
+		names.put(nameKey(item), item.getId());
+	}
+
+	/**
+	 * Get an indexed item.
+	 *
+	 * @param id id of inventory
+	 * @return item or null if it is not indexed
+	 */
+	public InventorySearchDTO get(long id) {
+		Entry entry = items.get(id);
+		return entry == null ? null : entry.item;
+	}
+
+	/**
+	 * Remove an item if present.
+	 *
+	 * @param id id of inventory to remove
+	 */
+	public void remove(long id) {
+		Entry entry = items.remove(id);
+		if (entry == null) {
+			return;
+		}
+		names.remove(nameKey(entry.item));
+		for (String word : entry.words) {
+			Posting posting = words.get(word);
+			if (posting != null && posting.ids.remove(id) && --posting.size == 0) {
+				words.remove(word);
+			}
+		}
+	}
+
+	/**
+	 * Number of indexed items.
+	 *
+	 * @return size of index
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * Find items whose name starts with a prefix, ignoring case, in name order.
+	 *
+	 * @param prefix prefix of name
+	 * @param offset number of matches to skip
+	 * @param limit  maximum number of matches to return
+	 * @return matching items
+	 */
+	public List<InventorySearchDTO> findByPrefix(String prefix, int offset, int limit) {
+		String from = prefix.toLowerCase(Locale.ROOT);
+		List<InventorySearchDTO> result = new ArrayList<>(Math.min(limit, 64));
+		int skipped = 0;
+		for (Long id : names.subMap(from, true, from + RANGE_END, false).values()) {
+			if (skipped++ < offset) {
+				continue;
+			}
+			Entry entry = items.get(id);
+			if (entry != null) {
+				result.add(entry.item);
+			}
+			if (result.size() == limit) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find items whose name contains every word of a query, ignoring case. Unless
+	 * the query ends with a separator, its last word only needs to be the prefix
+	 * of a word in the name, which makes the query usable for typeahead. Matches
+	 * are in id order when scanning a complete word, or in order of the word the
+	 * partial word completes to and then id otherwise.
+	 *
+	 * @param query  words to search for
+	 * @param offset number of matches to skip
+	 * @param limit  maximum number of matches to return
+	 * @return matching items
+	 */
+	public List<InventorySearchDTO> findByWords(String query, int offset, int limit) {
+		List<String> complete = tokenize(query);
+		if (complete.isEmpty()) {
+			return Collections.emptyList();
+		}
+		String partial = null;
+		if (Character.isLetterOrDigit(query.charAt(query.length() - 1))) {
+			partial = complete.remove(complete.size() - 1);
+		}
+
+		Posting rarest = null;
+		for (String word : complete) {
+			Posting posting = words.get(word);
+			if (posting == null) {
+				return Collections.emptyList();
+			}
+			if (rarest == null || posting.size < rarest.size) {
+				rarest = posting;
+			}
+		}
+
+		if (partial != null && (rarest == null || !hasMoreCompletions(partial, rarest.size))) {
+			return scanCompletions(partial, complete, offset, limit);
+		}
+
+		List<InventorySearchDTO> result = new ArrayList<>(Math.min(limit, 64));
+		int skipped = 0;
+		for (Long id : rarest.ids) {
+			Entry entry = items.get(id);
+			if (entry == null || !entry.matches(complete, partial) || skipped++ < offset) {
+				continue;
+			}
+			result.add(entry.item);
+			if (result.size() == limit) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Check whether the words starting with a prefix have more ids than a limit.
+	 * Only the first words are counted, to keep the check cheap; a prefix with
+	 * more words than that is short enough to be completed by many items, so
+	 * scanning its words fills a page quickly anyway.
+	 */
+	private boolean hasMoreCompletions(String partial, int max) {
+		int count = 0;
+		int seen = 0;
+		for (Posting posting : words.subMap(partial, true, partial + RANGE_END, false).values()) {
+			count += posting.size;
+			if (count > max) {
+				return true;
+			}
+			if (++seen == MAX_COUNTED_WORDS) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private List<InventorySearchDTO> scanCompletions(String partial, List<String> complete, int offset,
+			int limit) {
+		List<InventorySearchDTO> result = new ArrayList<>(Math.min(limit, 64));
+		Set<Long> seen = new HashSet<>();
+		int skipped = 0;
+		for (Posting posting : words.subMap(partial, true, partial + RANGE_END, false).values()) {
+			for (Long id : posting.ids) {
+				Entry entry = items.get(id);
+				if (entry == null || !entry.matches(complete, null) || !seen.add(id) || skipped++ < offset) {
+					continue;
+				}
+				result.add(entry.item);
+				if (result.size() == limit) {
+					return result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static String nameKey(InventorySearchDTO item) {
+		return item.getName().toLowerCase(Locale.ROOT) + KEY_SEPARATOR + item.getId();
+	}
+
+	/**
+	 * Split text into lower case words of letters and digits.
+	 */
+	static List<String> tokenize(String text) {
+		List<String> result = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (part && start < 0) {
+				start = i;
+			} else if (!part && start >= 0) {
+				result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Indexed item and the words of its name.
+	 */
+	private static final class Entry {
+		private final InventorySearchDTO item;
+		private final String[] words;
+
+		private Entry(InventorySearchDTO item, List<String> words) {
+			this.item = item;
+			this.words = words.toArray(new String[0]);
+		}
+
+		private boolean matches(List<String> complete, String partial) {
+			for (String word : complete) {
+				if (!contains(word)) {
+					return false;
+				}
+			}
+			if (partial == null) {
+				return true;
+			}
+			for (String word : words) {
+				if (word.startsWith(partial)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean contains(String word) {
+			for (String own : words) {
+				if (own.equals(word)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Ids of items whose name contains a word. The size is kept separately since
+	 * counting a skip list walks all of it.
+	 */
+	private static final class Posting {
+		private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+		private volatile int size;
+	}
+}
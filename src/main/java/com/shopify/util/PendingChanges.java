@@ -0,0 +1,89 @@
+package com.shopify.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Class that represents the changes the current transaction has made to state
+ * kept in memory, such as a projection updated from events as they are
+ * published. The changes are bound to the transaction until it completes, and
+ * passed to an undo callback if it rolls back. Changes made outside a
+ * transaction are not kept, since they cannot be rolled back.
+ *
+ * @param <K> type of key of changed state
+ * @param <V> type of what is kept to undo a change
+ *
+ * @author stephen
+ *
+ */
+public class PendingChanges<K, V> {
+	private final Consumer<Map<K, V>> undo;
+
+	/**
+	 * Changes of transactions that have not completed yet.
+	 */
+	private final Set<Map<K, V>> open = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+	/**
+	 * Constructs changes undone by a callback.
+	 *
+	 * @param undo undoes the changes of a rolled back transaction
+	 */
+	public PendingChanges(Consumer<Map<K, V>> undo) {
+		this.undo = undo;
+	}
+
+	/**
+	 * Get the changes made in the current transaction, registering a
+	 * synchronization that undoes them on rollback the first time.
+	 *
+	 * @return changes of current transaction, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<K, V> current() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+		Map<K, V> changes = (Map<K, V>) TransactionSynchronizationManager.getResource(this);
+		if (changes == null) {
+			Map<K, V> registered = new HashMap<>();
+			TransactionSynchronizationManager.bindResource(this, registered);
+			open.add(registered);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(PendingChanges.this);
+					open.remove(registered);
+					if (status == STATUS_ROLLED_BACK) {
+						undo.accept(registered);
+					}
+				}
+			});
+			changes = registered;
+		}
+		return changes;
+	}
+
+	/**
+	 * Get the keys changed by transactions that have not completed yet. Must be
+	 * called holding the lock that guards changes, so that none is being made.
+	 *
+	 * @return keys of uncommitted changes
+	 */
+	public Set<K> openKeys() {
+		Set<K> keys = new HashSet<>();
+		synchronized (open) {
+			for (Map<K, V> changes : open) {
+				keys.addAll(changes.keySet());
+			}
+		}
+		return keys;
+	}
+}
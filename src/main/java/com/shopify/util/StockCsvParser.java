@@ -0,0 +1,236 @@
+package com.shopify.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that parses a chunk of a stock count file into inventory names,
+ * warehouse names and quantities. Each line has three fields separated by
+ * commas: inventory name, warehouse name and quantity. Names may be quoted,
+ * with quotes inside them doubled, and spaces around unquoted fields are
+ * ignored. A chunk must end at the end of a line, so that chunks of one file
+ * can be parsed independently of each other.
+ * 
+ * @author stephen
+ *
+ */
+public class StockCsvParser {
+
+	private StockCsvParser() {
+	}
+
+	/**
+	 * Parse a chunk of a file.
+	 * 
+	 * @param data       bytes of chunk
+	 * @param length     number of bytes of chunk in data
+	 * @param skipHeader true to skip the first line if its quantity is not a
+	 *                   number
+	 * @return parsed lines and rejected lines
+	 */
+	public static Chunk parse(byte[] data, int length, boolean skipHeader) {
+		Chunk chunk = new Chunk(Math.max(16, length / 24));
+		int position = 0;
+		int line = 0;
+		String[] fields = new String[3];
+		while (position < length) {
+			int end = position;
+			while (end < length && data[end] != '\n') {
+				end++;
+			}
+			int next = end + 1;
+			if (end > position && data[end - 1] == '\r') {
+				end--;
+			}
+			if (end > position) {
+				String error = split(data, position, end, fields);
+				Integer quantity = error == null ? parseQuantity(fields[2]) : null;
+				if (quantity != null) {
+					chunk.add(line, fields[0], fields[1], quantity);
+				} else if (error == null && line == 0 && skipHeader) {
+					chunk.header = true;
+				} else {
+					chunk.reject(line, error == null ? "invalid quantity '" + fields[2] + "'" : error);
+				}
+			}
+			line++;
+			position = next;
+		}
+		chunk.lines = line;
+		return chunk;
+	}
+
+	/**
+	 * Split a line into its fields.
+	 * 
+	 * @return null or the reason the line cannot be split
+	 */
+	private static String split(byte[] data, int start, int end, String[] fields) {
+		int position = start;
+		for (int field = 0; field < 3; field++) {
+			while (position < end && data[position] == ' ') {
+				position++;
+			}
+			if (position < end && data[position] == '"') {
+				StringBuilder value = null;
+				int from = ++position;
+				while (true) {
+					if (position >= end) {
+						return "unterminated quote";
+					}
+					if (data[position] == '"') {
+						if (position + 1 < end && data[position + 1] == '"') {
+							if (value == null) {
+								value = new StringBuilder();
+							}
+							value.append(new String(data, from, position + 1 - from, StandardCharsets.UTF_8));
+							position += 2;
+							from = position;
+							continue;
+						}
+						break;
+					}
+					position++;
+				}
+				String last = new String(data, from, position - from, StandardCharsets.UTF_8);
+				fields[field] = value == null ? last : value.append(last).toString();
+				position++;
+				while (position < end && data[position] == ' ') {
+					position++;
+				}
+			} else {
+				int from = position;
+				while (position < end && data[position] != ',') {
+					position++;
+				}
+				int to = position;
+				while (to > from && data[to - 1] == ' ') {
+					to--;
+				}
+				fields[field] = new String(data, from, to - from, StandardCharsets.UTF_8);
+			}
+			if (field < 2) {
+				if (position >= end || data[position] != ',') {
+					return "expected 3 fields";
+				}
+				position++;
+			} else if (position < end) {
+				return "expected 3 fields";
+			}
+		}
+		if (fields[0].isEmpty() || fields[1].isEmpty()) {
+			return "empty name";
+		}
+		return null;
+	}
+
+	private static Integer parseQuantity(String value) {
+		if (value.isEmpty() || value.length() > 10) {
+			return null;
+		}
+		long quantity = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char digit = value.charAt(i);
+			if (digit < '0' || digit > '9') {
+				return null;
+			}
+			quantity = quantity * 10 + digit - '0';
+		}
+		return quantity > Integer.MAX_VALUE ? null : (int) quantity;
+	}
+
+	/**
+	 * Lines of a chunk. Line numbers start at 0 at the start of the chunk.
+	 */
+	public static final class Chunk {
+		private int size;
+		private int[] lineNumbers;
+		private String[] inventoryNames;
+		private String[] warehouseNames;
+		private int[] quantities;
+		private final List<Integer> rejectedLines = new ArrayList<>();
+		private final List<String> rejections = new ArrayList<>();
+		private int lines;
+		private boolean header;
+
+		private Chunk(int capacity) {
+			lineNumbers = new int[capacity];
+			inventoryNames = new String[capacity];
+			warehouseNames = new String[capacity];
+			quantities = new int[capacity];
+		}
+
+		private void add(int line, String inventoryName, String warehouseName, int quantity) {
+			if (size == quantities.length) {
+				int capacity = size * 2;
+				lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+				inventoryNames = Arrays.copyOf(inventoryNames, capacity);
+				warehouseNames = Arrays.copyOf(warehouseNames, capacity);
+				quantities = Arrays.copyOf(quantities, capacity);
+			}
+			lineNumbers[size] = line;
+			inventoryNames[size] = inventoryName;
+			warehouseNames[size] = warehouseName;
+			quantities[size] = quantity;
+			size++;
+		}
+
+		private void reject(int line, String reason) {
+			rejectedLines.add(line);
+			rejections.add(reason);
+		}
+
+		/**
+		 * Number of lines parsed successfully.
+		 */
+		public int size() {
+			return size;
+		}
+
+		public int getLineNumber(int i) {
+			return lineNumbers[i];
+		}
+
+		public String getInventoryName(int i) {
+			return inventoryNames[i];
+		}
+
+		public String getWarehouseName(int i) {
+			return warehouseNames[i];
+		}
+
+		public int getQuantity(int i) {
+			return quantities[i];
+		}
+
+		/**
+		 * Line numbers of lines that could not be parsed.
+		 */
+		public List<Integer> getRejectedLines() {
+			return rejectedLines;
+		}
+
+		/**
+		 * Reasons of lines that could not be parsed, in the order of their lines.
+		 */
+		public List<String> getRejections() {
+			return rejections;
+		}
+
+		/**
+		 * Number of lines in the chunk, including empty lines and a header.
+		 */
+		public int getLines() {
+			return lines;
+		}
+
+		/**
+		 * Whether the first line was skipped as a header.
+		 */
+		public boolean hasHeader() {
+			return header;
+		}
+	}
+}
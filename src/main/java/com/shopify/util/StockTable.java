@@ -0,0 +1,325 @@
+package com.shopify.util;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Class that represents an in-memory table of quantities of inventory per
+ * warehouse and in total, held in primitive arrays. Entries are kept in open
+ * addressing hash tables with linear probing, keyed by inventory id and
+ * warehouse id, so a lookup is a few array reads with no boxing and no objects
+ * per entry. Ids must be positive; 0 marks an empty slot. The warehouses in use
+ * are counted as well, so that all entries of an inventory can be looked up one
+ * warehouse at a time.
+ *
+ * Reads are optimistic: they take no lock and are retried under a read lock
+ * only if a write happened meanwhile. Writes take an exclusive lock.
+ *
+ * @author stephen
+ *
+ */
+public class StockTable {
+	private static final int MIN_CAPACITY = 16;
+
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * Quantities by inventory and warehouse.
+	 */
+	private Slots entries;
+
+	/**
+	 * Totals and number of warehouses by inventory. The warehouse key is unused.
+	 */
+	private Slots totals;
+
+	/**
+	 * Number of entries by warehouse. The inventory key holds the warehouse id and
+	 * the warehouse key is unused.
+	 */
+	private Slots warehouses;
+
+	/**
+	 * Constructs an empty table sized for an expected number of entries.
+	 *
+	 * @param expectedEntries number of entries to size the table for
+	 */
+	public StockTable(int expectedEntries) {
+		entries = new Slots(capacityFor(expectedEntries));
+		totals = new Slots(capacityFor(expectedEntries / 2));
+		warehouses = new Slots(MIN_CAPACITY);
+	}
+
+	/**
+	 * Get the quantity of an inventory in a warehouse.
+	 *
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 * @return quantity, or -1 if the inventory is not in the warehouse
+	 */
+	public long get(long inventoryId, long warehouseId) {
+		long stamp = lock.tryOptimisticRead();
+		long result = read(entries, inventoryId, warehouseId);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				result = read(entries, inventoryId, warehouseId);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the quantity of an inventory in all warehouses.
+	 *
+	 * @param inventoryId id of inventory
+	 * @return total quantity, or -1 if the inventory is in no warehouse
+	 */
+	public long getTotal(long inventoryId) {
+		long stamp = lock.tryOptimisticRead();
+		long result = read(totals, inventoryId, 0);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				result = read(totals, inventoryId, 0);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Set the quantity of an inventory in a warehouse, adding the entry if it is
+	 * not present.
+	 *
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 * @param quantity    quantity in warehouse
+	 */
+	public void put(long inventoryId, long warehouseId, int quantity) {
+		long stamp = lock.writeLock();
+		try {
+			int slot = find(entries, inventoryId, warehouseId);
+			long previous = 0;
+			if (slot >= 0) {
+				previous = entries.values[slot];
+				entries.values[slot] = quantity;
+			} else {
+				entries = insert(entries, inventoryId, warehouseId, quantity);
+			}
+			int total = find(totals, inventoryId, 0);
+			if (total >= 0) {
+				totals.values[total] += quantity - previous;
+				if (slot < 0) {
+					totals.counts[total]++;
+				}
+			} else {
+				totals = insert(totals, inventoryId, 0, quantity);
+			}
+			if (slot < 0) {
+				int warehouse = find(warehouses, warehouseId, 0);
+				if (warehouse >= 0) {
+					warehouses.counts[warehouse]++;
+				} else {
+					warehouses = insert(warehouses, warehouseId, 0, 0);
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Remove an inventory from a warehouse if present.
+	 *
+	 * @param inventoryId id of inventory
+	 * @param warehouseId id of warehouse
+	 */
+	public void remove(long inventoryId, long warehouseId) {
+		long stamp = lock.writeLock();
+		try {
+			int slot = find(entries, inventoryId, warehouseId);
+			if (slot < 0) {
+				return;
+			}
+			long quantity = entries.values[slot];
+			delete(entries, slot);
+			int total = find(totals, inventoryId, 0);
+			if (--totals.counts[total] == 0) {
+				delete(totals, total);
+			} else {
+				totals.values[total] -= quantity;
+			}
+			int warehouse = find(warehouses, warehouseId, 0);
+			if (--warehouses.counts[warehouse] == 0) {
+				delete(warehouses, warehouse);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Get the ids of warehouses holding at least one inventory, in no particular
+	 * order.
+	 *
+	 * @return ids of warehouses
+	 */
+	public long[] getWarehouseIds() {
+		long stamp = lock.readLock();
+		try {
+			long[] result = new long[warehouses.size];
+			int next = 0;
+			for (long warehouseId : warehouses.inventoryIds) {
+				if (warehouseId != 0) {
+					result[next++] = warehouseId;
+				}
+			}
+			return result;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Number of inventory and warehouse entries.
+	 *
+	 * @return size of table
+	 */
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return entries.size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Read a value without locking. The slots may change while they are read, so
+	 * the arrays are read through one holder, indexes are masked and probing is
+	 * bounded; a wrong result is caught by validating the stamp.
+	 */
+	private static long read(Slots slots, long inventoryId, long warehouseId) {
+		long[] inventoryIds = slots.inventoryIds;
+		long[] warehouseIds = slots.warehouseIds;
+		long[] values = slots.values;
+		int mask = inventoryIds.length - 1;
+		int slot = hash(inventoryId, warehouseId) & mask;
+		for (int probes = 0; probes <= mask; probes++) {
+			long key = inventoryIds[slot];
+			if (key == 0) {
+				return -1;
+			}
+			if (key == inventoryId && warehouseIds[slot] == warehouseId) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int find(Slots slots, long inventoryId, long warehouseId) {
+		int mask = slots.inventoryIds.length - 1;
+		int slot = hash(inventoryId, warehouseId) & mask;
+		while (slots.inventoryIds[slot] != 0) {
+			if (slots.inventoryIds[slot] == inventoryId && slots.warehouseIds[slot] == warehouseId) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Insert a key that is not present, growing the slots first if they are more
+	 * than half full. Growing builds new arrays, so optimistic readers of the old
+	 * ones never see a half moved table.
+	 */
+	private static Slots insert(Slots slots, long inventoryId, long warehouseId, long value) {
+		if ((slots.size + 1) * 2 > slots.inventoryIds.length) {
+			Slots grown = new Slots(slots.inventoryIds.length * 2);
+			for (int i = 0; i < slots.inventoryIds.length; i++) {
+				if (slots.inventoryIds[i] != 0) {
+					place(grown, slots.inventoryIds[i], slots.warehouseIds[i], slots.values[i], slots.counts[i]);
+				}
+			}
+			slots = grown;
+		}
+		place(slots, inventoryId, warehouseId, value, 1);
+		return slots;
+	}
+
+	private static void place(Slots slots, long inventoryId, long warehouseId, long value, int count) {
+		int mask = slots.inventoryIds.length - 1;
+		int slot = hash(inventoryId, warehouseId) & mask;
+		while (slots.inventoryIds[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		slots.warehouseIds[slot] = warehouseId;
+		slots.values[slot] = value;
+		slots.counts[slot] = count;
+		slots.inventoryIds[slot] = inventoryId;
+		slots.size++;
+	}
+
+	/**
+	 * Delete a slot by shifting back the entries after it that probed past it,
+	 * which keeps every probe sequence unbroken without tombstones.
+	 */
+	private static void delete(Slots slots, int slot) {
+		int mask = slots.inventoryIds.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (slots.inventoryIds[next] != 0) {
+			int home = hash(slots.inventoryIds[next], slots.warehouseIds[next]) & mask;
+			// move the entry into the gap unless its home lies after the gap
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				slots.inventoryIds[gap] = slots.inventoryIds[next];
+				slots.warehouseIds[gap] = slots.warehouseIds[next];
+				slots.values[gap] = slots.values[next];
+				slots.counts[gap] = slots.counts[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		slots.inventoryIds[gap] = 0;
+		slots.size--;
+	}
+
+	private static int hash(long inventoryId, long warehouseId) {
+		long h = inventoryId * 0x9E3779B97F4A7C15L + warehouseId;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	private static int capacityFor(int entries) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < entries * 2L && capacity < 1 << 30) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Parallel arrays of one hash table.
+	 */
+	private static final class Slots {
+		private final long[] inventoryIds;
+		private final long[] warehouseIds;
+		private final long[] values;
+		private final int[] counts;
+		private int size;
+
+		private Slots(int capacity) {
+			inventoryIds = new long[capacity];
+			warehouseIds = new long[capacity];
+			values = new long[capacity];
+			counts = new int[capacity];
+		}
+	}
+}
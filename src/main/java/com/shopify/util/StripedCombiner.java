@@ -0,0 +1,193 @@
+package com.shopify.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class that represents a striped queue of updates applied in batches by one
+ * thread at a time per stripe. Updates are assigned to stripes by key, so
+ * updates of one key are applied one batch after the other, in the order they
+ * were submitted, while other stripes proceed in parallel.
+ *
+ * The first thread to submit to an idle stripe becomes its combiner and applies
+ * the queued updates, including those of threads that submitted while it was
+ * busy. Once its own update is applied it hands the stripe to the oldest
+ * waiting thread, so that no thread applies updates for long. Waiting threads
+ * hold nothing but their place in the queue.
+ *
+ * @param <T> type of update
+ *
+ * @author stephen
+ *
+ */
+public class StripedCombiner<T> {
+	/**
+	 * Applies a batch of updates. A batch either succeeds or fails as a whole.
+	 *
+	 * @param <T> type of update
+	 */
+	public interface BatchHandler<T> {
+		/**
+		 * Apply updates in order.
+		 *
+		 * @param batch updates of one stripe, in the order they were submitted
+		 */
+		void apply(List<T> batch);
+	}
+
+	private final Stripe<T>[] stripes;
+	private final int maxBatch;
+	private final BatchHandler<T> handler;
+
+	private final LongAdder batchCount = new LongAdder();
+	private final LongAdder updateCount = new LongAdder();
+
+	/**
+	 * Constructs an instance of this class with specified parameters.
+	 *
+	 * @param stripeCount number of stripes, rounded up to a power of two
+	 * @param maxBatch    maximum number of updates applied in one batch
+	 * @param handler     applies batches of updates
+	 */
+	public StripedCombiner(int stripeCount, int maxBatch, BatchHandler<T> handler) {
+		int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+		// arrays of a generic type can only be created with a wildcard
+		@SuppressWarnings("unchecked")
+		Stripe<T>[] stripes = (Stripe<T>[]) new Stripe<?>[size];
+		this.stripes = stripes;
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new Stripe<>();
+		}
+		this.maxBatch = maxBatch;
+		this.handler = handler;
+	}
+
+	/**
+	 * Submit an update and wait until it has been applied.
+	 *
+	 * @param key    key of the updated item, which selects the stripe
+	 * @param update update to apply
+	 * @throws RuntimeException the exception the batch with the update failed
+	 *                          with
+	 */
+	public void submit(long key, T update) {
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		Stripe<T> stripe = stripes[(int) (mixed >>> 32) & (stripes.length - 1)];
+		Pending<T> pending = new Pending<>(update);
+		boolean interrupted = false;
+		boolean combiner;
+		synchronized (stripe) {
+			stripe.queue.addLast(pending);
+			if (!stripe.busy) {
+				stripe.busy = true;
+				pending.combiner = true;
+			}
+			while (!pending.done && !pending.combiner) {
+				try {
+					stripe.wait();
+				} catch (InterruptedException e) {
+					// the update is queued and will be applied, so wait for it regardless
+					interrupted = true;
+				}
+			}
+			combiner = !pending.done;
+		}
+		if (combiner) {
+			combine(stripe);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (pending.failure != null) {
+			throw pending.failure;
+		}
+	}
+
+	/**
+	 * Apply the next batch of a stripe. The batch starts with the update of the
+	 * calling thread, since a stripe is only handed to the thread at the head of
+	 * its queue.
+	 */
+	private void combine(Stripe<T> stripe) {
+		List<Pending<T>> batch;
+		synchronized (stripe) {
+			batch = new ArrayList<>(Math.min(maxBatch, stripe.queue.size()));
+			while (batch.size() < maxBatch && !stripe.queue.isEmpty()) {
+				batch.add(stripe.queue.pollFirst());
+			}
+		}
+
+		List<T> updates = new ArrayList<>(batch.size());
+		for (Pending<T> pending : batch) {
+			updates.add(pending.update);
+		}
+		RuntimeException failure = null;
+		try {
+			handler.apply(updates);
+		} catch (RuntimeException e) {
+			failure = e;
+		} catch (Error e) {
+			failure = new IllegalStateException("Batch of updates failed", e);
+			throw e;
+		} finally {
+			synchronized (stripe) {
+				for (Pending<T> pending : batch) {
+					pending.failure = failure;
+					pending.done = true;
+				}
+				Pending<T> next = stripe.queue.peekFirst();
+				if (next == null) {
+					stripe.busy = false;
+				} else {
+					next.combiner = true;
+				}
+				stripe.notifyAll();
+			}
+		}
+		batchCount.increment();
+		updateCount.add(batch.size());
+	}
+
+	/**
+	 * Get the number of batches applied so far.
+	 *
+	 * @return number of batches
+	 */
+	public long getBatchCount() {
+		return batchCount.sum();
+	}
+
+	/**
+	 * Get the number of updates applied so far.
+	 *
+	 * @return number of updates
+	 */
+	public long getUpdateCount() {
+		return updateCount.sum();
+	}
+
+	/**
+	 * Updates waiting for a stripe, and whether a thread is applying them.
+	 */
+	private static final class Stripe<T> {
+		private final Deque<Pending<T>> queue = new ArrayDeque<>();
+		private boolean busy;
+	}
+
+	/**
+	 * Update waiting to be applied, and its outcome.
+	 */
+	private static final class Pending<T> {
+		private final T update;
+		private boolean combiner;
+		private boolean done;
+		private RuntimeException failure;
+
+		private Pending(T update) {
+			this.update = update;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.shopify.util;
+
+/**
+ * Class that represents a token bucket rate limiter. The bucket holds up to a
+ * capacity of tokens and is refilled at a fixed rate; each admitted request
+ * takes one token, so requests may burst up to the capacity and are held to the
+ * rate over time. Time is passed in by the caller in nanoseconds.
+ * 
+ * @author stephen
+ *
+ */
+public class TokenBucket {
+	private final double capacity;
+	private final double tokensPerNano;
+	private double tokens;
+	private long refilledAt;
+
+	/**
+	 * Constructs a full bucket.
+	 * 
+	 * @param capacity      maximum number of tokens
+	 * @param ratePerSecond tokens added per second
+	 * @param now           current time in nanoseconds
+	 */
+	public TokenBucket(double capacity, double ratePerSecond, long now) {
+		this.capacity = capacity;
+		this.tokensPerNano = ratePerSecond / 1e9;
+		this.tokens = capacity;
+		this.refilledAt = now;
+	}
+
+	/**
+	 * Take a token if one is available.
+	 * 
+	 * @param now current time in nanoseconds
+	 * @return true if a token was taken
+	 */
+	public synchronized boolean tryAcquire(long now) {
+		refill(now);
+		if (tokens < 1) {
+			return false;
+		}
+		tokens--;
+		return true;
+	}
+
+	/**
+	 * Check whether the bucket is full, in which case it behaves exactly like a
+	 * new bucket and may be discarded.
+	 * 
+	 * @param now current time in nanoseconds
+	 * @return true if the bucket is full
+	 */
+	public synchronized boolean isFull(long now) {
+		refill(now);
+		return tokens >= capacity;
+	}
+
+	private void refill(long now) {
+		if (now > refilledAt) {
+			tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+			refilledAt = now;
+		}
+	}
+}
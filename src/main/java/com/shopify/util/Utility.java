@@ -95,6 +95,28 @@ public class Utility {
 		return true;
 	}
 
+	/**
+	 * Validates that a page number is non-negative and a page size is between 1
+	 * and 100.
+	 * 
+	 * @param page zero based page number to be validated
+	 * @param size page size to be validated
+	 * @return true if page and size are valid or false otherwise
+	 */
+	public boolean validatePage(int page, int size) {
+		return page >= 0 && size > 0 && size <= 100;
+	}
+
+	/**
+	 * Validates that a batch of ids holds between 1 and 200 ids.
+	 * 
+	 * @param ids ids to be validated
+	 * @return true if ids are valid
+	 */
+	public boolean validateIdBatch(List<Long> ids) {
+		return ids != null && !ids.isEmpty() && ids.size() <= 200;
+	}
+
 	/**
 	 * Generate appropriate response json messages and errors.
 	 * 
@@ -174,19 +196,14 @@ public class Utility {
 	}
 
 	/**
-	 * Validates that inventory does not exist in warehouse. Inventory already
-	 * contained in warehouse cannot be added. It can however be increased, reduced
-	 * or removed.
+	 * Validates that inventory does not exist in warehouse. Inventory must be
+	 * contained in warehouse to be increased, reduced or removed.
 	 * 
 	 * @param invId       id of inventory to be validated
 	 * @param warehouseId id of warehouse to validate inventory based upon
 	 * @return true if inventory does not exist in warehouse or false otherwise
 	 */
 	public boolean validateInventoryDoesNotExistInWarehouse(long invId, long warehouseId) {
-		Inventory inventory = inventoryRepository.findById(invId).orElse(null);
-		Warehouse warehouse = warehouseRepository.findById(warehouseId).orElse(null);
-		InventoryWarehouse inventoryWarehouse = inventoryWarehouseRepository.findByInventoryAndWarehouse(inventory,
-				warehouse);
-		return inventoryWarehouse == null;
+		return inventoryWarehouseRepository.findByIds(invId, warehouseId) == null;
 	}
 }
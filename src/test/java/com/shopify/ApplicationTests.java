@@ -6,28 +6,84 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.shopify.dto.ConcurrencyLimitStatisticsDTO;
 import com.shopify.dto.InventoryDTO;
+import com.shopify.dto.SnapshotProgressDTO;
+import com.shopify.dto.WarehouseInventoryDTO;
+import com.shopify.dto.ValuationDTO;
 import com.shopify.model.Inventory;
 import com.shopify.model.InventoryWarehouse;
-import com.shopify.model.InventoryWarehouseId;
+import com.shopify.model.OutboxEvent;
 import com.shopify.model.Warehouse;
+import com.shopify.model.IdempotencyRecord;
+import com.shopify.repository.IdempotencyRecordRepository;
 import com.shopify.repository.InventoryRepository;
 import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.repository.OutboxEventRepository;
 import com.shopify.repository.WarehouseRepository;
+import com.shopify.util.GradientLimiter;
+import com.shopify.services.AdmissionService;
+import com.shopify.services.AvailabilityService;
+import com.shopify.services.ConcurrencyLimitService;
+import com.shopify.services.ConcurrencyLimited;
+import com.shopify.services.IdempotencyService;
+import com.shopify.services.IdempotencyServiceImpl;
+import com.shopify.services.InMemoryOutboxSink;
+import com.shopify.services.OutboxService;
+import com.shopify.services.ShardedStockWriteEngine;
+import com.shopify.services.SnapshotExportService;
+import com.shopify.services.ValuationService;
+import com.shopify.services.WarehouseService;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
 import org.assertj.core.api.Assertions;
+import org.assertj.core.groups.Tuple;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Integration tests for application.
@@ -54,6 +110,57 @@ class ApplicationTests {
 	@Autowired
 	InventoryWarehouseRepository inventoryWarehouseRepository;
 
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	OutboxEventRepository outboxEventRepository;
+
+	@Autowired
+	OutboxService outboxService;
+
+	@Autowired
+	InMemoryOutboxSink outboxSink;
+
+	@Autowired
+	ValuationService valuationService;
+
+	@Autowired
+	AvailabilityService availabilityService;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	SnapshotExportService snapshotExportService;
+
+	@Autowired
+	WarehouseService warehouseService;
+
+	@Autowired
+	AdmissionService admissionService;
+
+	@Autowired
+	IdempotencyService idempotencyService;
+
+	@Autowired
+	IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	ApplicationContext applicationContext;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	ConcurrencyLimitService concurrencyLimitService;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@PersistenceContext
+	EntityManager entityManager;
+
 	@Test
 	void contextLoads() {
 	}
@@ -75,6 +182,14 @@ class ApplicationTests {
 		Assertions.assertThat(inventory.size()).isGreaterThan(0);
 	}
 
+	@Test
+	public void testInventoryDTOSerializerOutput() throws Exception {
+		Assertions.assertThat(objectMapper.writeValueAsString(new InventoryDTO(7, "Iron \"Cast\"", 12, 10.5)))
+				.isEqualTo("{\"id\":7,\"name\":\"Iron \\\"Cast\\\"\",\"quantity\":12,\"price\":10.5}");
+		Assertions.assertThat(objectMapper.writeValueAsString(Arrays.asList(new InventoryDTO(1, null, 0, 0))))
+				.isEqualTo("[{\"id\":1,\"name\":null,\"quantity\":0,\"price\":0.0}]");
+	}
+
 	@Test
 	public void testCreateDuplicateNameReturnsBadRequestError() throws Exception {
 		Inventory inventory = new Inventory("Iron", 10.2);
@@ -248,23 +363,27 @@ class ApplicationTests {
 	}
 
 	@Test
-	public void testAddInventoryToWarehouseWhenInventoryAlreadyThereReturnsCorrectResponse() throws Exception {
-		Warehouse warehouse = new Warehouse("Berlin");
-		warehouseRepository.save(warehouse);
-
-		Inventory inventory = new Inventory("Iron", 10.2);
-		inventoryRepository.save(inventory);
-
-		InventoryWarehouseId id = new InventoryWarehouseId(warehouse, inventory);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(id, 22);
-		inventoryWarehouseRepository.save(inventoryWarehouse);
+	public void testAddInventoryToWarehouseWhenInventoryAlreadyThereAddsToQuantity() throws Exception {
+		ValuationDTO before = valuationService.getValuation().getTotal();
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "22"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		Warehouse warehouse = warehouseRepository.findByWarehouseName("None");
+		String path = "/api/v1/inventory/" + inventory.getInventoryId();
 
-		mockMvc.perform(put("/api/v1/inventory/"
-				+ inventory.getInventoryId() + "/warehouse/" + warehouse.getWarehouseId() + "/" + 10)).andDo(print())
-				.andExpect(status().isBadRequest())
+		mockMvc.perform(put(path + "/warehouse/" + warehouse.getWarehouseId() + "/" + 10)).andDo(print())
+				.andExpect(status().isOk())
 				.andExpect(MockMvcResultMatchers.jsonPath("$.message")
-						.value("This inventory already exists in this warehouse"))
-				.andExpect(MockMvcResultMatchers.jsonPath("$.error").value("true"));
+						.value("Inventory successfully created in warehouse"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.error").value("false"));
+
+		Assertions.assertThat(inventoryWarehouseRepository.findQuantity(inventory.getInventoryId(),
+				warehouse.getWarehouseId(), false)).isEqualTo(32);
+		mockMvc.perform(get(path + "/availability")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.quantity").value(32));
+		ValuationDTO after = valuationService.getValuation().getTotal();
+		Assertions.assertThat(after.getUnits()).isEqualTo(before.getUnits() + 32);
+		Assertions.assertThat(after.getSkuCount()).isEqualTo(before.getSkuCount() + 1);
 	}
 
 	@Test
@@ -357,8 +476,7 @@ class ApplicationTests {
 		Inventory inventory = new Inventory("Iron", 10.2);
 		inventoryRepository.save(inventory);
 
-		InventoryWarehouseId id = new InventoryWarehouseId(warehouse, inventory);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(id, 22);
+		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(inventory, warehouse, 22);
 		inventoryWarehouseRepository.save(inventoryWarehouse);
 
 		mockMvc.perform(
@@ -402,8 +520,7 @@ class ApplicationTests {
 		Inventory inventory = new Inventory("Iron", 10.2);
 		inventoryRepository.save(inventory);
 
-		InventoryWarehouseId id = new InventoryWarehouseId(warehouse, inventory);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(id, 22);
+		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(inventory, warehouse, 22);
 		inventoryWarehouseRepository.save(inventoryWarehouse);
 
 		mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print())
@@ -476,8 +593,7 @@ class ApplicationTests {
 		Inventory inventory = new Inventory("Iron", 10.2);
 		inventoryRepository.save(inventory);
 
-		InventoryWarehouseId id = new InventoryWarehouseId(warehouse, inventory);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(id, 22);
+		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(inventory, warehouse, 22);
 		inventoryWarehouseRepository.save(inventoryWarehouse);
 
 		mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/"
@@ -551,8 +667,7 @@ class ApplicationTests {
 		Inventory inventory = new Inventory("Iron", 10.2);
 		inventoryRepository.save(inventory);
 
-		InventoryWarehouseId id = new InventoryWarehouseId(warehouse, inventory);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(id, 22);
+		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(inventory, warehouse, 22);
 		inventoryWarehouseRepository.save(inventoryWarehouse);
 
 		mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/"
@@ -653,8 +768,7 @@ class ApplicationTests {
 		Inventory inventory = new Inventory("Iron", 10.2);
 		inventoryRepository.save(inventory);
 
-		InventoryWarehouseId id = new InventoryWarehouseId(warehouse, inventory);
-		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(id, 22);
+		InventoryWarehouse inventoryWarehouse = new InventoryWarehouse(inventory, warehouse, 22);
 		inventoryWarehouseRepository.save(inventoryWarehouse);
 
 		mockMvc.perform(delete("/api/v1/warehouse/" + warehouse.getWarehouseId())).andDo(print())
@@ -692,4 +806,870 @@ class ApplicationTests {
 				.andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(3))); // 2 warehouses newly created +
 																					// default warehouse = 3
 	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testWarehouseLookupsAreServedFromSecondLevelCache() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long warehouseId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+		statistics.clear();
+
+		warehouseRepository.findById(warehouseId);
+		warehouseRepository.findById(warehouseId);
+		warehouseRepository.findByWarehouseName("None");
+
+		Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(2);
+		Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+		Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void testQueryCacheIsInvalidatedOnWrite() {
+		Assertions.assertThat(inventoryRepository.findByInventoryName("Iron")).isNull();
+		inventoryRepository.save(new Inventory("Iron", 10.2));
+		Assertions.assertThat(inventoryRepository.findByInventoryName("Iron")).isNotNull();
+	}
+
+	@Test
+	public void testGetCacheStatistics() throws Exception {
+		mockMvc.perform(get("/api/v1/statistics/cache")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.secondLevelCacheHitCount").isNumber())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.queryCacheHitCount").isNumber());
+	}
+
+	@Test
+	public void testGetWarehousesReturnsNotModifiedWhenTagMatches() throws Exception {
+		String etag = mockMvc.perform(get("/api/v1/warehouse")).andDo(print()).andExpect(status().isOk())
+				.andExpect(header().exists("ETag")).andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get("/api/v1/warehouse").header("If-None-Match", etag)).andDo(print())
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(post("/api/v1/warehouse").param("name", "Berlin")).andDo(print()).andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/v1/warehouse").header("If-None-Match", etag)).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(2)));
+	}
+
+	@Test
+	public void testGetInventoryReturnsNotModifiedUntilQuantityChanges() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		Warehouse warehouse = warehouseRepository.findByWarehouseName("None");
+
+		String etag = mockMvc.perform(get("/api/v1/inventory")).andDo(print()).andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get("/api/v1/inventory").header("If-None-Match", etag)).andDo(print())
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/"
+				+ warehouse.getWarehouseId() + "/add/" + 5)).andDo(print()).andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/v1/inventory").header("If-None-Match", etag)).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data[0].quantity").value("10"));
+	}
+
+	@Test
+	public void testGetInventoryAsCbor() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+
+		byte[] body = mockMvc.perform(get("/api/v1/inventory").accept("application/cbor")).andExpect(status().isOk())
+				.andExpect(content().contentType("application/cbor")).andReturn().getResponse()
+				.getContentAsByteArray();
+
+		JsonNode result = new CBORMapper().readTree(body);
+		Assertions.assertThat(result.get("data").size()).isEqualTo(1);
+		Assertions.assertThat(result.get("data").get(0).get("name").asText()).isEqualTo("Iron");
+		Assertions.assertThat(result.get("data").get(0).get("quantity").asInt()).isEqualTo(5);
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testStockFeedStreamsChangesForSubscribedWarehouse() throws Exception {
+		Warehouse warehouse = warehouseRepository.save(new Warehouse("Berlin"));
+		Warehouse other = warehouseRepository.save(new Warehouse("Tokyo"));
+		try {
+			MvcResult feed = mockMvc.perform(get("/api/v1/stock/feed").param("warehouseId",
+					String.valueOf(warehouse.getWarehouseId()))).andExpect(request().asyncStarted()).andReturn();
+
+			mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2")
+					.param("quantity", "5").param("warehouseId", String.valueOf(other.getWarehouseId())))
+					.andExpect(status().isOk());
+			Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+			mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/"
+					+ warehouse.getWarehouseId() + "/" + 10)).andExpect(status().isOk());
+			mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/"
+					+ warehouse.getWarehouseId() + "/add/" + 5)).andExpect(status().isOk());
+
+			String content = awaitContent(feed, "\"ADJUSTED\"");
+			Assertions.assertThat(content).contains("\"CREATED\"").contains("\"quantity\":15")
+					.doesNotContain("\"warehouseId\":" + other.getWarehouseId() + ",");
+		} finally {
+			Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+			if (inventory != null) {
+				mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			}
+			mockMvc.perform(delete("/api/v1/warehouse/" + warehouse.getWarehouseId())).andDo(print());
+			mockMvc.perform(delete("/api/v1/warehouse/" + other.getWarehouseId())).andDo(print());
+			relayOutbox();
+		}
+	}
+
+	@Test
+	public void testStockFeedSkipsChangesThatAreRolledBack() throws Exception {
+		MvcResult live = mockMvc.perform(get("/api/v1/stock/feed")).andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andExpect(status().isOk());
+		Thread.sleep(500);
+		Assertions.assertThat(live.getResponse().getContentAsString()).doesNotContain("\"PLACED\"");
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testStockFeedReplaysEventsAfterLastEventId() throws Exception {
+		try {
+			MvcResult live = mockMvc.perform(get("/api/v1/stock/feed")).andExpect(request().asyncStarted())
+					.andReturn();
+			mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2")
+					.param("quantity", "5")).andExpect(status().isOk());
+			String content = awaitContent(live, "\"PLACED\"");
+			String firstId = content.substring(content.indexOf("id:") + 3,
+					content.indexOf('\n', content.indexOf("id:")));
+
+			MvcResult resumed = mockMvc.perform(get("/api/v1/stock/feed").header("Last-Event-ID", firstId))
+					.andExpect(request().asyncStarted()).andReturn();
+			Assertions.assertThat(awaitContent(resumed, "\"PLACED\"")).doesNotContain("id:" + firstId + "\n");
+
+			MvcResult stale = mockMvc.perform(get("/api/v1/stock/feed").header("Last-Event-ID", "0:1"))
+					.andExpect(request().asyncStarted()).andReturn();
+			awaitContent(stale, "\"RESET\"");
+		} finally {
+			Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+			if (inventory != null) {
+				mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			}
+			relayOutbox();
+		}
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testStockFeedResetsSubscribersAfterImport() throws Exception {
+		try {
+			MvcResult live = mockMvc.perform(get("/api/v1/stock/feed")).andExpect(request().asyncStarted())
+					.andReturn();
+			mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2")
+					.param("quantity", "5")).andExpect(status().isOk());
+			String content = awaitContent(live, "\"PLACED\"");
+			String placedId = content.substring(content.indexOf("id:") + 3,
+					content.indexOf('\n', content.indexOf("id:")));
+
+			mockMvc.perform(post("/api/v1/import/stock").contentType("text/csv")
+					.content("sku,warehouse,quantity\nIron,None,9\n")).andDo(print()).andExpect(status().isOk());
+			awaitContent(live, "\"RESET\"");
+
+			// the import is not in the history, so resuming from before it resets too
+			MvcResult resumed = mockMvc.perform(get("/api/v1/stock/feed").header("Last-Event-ID", placedId))
+					.andExpect(request().asyncStarted()).andReturn();
+			awaitContent(resumed, "\"RESET\"");
+		} finally {
+			Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+			if (inventory != null) {
+				mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			}
+			relayOutbox();
+		}
+	}
+
+	private String awaitContent(MvcResult result, String expected) throws Exception {
+		for (int i = 0; i < 50; i++) {
+			String content = result.getResponse().getContentAsString();
+			if (content.contains(expected)) {
+				return content;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Feed did not contain " + expected + ": " + result.getResponse().getContentAsString());
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testChangesAreRecordedInOutboxAndRelayedInOrder() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		try {
+			Warehouse warehouse = warehouseRepository.findByWarehouseName("None");
+			mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/"
+					+ warehouse.getWarehouseId() + "/remove/" + 2)).andDo(print()).andExpect(status().isOk());
+
+			Assertions.assertThat(outboxEventRepository.count()).isEqualTo(3);
+			Assertions.assertThat(outboxService.relay()).isEqualTo(3);
+			Assertions.assertThat(outboxEventRepository.count()).isEqualTo(0);
+
+			List<OutboxEvent> delivered = outboxSink.getDelivered();
+			List<OutboxEvent> relayed = delivered.subList(delivered.size() - 3, delivered.size());
+			Assertions.assertThat(relayed).extracting(OutboxEvent::getEventType).containsExactly("INVENTORY_CREATED",
+					"STOCK_PLACED", "STOCK_ADJUSTED");
+			Assertions.assertThat(relayed.get(2).getQuantity()).isEqualTo(3);
+			Assertions.assertThat(relayed.get(1).getId()).isEqualTo(relayed.get(0).getId() + 1);
+
+			mockMvc.perform(get("/api/v1/statistics/outbox")).andDo(print()).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data.relayedCount").isNumber());
+		} finally {
+			mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			relayOutbox();
+		}
+	}
+
+	@Test
+	public void testSearchInventoryByPrefixAndWords() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Galvanized steel bolt").param("price", "0.2")
+				.param("quantity", "5")).andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Steel nail").param("price", "0.1")
+				.param("quantity", "5")).andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Brass bolt").param("price", "0.4")
+				.param("quantity", "5")).andDo(print()).andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/v1/inventory/search").param("q", "steel bo")).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(1)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].name").value("Galvanized steel bolt"));
+		mockMvc.perform(get("/api/v1/inventory/search").param("q", "BOLT").param("size", "1").param("page", "1"))
+				.andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(1)));
+		mockMvc.perform(get("/api/v1/inventory/typeahead").param("prefix", "ste")).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(1)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].name").value("Steel nail"));
+
+		Inventory nail = inventoryRepository.findByInventoryName("Steel nail");
+		mockMvc.perform(put("/api/v1/inventory/" + nail.getInventoryId()).param("name", "Copper nail"))
+				.andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(get("/api/v1/inventory/typeahead").param("prefix", "ste")).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(0)));
+
+		mockMvc.perform(get("/api/v1/inventory/search").param("q", "nail").param("size", "500")).andDo(print())
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testQueryInventoryFiltersSortsAndPagesWithCursor() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Steel").param("price", "20.5").param("quantity", "2"))
+				.andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Brass").param("price", "30.0").param("quantity", "9"))
+				.andDo(print()).andExpect(status().isOk());
+
+		String content = mockMvc
+				.perform(get("/api/v1/inventory/query").param("minQuantity", "3").param("sort", "quantity")
+						.param("direction", "desc").param("size", "1"))
+				.andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.items", hasSize(1)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.items[0].name").value("Brass"))
+				.andReturn().getResponse().getContentAsString();
+		String cursor = JsonPath.read(content, "$.data.nextCursor");
+
+		mockMvc.perform(get("/api/v1/inventory/query").param("minQuantity", "3").param("sort", "quantity")
+				.param("direction", "desc").param("size", "1").param("cursor", cursor)).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data.items[0].name").value("Iron"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.nextCursor").doesNotExist());
+
+		mockMvc.perform(get("/api/v1/inventory/query").param("minPrice", "15").param("maxPrice", "25"))
+				.andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.items", hasSize(1)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.items[0].name").value("Steel"));
+
+		mockMvc.perform(get("/api/v1/inventory/query").param("namePrefix", "Ir")).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data.items", hasSize(1)));
+
+		mockMvc.perform(get("/api/v1/inventory/query").param("sort", "price").param("cursor", cursor))
+				.andDo(print()).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/v1/inventory/query").param("sort", "weight")).andDo(print())
+				.andExpect(status().isBadRequest())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Invalid sort"));
+
+		// upper casing "price" in Turkish gives a dotted capital I
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			mockMvc.perform(get("/api/v1/inventory/query").param("sort", "price")).andDo(print())
+					.andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data.items[0].name").value("Iron"));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testLowStockIsAlertedOncePerCrossing() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "10"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		Warehouse warehouse = warehouseRepository.findByWarehouseName("None");
+		String path = "/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/" + warehouse.getWarehouseId();
+		try {
+			mockMvc.perform(put(path + "/threshold/" + 5)).andDo(print()).andExpect(status().isOk());
+			mockMvc.perform(put(path + "/remove/" + 4)).andDo(print()).andExpect(status().isOk());
+			mockMvc.perform(get("/api/v1/inventory/low")).andDo(print()).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(0)));
+
+			mockMvc.perform(put(path + "/remove/" + 3)).andDo(print()).andExpect(status().isOk());
+			mockMvc.perform(put(path + "/remove/" + 1)).andDo(print()).andExpect(status().isOk());
+			mockMvc.perform(get("/api/v1/inventory/low")).andDo(print()).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(1)))
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].quantity").value(2))
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].shortfall").value(3));
+			Assertions.assertThat(outboxEventRepository.findAll())
+					.filteredOn(e -> e.getEventType().equals("STOCK_LOW")).hasSize(1);
+
+			mockMvc.perform(put(path + "/add/" + 10)).andDo(print()).andExpect(status().isOk());
+			mockMvc.perform(get("/api/v1/inventory/low")).andDo(print()).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(0)));
+		} finally {
+			mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			relayOutbox();
+		}
+	}
+
+	@Test
+	public void testValuationFollowsQuantityAndPriceChanges() throws Exception {
+		ValuationDTO before = valuationService.getValuation().getTotal();
+
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		Warehouse warehouse = warehouseRepository.findByWarehouseName("None");
+		mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/"
+				+ warehouse.getWarehouseId() + "/remove/" + 2)).andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(put("/api/v1/inventory/" + inventory.getInventoryId()).param("price", "12.5"))
+				.andDo(print()).andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/v1/analytics/valuation")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.total.units").value(before.getUnits() + 3))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.total.skuCount").value(before.getSkuCount() + 1));
+		Assertions.assertThat(valuationService.getValuation().getTotal().getValue())
+				.isEqualByComparingTo(before.getValue().add(new BigDecimal("37.5")));
+
+		mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print())
+				.andExpect(status().isOk());
+		ValuationDTO after = valuationService.getValuation().getTotal();
+		Assertions.assertThat(after.getUnits()).isEqualTo(before.getUnits());
+		Assertions.assertThat(after.getSkuCount()).isEqualTo(before.getSkuCount());
+		Assertions.assertThat(after.getValue()).isEqualByComparingTo(before.getValue());
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testValuationRebuildDiscardsDrift() throws Exception {
+		ValuationDTO before = valuationService.getValuation().getTotal();
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		try {
+			// a price the totals did not see, as one changed by a concurrent transaction
+			jdbcTemplate.update("update inventory set price = 12 where inventory_id = ?", inventory.getInventoryId());
+			Assertions.assertThat(valuationService.getValuation().getTotal().getValue())
+					.isEqualByComparingTo(before.getValue().add(new BigDecimal("50")));
+
+			mockMvc.perform(post("/api/v1/analytics/valuation/rebuild")).andDo(print()).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data.total.units").value(before.getUnits() + 5));
+			Assertions.assertThat(valuationService.getValuation().getTotal().getValue())
+					.isEqualByComparingTo(before.getValue().add(new BigDecimal("60")));
+		} finally {
+			mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			valuationService.rebuild();
+			relayOutbox();
+		}
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testExportSnapshot() throws Exception {
+		String[] names = { "Iron, Cast", "Steel", "Copper" };
+		for (String name : names) {
+			mockMvc.perform(post("/api/v1/inventory").param("name", name).param("price", "10.5").param("quantity", "4"))
+					.andDo(print()).andExpect(status().isOk());
+		}
+		try {
+			mockMvc.perform(post("/api/v1/export/snapshot")).andDo(print()).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data.state").value("RUNNING"));
+
+			SnapshotProgressDTO progress = snapshotExportService.getProgress();
+			for (int i = 0; i < 200 && "RUNNING".equals(progress.getState()); i++) {
+				Thread.sleep(50);
+				progress = snapshotExportService.getProgress();
+			}
+			Assertions.assertThat(progress.getState()).isEqualTo("COMPLETED");
+			Assertions.assertThat(progress.getRowsWritten()).isEqualTo(3);
+
+			List<String> lines;
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new GZIPInputStream(Files.newInputStream(Paths.get(progress.getFile()))), StandardCharsets.UTF_8))) {
+				lines = reader.lines().collect(Collectors.toList());
+			}
+			Assertions.assertThat(lines).hasSize(4);
+			Assertions.assertThat(lines.get(0))
+					.isEqualTo("inventory_id,inventory_name,price,warehouse_id,warehouse_name,quantity");
+			Assertions.assertThat(lines.get(1)).endsWith(",\"Iron, Cast\",10.5,"
+					+ warehouseRepository.findByWarehouseName("None").getWarehouseId() + ",None,4");
+			Files.delete(Paths.get(progress.getFile()));
+		} finally {
+			for (String name : names) {
+				Inventory inventory = inventoryRepository.findByInventoryName(name);
+				mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			}
+			relayOutbox();
+		}
+	}
+
+	@Test
+	public void testImportStock() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Steel").param("price", "8").param("quantity", "1"))
+				.andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/warehouse").param("name", "Berlin")).andDo(print()).andExpect(status().isOk());
+		Inventory iron = inventoryRepository.findByInventoryName("Iron");
+		Inventory steel = inventoryRepository.findByInventoryName("Steel");
+		long berlinId = warehouseRepository.findByWarehouseName("Berlin").getWarehouseId();
+		long noneId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+
+		String csv = "sku,warehouse,quantity\nIron,None,12\n\"Steel\", Berlin ,7\r\nCopper,None,3\n"
+				+ "Iron,Nowhere,1\nSteel,None,abc\nSteel,None,9\n";
+		mockMvc.perform(post("/api/v1/import/stock").contentType("text/csv").content(csv)).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data.linesRead").value(6))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.rowsImported").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.rejectedLines").value(3))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.rejections", contains("line 4: unknown inventory 'Copper'",
+						"line 5: unknown warehouse 'Nowhere'", "line 6: invalid quantity 'abc'")));
+
+		List<WarehouseInventoryDTO> ironStock = inventoryWarehouseRepository.findByInventoryId(iron.getInventoryId());
+		Assertions.assertThat(ironStock).extracting(WarehouseInventoryDTO::getQuantity).containsExactly(12);
+		List<WarehouseInventoryDTO> steelStock = inventoryWarehouseRepository.findByInventoryId(steel.getInventoryId());
+		Assertions.assertThat(steelStock)
+				.extracting(WarehouseInventoryDTO::getWarehouseId, WarehouseInventoryDTO::getQuantity)
+				.containsExactlyInAnyOrder(Tuple.tuple(berlinId, 7), Tuple.tuple(noneId, 9));
+		Assertions.assertThat(outboxEventRepository.findAll())
+				.filteredOn(e -> e.getEventType().equals("STOCK_IMPORTED"))
+				.extracting(OutboxEvent::getInventoryId, OutboxEvent::getWarehouseId, OutboxEvent::getQuantity)
+				.containsExactly(Tuple.tuple(iron.getInventoryId(), noneId, 12),
+						Tuple.tuple(steel.getInventoryId(), berlinId, 7), Tuple.tuple(steel.getInventoryId(), noneId, 9));
+	}
+
+	@Test
+	public void testRetriedImportIsReplayedOnlyWithSameBody() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		StringBuilder csv = new StringBuilder("sku,warehouse,quantity\n");
+		// large enough to be read ahead into a temporary file
+		for (int i = 0; i < 6000; i++) {
+			csv.append("Iron,None,").append(i % 100).append('\n');
+		}
+
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/api/v1/import/stock").contentType("text/csv").content(csv.toString())
+					.header("Idempotency-Key", "import-1")).andDo(print()).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data.linesRead").value(6000))
+					.andExpect(i == 0 ? header().doesNotExist("Idempotent-Replayed")
+							: header().string("Idempotent-Replayed", "true"));
+		}
+		csv.append("Iron,None,1\n");
+		mockMvc.perform(post("/api/v1/import/stock").contentType("text/csv").content(csv.toString())
+				.header("Idempotency-Key", "import-1")).andDo(print()).andExpect(status().isUnprocessableEntity());
+	}
+
+	@Test
+	public void testUpsertIncrementInsertsThenAdds() {
+		Inventory inventory = inventoryRepository.save(new Inventory("Iron", 10.2));
+		long warehouseId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+
+		Assertions.assertThat(inventoryWarehouseRepository.upsertIncrement(inventory.getInventoryId(), warehouseId, 5))
+				.isEqualTo(-1);
+		Assertions.assertThat(inventoryWarehouseRepository.upsertIncrement(inventory.getInventoryId(), warehouseId, 3))
+				.isEqualTo(5);
+		inventoryWarehouseRepository.upsertIncrements(new long[] { inventory.getInventoryId(), inventory.getInventoryId() },
+				new long[] { warehouseId, warehouseId }, new int[] { 4, 6 }, 2);
+
+		Assertions.assertThat(inventoryWarehouseRepository.findByInventoryId(inventory.getInventoryId()))
+				.extracting(WarehouseInventoryDTO::getQuantity).containsExactly(18);
+	}
+
+	@Test
+	public void testStockWritesDoNotLoadInventoryOrWarehouse() {
+		Inventory inventory = inventoryRepository.save(new Inventory("Iron", 10.2));
+		long warehouseId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+		warehouseService.addInvToWarehouse(warehouseId, 5, inventory.getInventoryId());
+		entityManager.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		warehouseService.increaseInvInWarehouse(warehouseId, inventory.getInventoryId(), 3);
+		entityManager.flush();
+
+		// select and update of the entry and the price read for valuation; outbox events are written at commit
+		Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		Assertions.assertThat(statistics.getEntityStatistics(Warehouse.class.getName()).getLoadCount()).isZero();
+		Assertions.assertThat(statistics.getEntityStatistics(Warehouse.class.getName()).getCacheHitCount()).isZero();
+		Assertions.assertThat(statistics.getEntityStatistics(InventoryWarehouse.class.getName()).getLoadCount())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void testAvailabilityFollowsStockChanges() throws Exception {
+		Warehouse berlin = warehouseRepository.save(new Warehouse("Berlin"));
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		Warehouse none = warehouseRepository.findByWarehouseName("None");
+		String path = "/api/v1/inventory/" + inventory.getInventoryId();
+
+		mockMvc.perform(put(path + "/warehouse/" + none.getWarehouseId() + "/add/" + 3)).andDo(print())
+				.andExpect(status().isOk());
+		mockMvc.perform(put(path + "/warehouse/" + berlin.getWarehouseId() + "/" + 4)).andDo(print())
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(path + "/availability").param("warehouseId", String.valueOf(none.getWarehouseId())))
+				.andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.quantity").value(8));
+		mockMvc.perform(get(path + "/availability")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.quantity").value(12))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.warehouseId").doesNotExist());
+
+		mockMvc.perform(delete(path)).andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(get(path + "/availability")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.quantity").value(0));
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testAvailabilityRebuildKeepsUncommittedChanges() throws Exception {
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		long warehouseId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CountDownLatch changed = new CountDownLatch(1);
+		CountDownLatch rebuilt = new CountDownLatch(1);
+		try {
+			Future<?> change = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+					status -> {
+						warehouseService.increaseInvInWarehouse(warehouseId, inventory.getInventoryId(), 3);
+						changed.countDown();
+						try {
+							rebuilt.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}));
+			changed.await();
+			// the scan reads 5, since the change is not committed yet
+			availabilityService.rebuild();
+			rebuilt.countDown();
+			change.get();
+
+			Assertions.assertThat(availabilityService.getAvailability(inventory.getInventoryId(), warehouseId)
+					.getQuantity()).isEqualTo(8);
+		} finally {
+			rebuilt.countDown();
+			executor.shutdown();
+			mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			relayOutbox();
+		}
+	}
+
+	@Test
+	public void testBulkAvailability() throws Exception {
+		Warehouse berlin = warehouseRepository.save(new Warehouse("Berlin"));
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Steel").param("price", "8").param("quantity", "2"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory iron = inventoryRepository.findByInventoryName("Iron");
+		Inventory steel = inventoryRepository.findByInventoryName("Steel");
+		long noneId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+		mockMvc.perform(put("/api/v1/inventory/" + iron.getInventoryId() + "/warehouse/" + berlin.getWarehouseId()
+				+ "/" + 4)).andDo(print()).andExpect(status().isOk());
+		String ids = iron.getInventoryId() + "," + steel.getInventoryId() + ",999999," + iron.getInventoryId();
+
+		mockMvc.perform(get("/api/v1/inventory/availability").param("ids", ids)).andDo(print())
+				.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.data", hasSize(3)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].total").value(9))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].warehouses." + noneId).value(5))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].warehouses." + berlin.getWarehouseId()).value(4))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[1].total").value(2))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[2].total").value(0));
+		mockMvc.perform(get("/api/v1/inventory/availability").param("ids", ids).param("warehouseIds",
+				String.valueOf(berlin.getWarehouseId()))).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[0].total").value(4))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data[1].total").value(0));
+		mockMvc.perform(get("/api/v1/inventory/availability")).andDo(print()).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testWarmUpRunsBeforeReadiness() throws Exception {
+		mockMvc.perform(get("/api/v1/readiness")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data").value("ACCEPTING_TRAFFIC"));
+		mockMvc.perform(get("/api/v1/statistics/warmup")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.state").value("COMPLETED"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.connectionsOpened").value(greaterThan(0)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.warehousesLoaded").value(greaterThan(0)));
+	}
+
+	@Test
+	public void testWritesOverRateLimitAreRejected() throws Exception {
+		int admitted = 0;
+		while (admitted < 5000 && admissionService.admit("10.0.0.1", true) == AdmissionService.Decision.ADMITTED) {
+			admissionService.release(true);
+			admitted++;
+		}
+		Assertions.assertThat(admitted).isBetween(1000, 4999);
+
+		mockMvc.perform(post("/api/v1/warehouse").param("name", "Berlin").with(remoteAddress("10.0.0.1")))
+				.andDo(print()).andExpect(status().isTooManyRequests()).andExpect(header().string("Retry-After", "1"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.error").value(true));
+		// the client header is only trusted behind an authenticating proxy
+		mockMvc.perform(post("/api/v1/warehouse").param("name", "Berlin").with(remoteAddress("10.0.0.1"))
+				.header("X-Client-Id", "someone-else")).andDo(print()).andExpect(status().isTooManyRequests());
+		mockMvc.perform(get("/api/v1/warehouse").with(remoteAddress("10.0.0.1"))).andDo(print())
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/api/v1/warehouse").param("name", "Berlin")).andDo(print()).andExpect(status().isOk());
+
+		mockMvc.perform(get("/api/v1/statistics/admission")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.writeRateLimited").value(greaterThan(0)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.writeInFlight").value(0));
+	}
+
+	@Test
+	public void testWritesOverConcurrencyLimitAreShed() throws Exception {
+		int concurrency = admissionService.getStatistics().getWriteConcurrency();
+		int held = 0;
+		try {
+			while (held < concurrency && admissionService.admit("10.0.0.2", true) == AdmissionService.Decision.ADMITTED) {
+				held++;
+			}
+			Assertions.assertThat(held).isEqualTo(concurrency);
+
+			mockMvc.perform(post("/api/v1/warehouse").param("name", "Berlin")).andDo(print())
+					.andExpect(status().isServiceUnavailable()).andExpect(header().string("Retry-After", "1"))
+					.andExpect(MockMvcResultMatchers.jsonPath("$.error").value(true));
+			mockMvc.perform(get("/api/v1/warehouse")).andDo(print()).andExpect(status().isOk());
+		} finally {
+			for (int i = 0; i < held; i++) {
+				admissionService.release(true);
+			}
+		}
+		mockMvc.perform(post("/api/v1/warehouse").param("name", "Berlin")).andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(get("/api/v1/statistics/admission")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.writeShed").value(greaterThan(0)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.writeInFlight").value(0));
+	}
+
+	private static RequestPostProcessor remoteAddress(String address) {
+		return request -> {
+			request.setRemoteAddr(address);
+			return request;
+		};
+	}
+
+	@Test
+	public void testBulkOperationsAreShedBeforeStockDecrements() throws Exception {
+		GradientLimiter limiter = new GradientLimiter(4, 4, 10);
+		Assertions.assertThat(limiter.tryAcquire(0.5)).isTrue();
+		Assertions.assertThat(limiter.tryAcquire(0.5)).isTrue();
+		Assertions.assertThat(limiter.tryAcquire(0.5)).isFalse();
+		Assertions.assertThat(limiter.tryAcquire(1.0)).isTrue();
+		Assertions.assertThat(limiter.tryAcquire(1.0)).isTrue();
+		Assertions.assertThat(limiter.tryAcquire(1.0)).isFalse();
+
+		mockMvc.perform(get("/api/v1/warehouse")).andDo(print()).andExpect(status().isOk());
+		mockMvc.perform(get("/api/v1/statistics/concurrency")).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.completed").value(greaterThan(0)))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.limit").value(both(greaterThanOrEqualTo(4.0))
+						.and(lessThanOrEqualTo(200.0))))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.inFlight").value(0));
+	}
+
+	@Test
+	public void testConcurrencyLimitFollowsLatency() throws Exception {
+		GradientLimiter limiter = new GradientLimiter(20, 4, 100);
+		releaseAtLimit(limiter, 1_000_000, 50);
+		double steady = limiter.getLimit();
+		Assertions.assertThat(steady).isGreaterThan(20);
+
+		releaseAtLimit(limiter, 10_000_000, 5);
+		double loaded = limiter.getLimit();
+		Assertions.assertThat(loaded).isLessThan(steady);
+
+		releaseAtLimit(limiter, 1_000_000, 50);
+		Assertions.assertThat(limiter.getLimit()).isGreaterThan(loaded);
+
+		// bulk operations are counted but their latency is not measured
+		ConcurrencyLimitStatisticsDTO before = concurrencyLimitService.getStatistics();
+		long start = concurrencyLimitService.acquire(ConcurrencyLimited.Priority.BULK);
+		concurrencyLimitService.release(ConcurrencyLimited.Priority.BULK, start - 1_000_000_000, true);
+		ConcurrencyLimitStatisticsDTO after = concurrencyLimitService.getStatistics();
+		Assertions.assertThat(after.getCompleted()).isEqualTo(before.getCompleted() + 1);
+		Assertions.assertThat(after.getShortLatencyMillis()).isEqualTo(before.getShortLatencyMillis());
+		Assertions.assertThat(after.getLimit()).isEqualTo(before.getLimit());
+	}
+
+	/**
+	 * Admit as many operations as the limit allows and release them with a
+	 * latency, for a number of rounds.
+	 */
+	private static void releaseAtLimit(GradientLimiter limiter, long rttNanos, int rounds) {
+		for (int round = 0; round < rounds; round++) {
+			int admitted = 0;
+			while (limiter.tryAcquire(1.0)) {
+				admitted++;
+			}
+			for (int i = 0; i < admitted; i++) {
+				limiter.release(rttNanos);
+			}
+		}
+	}
+
+	@Test
+	public void testRetriedStockIncreaseIsAppliedOnce() throws Exception {
+		Warehouse berlin = warehouseRepository.save(new Warehouse("Berlin"));
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "5"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory iron = inventoryRepository.findByInventoryName("Iron");
+		String add = "/api/v1/inventory/" + iron.getInventoryId() + "/warehouse/" + berlin.getWarehouseId() + "/add/";
+		mockMvc.perform(put("/api/v1/inventory/" + iron.getInventoryId() + "/warehouse/" + berlin.getWarehouseId()
+				+ "/" + 4)).andDo(print()).andExpect(status().isOk());
+
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(put(add + 10).header("Idempotency-Key", "retry-1")).andDo(print())
+					.andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.error").value(false))
+					.andExpect(i == 0 ? header().doesNotExist("Idempotent-Replayed")
+							: header().string("Idempotent-Replayed", "true"));
+		}
+		mockMvc.perform(put(add + 20).header("Idempotency-Key", "retry-1")).andDo(print())
+				.andExpect(status().isUnprocessableEntity());
+		mockMvc.perform(put(add + 10)).andDo(print()).andExpect(status().isOk());
+		// keys are scoped to the client, so another client's key does not replay
+		mockMvc.perform(put(add + 10).header("Idempotency-Key", "retry-1").with(remoteAddress("10.0.0.3")))
+				.andDo(print()).andExpect(status().isOk()).andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+		mockMvc.perform(get("/api/v1/inventory/" + iron.getInventoryId() + "/availability").param("warehouseId",
+				String.valueOf(berlin.getWarehouseId()))).andDo(print()).andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.data.quantity").value(34));
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testIdempotencyKeysAreClaimedInDatabase() {
+		AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+		// a second instance of the service stands for another instance of the application
+		IdempotencyService other = beanFactory.createBean(IdempotencyServiceImpl.class);
+		try {
+			Assertions.assertThat(idempotencyService.claim("order-1", "fingerprint")).isNull();
+			Assertions.assertThat(other.claim("order-1", "fingerprint").getStatus()).isZero();
+
+			idempotencyService.complete(new IdempotencyRecord("order-1", "fingerprint", 200, "application/json",
+					"{}".getBytes(StandardCharsets.UTF_8)));
+			IdempotencyRecord replayed = other.claim("order-1", "fingerprint");
+			Assertions.assertThat(replayed.getStatus()).isEqualTo(200);
+			Assertions.assertThat(replayed.getBody()).isEqualTo("{}".getBytes(StandardCharsets.UTF_8));
+
+			Assertions.assertThat(idempotencyService.claim("order-2", "fingerprint")).isNull();
+			idempotencyService.abandon("order-2");
+			Assertions.assertThat(other.claim("order-2", "fingerprint")).isNull();
+			other.abandon("order-2");
+			Assertions.assertThat(idempotencyRecordRepository.existsById("order-2")).isFalse();
+		} finally {
+			beanFactory.destroyBean(other);
+			idempotencyRecordRepository.deleteAll();
+		}
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testConcurrentStockChangesOfOneEntryAreAllApplied() throws Exception {
+		Inventory inventory = inventoryRepository.save(new Inventory("Iron", 10.2));
+		long warehouseId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+		warehouseService.addInvToWarehouse(warehouseId, 100, inventory.getInventoryId());
+		// the test properties keep the concurrency limit at 4 or more and give normal operations 0.9 of it,
+		// so at least three are admitted at a time
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<?>> changes = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				boolean increase = i % 4 != 0;
+				changes.add(executor.submit(() -> {
+					if (increase) {
+						warehouseService.increaseInvInWarehouse(warehouseId, inventory.getInventoryId(), 2);
+					} else {
+						warehouseService.decreaseInvInWarehouse(warehouseId, inventory.getInventoryId(), 1);
+					}
+				}));
+			}
+			for (Future<?> change : changes) {
+				change.get();
+			}
+
+			Assertions.assertThat(inventoryWarehouseRepository.findByIds(inventory.getInventoryId(), warehouseId)
+					.getTotalQuantity()).isEqualTo(100 + 150 * 2 - 50);
+		} finally {
+			executor.shutdown();
+			mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			relayOutbox();
+		}
+	}
+
+	@Test
+	@Transactional(TxType.NOT_SUPPORTED)
+	public void testShardedStockWriteEngine() throws Exception {
+		Inventory inventory = inventoryRepository.save(new Inventory("Iron", 10.2));
+		long inventoryId = inventory.getInventoryId();
+		long warehouseId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+		warehouseService.addInvToWarehouse(warehouseId, 100, inventoryId);
+		AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+		ShardedStockWriteEngine engine = beanFactory.createBean(ShardedStockWriteEngine.class);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> changes = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				int quantity = i % 4 == 0 ? -1 : 2;
+				changes.add(executor.submit(() -> engine.adjust(inventoryId, warehouseId, quantity)));
+			}
+			for (Future<?> change : changes) {
+				change.get();
+			}
+			Assertions.assertThat(inventoryWarehouseRepository.findQuantity(inventoryId, warehouseId, false))
+					.isEqualTo(100 + 150 * 2 - 50);
+
+			// a write that bypasses the engine is picked up rather than overwritten
+			jdbcTemplate.update("update inventory_warehouse set total_quantity = 500 "
+					+ "where inventory_inventory_id = ? and warehouse_warehouse_id = ?", inventoryId, warehouseId);
+			engine.adjust(inventoryId, warehouseId, -501);
+			engine.adjust(inventoryId, warehouseId, 1);
+			Assertions.assertThat(inventoryWarehouseRepository.findQuantity(inventoryId, warehouseId, false))
+					.isEqualTo(1);
+
+			Assertions.assertThatThrownBy(() -> engine.adjust(inventoryId, warehouseId + 1000, 1))
+					.isInstanceOf(IllegalStateException.class);
+		} finally {
+			executor.shutdown();
+			beanFactory.destroyBean(engine);
+			mockMvc.perform(delete("/api/v1/inventory/" + inventoryId)).andDo(print());
+			relayOutbox();
+		}
+	}
+
+	/**
+	 * Relay every event in the outbox, so that changes a test committed are out
+	 * of the way of other tests.
+	 */
+	private void relayOutbox() {
+		int relayed;
+		do {
+			relayed = outboxService.relay();
+		} while (relayed > 0);
+	}
 }
@@ -0,0 +1,140 @@
+package com.shopify;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.shopify.model.Inventory;
+import com.shopify.repository.InventoryRepository;
+import com.shopify.repository.InventoryWarehouseRepository;
+import com.shopify.repository.OutboxEventRepository;
+import com.shopify.repository.WarehouseRepository;
+import com.shopify.services.OutboxService;
+import com.shopify.services.ShardedStockWriteEngine;
+import com.shopify.services.StockWriteEngine;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Integration tests for application with the sharded stock write engine. Stock
+ * changes are applied by the shards' own threads and commit, so tests do not
+ * run in a transaction and clean up after themselves. The second level cache is
+ * shared by every context in the JVM, so it is turned off to keep this
+ * context's database out of the other tests.
+ *
+ * @author stephen
+ *
+ */
+@SpringBootTest(properties = { "stock.write-engine=sharded", "stock.shards.count=2",
+		"concurrency.initial-limit=50", "concurrency.min-limit=50", "concurrency.max-limit=50",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false" })
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class ShardedStockWriteEngineTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	InventoryRepository inventoryRepository;
+
+	@Autowired
+	WarehouseRepository warehouseRepository;
+
+	@Autowired
+	InventoryWarehouseRepository inventoryWarehouseRepository;
+
+	@Autowired
+	OutboxEventRepository outboxEventRepository;
+
+	@Autowired
+	OutboxService outboxService;
+
+	@Autowired
+	StockWriteEngine stockWriteEngine;
+
+	@Autowired
+	AutowireCapableBeanFactory beanFactory;
+
+	@Test
+	public void testStockChangesThroughControllerAreAppliedByShards() throws Exception {
+		Assertions.assertThat(stockWriteEngine).isInstanceOf(ShardedStockWriteEngine.class);
+		mockMvc.perform(post("/api/v1/inventory").param("name", "Iron").param("price", "10.2").param("quantity", "100"))
+				.andDo(print()).andExpect(status().isOk());
+		Inventory inventory = inventoryRepository.findByInventoryName("Iron");
+		long warehouseId = warehouseRepository.findByWarehouseName("None").getWarehouseId();
+		String path = "/api/v1/inventory/" + inventory.getInventoryId() + "/warehouse/" + warehouseId;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> changes = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				String change = i % 4 == 0 ? "/remove/" + 1 : "/add/" + 2;
+				changes.add(executor.submit(() -> {
+					mockMvc.perform(put(path + change)).andExpect(status().isOk());
+					return null;
+				}));
+			}
+			for (Future<?> change : changes) {
+				change.get();
+			}
+
+			Assertions.assertThat(inventoryWarehouseRepository.findByIds(inventory.getInventoryId(), warehouseId)
+					.getTotalQuantity()).isEqualTo(100 + 150 * 2 - 50);
+			Assertions.assertThat(outboxEventRepository.findAll())
+					.filteredOn(e -> e.getEventType().equals("STOCK_ADJUSTED")).hasSize(200);
+			mockMvc.perform(get("/api/v1/inventory/" + inventory.getInventoryId() + "/availability")).andDo(print())
+					.andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.data.quantity").value(100 + 150 * 2 - 50));
+
+			mockMvc.perform(put(path + "/remove/" + 1000)).andDo(print()).andExpect(status().isOk());
+			Assertions.assertThat(inventoryWarehouseRepository.findByIds(inventory.getInventoryId(), warehouseId)
+					.getTotalQuantity()).isZero();
+		} finally {
+			executor.shutdown();
+			mockMvc.perform(delete("/api/v1/inventory/" + inventory.getInventoryId())).andDo(print());
+			relayOutbox();
+		}
+	}
+
+	@Test
+	public void testStockChangeAfterStopFailsInsteadOfWaiting() {
+		ShardedStockWriteEngine engine = beanFactory.createBean(ShardedStockWriteEngine.class);
+		beanFactory.destroyBean(engine);
+
+		assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> Assertions.assertThatThrownBy(() -> engine.adjust(1, 1, 1))
+						.isInstanceOf(IllegalStateException.class).hasMessage("Stock write engine is stopped"));
+	}
+
+	/**
+	 * Relay every event in the outbox, so that changes a test committed are out
+	 * of the way of other tests.
+	 */
+	private void relayOutbox() {
+		int relayed;
+		do {
+			relayed = outboxService.relay();
+		} while (relayed > 0);
+	}
+}
@@ -0,0 +1,102 @@
+package com.shopify.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopify.dto.InventoryDTO;
+import com.shopify.dto.ResponseDTO;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Benchmark measuring bytes allocated and cpu time per listing row, covering
+ * both materializing the rows and serializing them to json. The "projection"
+ * case reproduces the former interface based {@link InventoryDTO}, a map backed
+ * proxy serialized through bean introspection. The "dto" case is the current
+ * constructor projection written by its dedicated serializer. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.AllocationBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class AllocationBenchmark {
+	private static final int ROWS = 100_000;
+	private static final int WARMUP = 10;
+	private static final int ITERATIONS = 20;
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * Shape of the former interface projection.
+	 */
+	public interface InventoryProjection {
+		long getId();
+
+		String getName();
+
+		int getQuantity();
+
+		double getPrice();
+	}
+
+	public static void main(String[] args) throws IOException {
+		ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+		SpelAwareProxyProjectionFactory factory = new SpelAwareProxyProjectionFactory();
+		String[] names = new String[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			names[i] = "Inventory item " + i;
+		}
+
+		System.out.printf("%-12s %16s %16s%n", "rows", "bytes/row", "cpu ns/row");
+		run("projection", mapper, i -> {
+			Map<String, Object> row = new HashMap<>();
+			row.put("id", (long) i);
+			row.put("name", names[i]);
+			row.put("quantity", i % 500);
+			row.put("price", 10.25 + i % 100);
+			return factory.createProjection(InventoryProjection.class, row);
+		});
+		run("dto", mapper, i -> new InventoryDTO(i, names[i], i % 500, 10.25 + i % 100));
+	}
+
+	private static void run(String label, ObjectMapper mapper, IntFunction<Object> rowFactory) throws IOException {
+		for (int i = 0; i < WARMUP; i++) {
+			listing(mapper, rowFactory);
+		}
+		long[] bytes = new long[ITERATIONS];
+		long[] cpu = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long allocated = THREADS.getCurrentThreadAllocatedBytes();
+			long start = THREADS.getCurrentThreadCpuTime();
+			listing(mapper, rowFactory);
+			cpu[i] = THREADS.getCurrentThreadCpuTime() - start;
+			bytes[i] = THREADS.getCurrentThreadAllocatedBytes() - allocated;
+		}
+		Arrays.sort(bytes);
+		Arrays.sort(cpu);
+		System.out.printf("%-12s %16.1f %16.1f%n", label, (double) bytes[ITERATIONS / 2] / ROWS,
+				(double) cpu[ITERATIONS / 2] / ROWS);
+	}
+
+	private static void listing(ObjectMapper mapper, IntFunction<Object> rowFactory) throws IOException {
+		List<Object> rows = new ArrayList<>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			rows.add(rowFactory.apply(i));
+		}
+		ResponseDTO result = new ResponseDTO("Success", false);
+		result.setData(rows);
+		mapper.writeValue(OutputStream.nullOutputStream(), result);
+	}
+}
@@ -0,0 +1,110 @@
+package com.shopify.benchmark;
+
+import com.shopify.Application;
+import com.shopify.model.InventoryWarehouse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Benchmark of persistence context operations with 100k managed inventory
+ * warehouse entries in an in-memory H2 database: loading them, finding each by
+ * its key, hashing keys into a set and dirty checking them on flush. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.PersistenceContextBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class PersistenceContextBenchmark {
+	private static final int INVENTORY = 10_000;
+	private static final int WAREHOUSES = 10;
+	private static final int ITERATIONS = 5;
+
+	public static void main(String[] args) {
+		ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+				"--spring.main.web-application-type=none");
+		try {
+			seed(context.getBean(JdbcTemplate.class));
+			EntityManagerFactory factory = context.getBean(EntityManagerFactory.class);
+
+			System.out.printf("%-10s %10s %10s %10s %10s%n", "", "load ms", "find ms", "hash ms", "flush ms");
+			for (int i = 0; i < ITERATIONS; i++) {
+				run(factory, i);
+			}
+		} finally {
+			context.close();
+		}
+	}
+
+	private static void run(EntityManagerFactory factory, int iteration) {
+		EntityManager entityManager = factory.createEntityManager();
+		try {
+			entityManager.getTransaction().begin();
+			long[] nanos = new long[4];
+
+			long start = System.nanoTime();
+			List<InventoryWarehouse> entries = entityManager
+					.createQuery("select iw from InventoryWarehouse iw", InventoryWarehouse.class).getResultList();
+			nanos[0] = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (InventoryWarehouse entry : entries) {
+				if (entityManager.find(InventoryWarehouse.class, entry.getId()) != entry) {
+					throw new IllegalStateException("Entry is not managed");
+				}
+			}
+			nanos[1] = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			List<Object> ids = new ArrayList<>(entries.size());
+			for (InventoryWarehouse entry : entries) {
+				ids.add(entry.getId());
+			}
+			Set<Object> distinct = new HashSet<>(ids);
+			for (Object id : ids) {
+				if (!distinct.contains(id)) {
+					throw new IllegalStateException("Key is not found");
+				}
+			}
+			nanos[2] = System.nanoTime() - start;
+
+			for (InventoryWarehouse entry : entries) {
+				entry.setTotalQuantity(entry.getTotalQuantity() + 1);
+			}
+			start = System.nanoTime();
+			entityManager.flush();
+			nanos[3] = System.nanoTime() - start;
+
+			entityManager.getTransaction().rollback();
+			System.out.printf("%-10s %10d %10d %10d %10d%n", "run " + iteration, nanos[0] / 1_000_000,
+					nanos[1] / 1_000_000, nanos[2] / 1_000_000, nanos[3] / 1_000_000);
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	private static void seed(JdbcTemplate jdbcTemplate) {
+		List<Object[]> warehouses = new ArrayList<>();
+		for (int i = 0; i < WAREHOUSES; i++) {
+			warehouses.add(new Object[] { "Warehouse " + i });
+		}
+		jdbcTemplate.batchUpdate("insert into warehouse (warehouse_name) values (?)", warehouses);
+		List<Object[]> inventory = new ArrayList<>();
+		for (int i = 0; i < INVENTORY; i++) {
+			inventory.add(new Object[] { "Item " + i, 1.5 + i % 100 });
+		}
+		jdbcTemplate.batchUpdate("insert into inventory (inventory_name, price) values (?, ?)", inventory);
+		jdbcTemplate.update("insert into inventory_warehouse (inventory_inventory_id, warehouse_warehouse_id, "
+				+ "total_quantity) select i.inventory_id, w.warehouse_id, 10 from inventory i cross join warehouse w");
+	}
+}
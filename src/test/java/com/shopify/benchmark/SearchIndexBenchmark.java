@@ -0,0 +1,75 @@
+package com.shopify.benchmark;
+
+import com.shopify.dto.InventorySearchDTO;
+import com.shopify.util.InventorySearchIndex;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark measuring typeahead and word search latency of the inventory search
+ * index holding 1M items. Typeahead queries are random prefixes of one to four
+ * characters, the shortest and most expensive ones a client sends; word queries
+ * are a material followed by such a prefix of a product or item code. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.SearchIndexBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class SearchIndexBenchmark {
+	private static final int ITEMS = 1_000_000;
+	private static final int QUERIES = 5_000;
+	private static final int PAGE_SIZE = 10;
+
+	private static final String[] MATERIALS = { "steel", "brass", "copper", "iron", "nylon", "oak", "pine",
+			"rubber", "glass", "zinc" };
+	private static final String[] PRODUCTS = { "bolt", "nail", "screw", "washer", "hinge", "bracket", "pipe",
+			"valve", "spring", "clamp" };
+
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		InventorySearchIndex index = new InventorySearchIndex();
+		long start = System.nanoTime();
+		for (int i = 1; i <= ITEMS; i++) {
+			String name = MATERIALS[random.nextInt(MATERIALS.length)] + " " + PRODUCTS[random.nextInt(PRODUCTS.length)]
+					+ " " + Integer.toString(random.nextInt(1 << 30), 36);
+			index.put(new InventorySearchDTO(i, name, i % 100));
+		}
+		System.out.printf("indexed %d items in %d ms%n", index.size(), (System.nanoTime() - start) / 1_000_000);
+
+		String[] prefixes = new String[QUERIES];
+		String[] phrases = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			String word = random.nextBoolean() ? MATERIALS[random.nextInt(MATERIALS.length)]
+					: Integer.toString(random.nextInt(1 << 30), 36);
+			prefixes[i] = word.substring(0, 1 + random.nextInt(Math.min(4, word.length())));
+			word = random.nextBoolean() ? PRODUCTS[random.nextInt(PRODUCTS.length)]
+					: Integer.toString(random.nextInt(1 << 30), 36);
+			phrases[i] = MATERIALS[random.nextInt(MATERIALS.length)] + " "
+					+ word.substring(0, 1 + random.nextInt(Math.min(4, word.length())));
+		}
+
+		System.out.printf("%-10s %10s %10s %10s%n", "query", "p50 us", "p99 us", "max us");
+		for (int round = 0; round < 3; round++) {
+			run("prefix", index, prefixes, false);
+			run("words", index, phrases, true);
+		}
+	}
+
+	private static void run(String name, InventorySearchIndex index, String[] queries, boolean words) {
+		long[] samples = new long[queries.length];
+		int found = 0;
+		for (int i = 0; i < queries.length; i++) {
+			long start = System.nanoTime();
+			found += words ? index.findByWords(queries[i], 0, PAGE_SIZE).size()
+					: index.findByPrefix(queries[i], 0, PAGE_SIZE).size();
+			samples[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(samples);
+		System.out.printf("%-10s %10.1f %10.1f %10.1f  (%d results)%n", name, samples[samples.length / 2] / 1e3,
+				samples[samples.length * 99 / 100] / 1e3, samples[samples.length - 1] / 1e3, found);
+	}
+}
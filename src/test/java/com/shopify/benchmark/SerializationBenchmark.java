@@ -0,0 +1,86 @@
+package com.shopify.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopify.dto.InventoryDTO;
+import com.shopify.dto.ResponseDTO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Benchmark comparing payload size and serialization cpu time of an inventory
+ * listing of 100k rows as json and cbor, each with and without gzip. Mappers are
+ * built the same way spring mvc builds them for its message converters. Run
+ * with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.SerializationBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class SerializationBenchmark {
+	private static final int ROWS = 100_000;
+	private static final int WARMUP = 10;
+	private static final int ITERATIONS = 20;
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) throws IOException {
+		ResponseDTO listing = new ResponseDTO("Success", false);
+		listing.setData(createRows());
+
+		ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+		ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+
+		System.out.printf("%-12s %12s %14s%n", "format", "bytes", "cpu ms/100k");
+		run("json", json, listing, false);
+		run("json+gzip", json, listing, true);
+		run("cbor", cbor, listing, false);
+		run("cbor+gzip", cbor, listing, true);
+	}
+
+	private static List<InventoryDTO> createRows() {
+		List<InventoryDTO> rows = new ArrayList<>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			rows.add(new InventoryDTO(i, "Inventory item " + i, i % 500, 10.25 + i % 100));
+		}
+		return rows;
+	}
+
+	private static void run(String format, ObjectMapper mapper, ResponseDTO listing, boolean gzip)
+			throws IOException {
+		int size = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			size = serialize(mapper, listing, gzip);
+		}
+		long[] samples = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = THREADS.getCurrentThreadCpuTime();
+			serialize(mapper, listing, gzip);
+			samples[i] = THREADS.getCurrentThreadCpuTime() - start;
+		}
+		Arrays.sort(samples);
+		System.out.printf("%-12s %12d %14.1f%n", format, size, samples[ITERATIONS / 2] / 1e6);
+	}
+
+	private static int serialize(ObjectMapper mapper, ResponseDTO listing, boolean gzip) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 22);
+		if (gzip) {
+			try (GZIPOutputStream out = new GZIPOutputStream(bytes, 8192)) {
+				mapper.writeValue(out, listing);
+			}
+		} else {
+			mapper.writeValue(bytes, listing);
+		}
+		return bytes.size();
+	}
+}
@@ -0,0 +1,231 @@
+package com.shopify.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark measuring the time until the application is ready, including
+ * warm-up, and its peak memory against an H2 database in a file. Each
+ * configuration starts a fresh {@link StartupTraining} process that exits as
+ * soon as the application is ready:
+ * <ul>
+ * <li>default: default settings, with the schema updated at startup</li>
+ * <li>startup: the startup profile</li>
+ * <li>startup+cds: the startup profile with a class data sharing archive
+ * recorded by a training run first</li>
+ * <li>native: a native executable built with the native maven profile, when
+ * its path is given with -Dnative.executable</li>
+ * </ul>
+ * The compiled classes are packed into a jar first, since class data sharing
+ * does not support directories on the class path. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.StartupBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class StartupBenchmark {
+	private static final int RUNS = 5;
+	private static final Path DIRECTORY = Paths.get("target", "startup-benchmark");
+	private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Files.createDirectories(DIRECTORY);
+		String classPath = createClassPath();
+		Path archive = DIRECTORY.resolve("app-cds.jsa");
+		Files.deleteIfExists(archive);
+
+		// creates the schema that the startup profile expects to exist
+		start("schema", jvm(classPath));
+
+		System.out.printf("%-12s %12s %12s %12s%n", "config", "started s", "wall s", "peak rss mb");
+		measure("default", jvm(classPath));
+		measure("startup", jvm(classPath, "-Dspring.profiles.active=startup"));
+		start("cds training", jvm(classPath, "-XX:ArchiveClassesAtExit=" + archive, "-Dspring.profiles.active=startup"));
+		measure("startup+cds", jvm(classPath, "-XX:SharedArchiveFile=" + archive, "-Dspring.profiles.active=startup"));
+		String executable = System.getProperty("native.executable");
+		if (executable != null) {
+			measure("native", Arrays.asList(Paths.get(executable).toAbsolutePath().toString()));
+		}
+	}
+
+	/**
+	 * Build a class path of the main classes packed in a jar and the
+	 * dependencies, followed by a jar of the training class. Other test classes
+	 * and their properties are left out. Every run uses the same class path, so
+	 * the training class does not keep the archive from being used.
+	 */
+	private static String createClassPath() throws IOException {
+		Path jar = DIRECTORY.resolve("app.jar").toAbsolutePath();
+		packJar(Paths.get("target", "classes").toAbsolutePath(), jar);
+		Path trainingJar = DIRECTORY.resolve("training.jar").toAbsolutePath();
+		packJar(Paths.get("target", "test-classes").toAbsolutePath(), trainingJar,
+				StartupTraining.class.getName().replace('.', '/') + ".class");
+
+		List<String> entries = new ArrayList<>();
+		entries.add(jar.toString());
+		for (Path entry : projectClassPath()) {
+			if (!Files.isDirectory(entry)) {
+				entries.add(entry.toString());
+			}
+		}
+		entries.add(trainingJar.toString());
+		return String.join(File.pathSeparator, entries);
+	}
+
+	/**
+	 * Pack files of a directory into a jar, only the given ones if any are given.
+	 */
+	private static void packJar(Path classes, Path jar, String... only) throws IOException {
+		List<String> names = Arrays.asList(only);
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+				Stream<Path> files = Files.walk(classes)) {
+			// directories are added too, since component scanning looks packages up by name
+			for (Path file : files.filter(f -> !f.equals(classes)).collect(Collectors.toList())) {
+				String name = classes.relativize(file).toString().replace(File.separatorChar, '/');
+				if (!names.isEmpty() && !names.contains(name)) {
+					continue;
+				}
+				if (Files.isDirectory(file)) {
+					out.putNextEntry(new JarEntry(name + "/"));
+				} else {
+					out.putNextEntry(new JarEntry(name));
+					Files.copy(file, out);
+				}
+				out.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * Get the class path of the project. exec:java loads the project in a class
+	 * loader of its own rather than through the system class path.
+	 */
+	private static List<Path> projectClassPath() {
+		List<Path> result = new ArrayList<>();
+		ClassLoader loader = StartupBenchmark.class.getClassLoader();
+		if (loader instanceof URLClassLoader) {
+			for (URL url : ((URLClassLoader) loader).getURLs()) {
+				try {
+					result.add(Paths.get(url.toURI()));
+				} catch (URISyntaxException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		} else {
+			for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+				result.add(Paths.get(entry));
+			}
+		}
+		return result;
+	}
+
+	private static List<String> jvm(String classPath, String... jvmArgs) {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(Arrays.asList(jvmArgs));
+		command.addAll(Arrays.asList("-cp", classPath, StartupTraining.class.getName()));
+		return command;
+	}
+
+	private static void measure(String config, List<String> launcher) throws IOException, InterruptedException {
+		double[] started = new double[RUNS];
+		double[] wall = new double[RUNS];
+		long[] peakRss = new long[RUNS];
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			Run run = start(config, launcher);
+			wall[i] = (System.nanoTime() - start) / 1e9;
+			started[i] = run.started;
+			peakRss[i] = run.peakRssKb;
+		}
+		Arrays.sort(started);
+		Arrays.sort(wall);
+		Arrays.sort(peakRss);
+		System.out.printf("%-12s %12.2f %12.2f %12.1f%n", config, started[RUNS / 2], wall[RUNS / 2],
+				peakRss[RUNS / 2] / 1024.0);
+	}
+
+	/**
+	 * Start the application in a new process and wait for it to exit. The peak
+	 * resident set size is read from /proc while the process logs, so it is 0 on
+	 * systems without /proc.
+	 */
+	private static Run start(String config, List<String> launcher) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>(launcher);
+		command.addAll(Arrays.asList("--server.port=0", "--spring.jpa.show-sql=false",
+				"--spring.datasource.url=jdbc:h2:file:" + DIRECTORY.toAbsolutePath().resolve("db"),
+				"--spring.datasource.driver-class-name=org.h2.Driver", "--spring.datasource.username=sa",
+				"--spring.datasource.password=",
+				"--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+				"--outbox.file.path=" + DIRECTORY.resolve("outbox-events.jsonl")));
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		Path status = Paths.get("/proc", String.valueOf(process.pid()), "status");
+		Run run = new Run();
+		Deque<String> tail = new ArrayDeque<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				tail.addLast(line);
+				if (tail.size() > 20) {
+					tail.removeFirst();
+				}
+				Matcher matcher = STARTED.matcher(line);
+				if (matcher.find()) {
+					run.started = Double.parseDouble(matcher.group(1));
+				}
+				run.peakRssKb = Math.max(run.peakRssKb, readPeakRss(status));
+			}
+		}
+		if (process.waitFor() != 0 || run.started < 0) {
+			throw new IllegalStateException(
+					config + " run failed with exit code " + process.exitValue() + ":\n" + String.join("\n", tail));
+		}
+		return run;
+	}
+
+	private static long readPeakRss(Path status) {
+		try {
+			for (String line : Files.readAllLines(status)) {
+				if (line.startsWith("VmHWM:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", ""));
+				}
+			}
+		} catch (IOException e) {
+			// the process has exited or there is no /proc
+		}
+		return 0;
+	}
+
+	/**
+	 * Outcome of one run.
+	 */
+	private static final class Run {
+		private double started = -1;
+		private long peakRssKb;
+	}
+}
@@ -0,0 +1,40 @@
+package com.shopify.benchmark;
+
+import com.shopify.Application;
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Training run of the application, which starts it and stops it as soon as it
+ * is ready, to time startup and to record class data sharing archives. An
+ * archive is only used with the class path it was recorded with, so this class
+ * is kept off that class path: the startup profile runs it from its source
+ * file. Jars only the training run needs, such as the driver of the database it
+ * runs against, are given with -Dtraining.class-path and loaded in a class
+ * loader of their own for the same reason.
+ *
+ * @author stephen
+ *
+ */
+public class StartupTraining {
+
+	public static void main(String[] args) throws MalformedURLException {
+		String trainingClassPath = System.getProperty("training.class-path", "");
+		if (!trainingClassPath.isEmpty()) {
+			List<URL> urls = new ArrayList<>();
+			for (String entry : trainingClassPath.split(File.pathSeparator)) {
+				urls.add(new File(entry).toURI().toURL());
+			}
+			Thread.currentThread().setContextClassLoader(
+					new URLClassLoader(urls.toArray(new URL[0]), Thread.currentThread().getContextClassLoader()));
+		}
+		ConfigurableApplicationContext context = SpringApplication.run(Application.class, args);
+		System.exit(SpringApplication.exit(context));
+	}
+}
@@ -0,0 +1,79 @@
+package com.shopify.benchmark;
+
+import com.shopify.Application;
+import com.shopify.dto.ImportReportDTO;
+import com.shopify.services.StockImportService;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Benchmark importing a stock count file of 1M lines, 100k inventory in 10
+ * warehouses, into an in-memory H2 database. The file is imported twice, once
+ * into empty warehouses and once over existing quantities. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.StockImportBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class StockImportBenchmark {
+	private static final int INVENTORY = 100_000;
+	private static final int WAREHOUSES = 10;
+
+	public static void main(String[] args) throws IOException {
+		ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+				"--spring.main.web-application-type=none", "--import.chunk-bytes=4194304",
+				"--import.batch-size=1000", "--import.commit-interval=50000");
+		Path file = Files.createTempFile("stock-import", ".csv");
+		try {
+			seed(context.getBean(JdbcTemplate.class));
+			writeFile(file);
+			StockImportService importService = context.getBean(StockImportService.class);
+
+			System.out.printf("%-8s %10s %10s %10s %12s%n", "run", "lines", "imported", "ms", "rows/s");
+			for (String run : new String[] { "insert", "update" }) {
+				ImportReportDTO report = importService.importStock(file);
+				System.out.printf("%-8s %10d %10d %10d %12.0f%n", run, report.getLinesRead(), report.getRowsImported(),
+						report.getElapsedMillis(), report.getRowsPerSecond());
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			context.close();
+		}
+	}
+
+	private static void seed(JdbcTemplate jdbcTemplate) {
+		List<Object[]> warehouses = new ArrayList<>();
+		for (int i = 0; i < WAREHOUSES; i++) {
+			warehouses.add(new Object[] { "Warehouse " + i });
+		}
+		jdbcTemplate.batchUpdate("insert into warehouse (warehouse_name) values (?)", warehouses);
+		List<Object[]> inventory = new ArrayList<>();
+		for (int i = 0; i < INVENTORY; i++) {
+			inventory.add(new Object[] { "Item " + i, 1.5 + i % 100 });
+		}
+		jdbcTemplate.batchUpdate("insert into inventory (inventory_name, price) values (?, ?)", inventory);
+	}
+
+	private static void writeFile(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("sku,warehouse,quantity\n");
+			for (int i = 0; i < INVENTORY; i++) {
+				for (int w = 0; w < WAREHOUSES; w++) {
+					writer.write("Item " + i + ",Warehouse " + w + "," + (i * 7 + w) % 1000 + "\n");
+				}
+			}
+		}
+	}
+}
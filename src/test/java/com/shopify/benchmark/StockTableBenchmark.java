@@ -0,0 +1,83 @@
+package com.shopify.benchmark;
+
+import com.shopify.util.StockTable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmark measuring lookups of quantities per warehouse and in total in a
+ * stock table of 1M entries, 100k inventory in 10 warehouses, while another
+ * thread keeps changing quantities. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.StockTableBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class StockTableBenchmark {
+	private static final int INVENTORY = 100_000;
+	private static final int WAREHOUSES = 10;
+	private static final int LOOKUPS = 1_000_000;
+	private static final int WARMUP = 5;
+	private static final int ITERATIONS = 10;
+
+	private static volatile boolean running = true;
+
+	public static void main(String[] args) throws InterruptedException {
+		StockTable table = new StockTable(INVENTORY * WAREHOUSES);
+		long start = System.nanoTime();
+		for (int i = 1; i <= INVENTORY; i++) {
+			for (int w = 1; w <= WAREHOUSES; w++) {
+				table.put(i, w, i % 500);
+			}
+		}
+		System.out.printf("loaded %d entries in %.1f ms%n", table.size(), (System.nanoTime() - start) / 1e6);
+
+		Thread writer = new Thread(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			while (running) {
+				table.put(1 + random.nextInt(INVENTORY), 1 + random.nextInt(WAREHOUSES), random.nextInt(500));
+			}
+		});
+		writer.setDaemon(true);
+		writer.start();
+
+		System.out.printf("%-12s %10s%n", "lookup", "ns/op");
+		run("warehouse", table, false);
+		run("total", table, true);
+		running = false;
+		writer.join();
+	}
+
+	private static void run(String name, StockTable table, boolean total) {
+		long[] keys = new long[LOOKUPS];
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < LOOKUPS; i++) {
+			keys[i] = 1 + random.nextInt(INVENTORY);
+		}
+		long sink = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			sink += lookups(table, keys, total);
+		}
+		long[] samples = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			sink += lookups(table, keys, total);
+			samples[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(samples);
+		System.out.printf("%-12s %10.1f%s%n", name, (double) samples[ITERATIONS / 2] / LOOKUPS,
+				sink == 42 ? " " : "");
+	}
+
+	private static long lookups(StockTable table, long[] keys, boolean total) {
+		long sum = 0;
+		for (int i = 0; i < keys.length; i++) {
+			sum += total ? table.getTotal(keys[i]) : table.get(keys[i], 1 + (i % WAREHOUSES));
+		}
+		return sum;
+	}
+}
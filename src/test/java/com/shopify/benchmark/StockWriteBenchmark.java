@@ -0,0 +1,134 @@
+package com.shopify.benchmark;
+
+import com.shopify.Application;
+import com.shopify.services.WarehouseService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Benchmark comparing the stock write engines under peak sale traffic: 1, 8 and
+ * 32 clients increasing and decreasing quantities of 16 hot inventory in 4
+ * warehouses, through the warehouse service, against an in-memory H2 database.
+ * Each engine runs in an application of its own; the sharded engine has one
+ * shard per available processor. The client counts stand for cores, so pin the
+ * process to as many cores to measure them, for example with taskset. Run
+ * with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.shopify.benchmark.StockWriteBenchmark
+ * </pre>
+ *
+ * @author stephen
+ *
+ */
+public class StockWriteBenchmark {
+	private static final int INVENTORY = 16;
+	private static final int WAREHOUSES = 4;
+	private static final int CHANGES = 20_000;
+	private static final int[] CLIENTS = { 1, 8, 32 };
+
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%d available processors%n", Runtime.getRuntime().availableProcessors());
+		System.out.printf("%-10s %8s %12s %10s %10s%n", "engine", "clients", "changes/s", "p50 ms", "p99 ms");
+		for (String engine : new String[] { "combining", "sharded" }) {
+			ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+					"--spring.main.web-application-type=none", "--spring.jpa.show-sql=false",
+					"--stock.write-engine=" + engine, "--warmup.enabled=false", "--concurrency.initial-limit=1000",
+					"--concurrency.min-limit=1000", "--concurrency.max-limit=1000",
+					"--spring.jpa.properties.hibernate.generate_statistics=false");
+			try {
+				long[][] entries = seed(context.getBean(JdbcTemplate.class));
+				WarehouseService warehouseService = context.getBean(WarehouseService.class);
+				run(warehouseService, entries, 8, CHANGES / 2);
+				for (int clients : CLIENTS) {
+					long[] latencies = run(warehouseService, entries, clients, CHANGES);
+					long elapsed = latencies[latencies.length - 1];
+					long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+					Arrays.sort(sorted);
+					System.out.printf("%-10s %8d %12.0f %10.2f %10.2f%n", engine, clients,
+							sorted.length / (elapsed / 1e9), sorted[sorted.length / 2] / 1e6,
+							sorted[sorted.length * 99 / 100] / 1e6);
+				}
+			} finally {
+				context.close();
+			}
+		}
+	}
+
+	/**
+	 * Create the hot inventory in the warehouses.
+	 *
+	 * @return pairs of inventory and warehouse ids
+	 */
+	private static long[][] seed(JdbcTemplate jdbcTemplate) {
+		List<long[]> entries = new ArrayList<>();
+		for (int w = 0; w < WAREHOUSES; w++) {
+			jdbcTemplate.update("insert into warehouse (warehouse_name) values (?)", "Hall " + w);
+		}
+		List<Long> warehouseIds = jdbcTemplate.queryForList(
+				"select warehouse_id from warehouse where warehouse_name like 'Hall %'", Long.class);
+		for (int i = 0; i < INVENTORY; i++) {
+			jdbcTemplate.update("insert into inventory (inventory_name, price) values (?, ?)", "Hot item " + i, 9.99);
+		}
+		List<Long> inventoryIds = jdbcTemplate.queryForList(
+				"select inventory_id from inventory where inventory_name like 'Hot item %'", Long.class);
+		for (long inventoryId : inventoryIds) {
+			for (long warehouseId : warehouseIds) {
+				jdbcTemplate.update("insert into inventory_warehouse "
+						+ "(inventory_inventory_id, warehouse_warehouse_id, total_quantity) values (?, ?, ?)",
+						inventoryId, warehouseId, 1_000_000);
+				entries.add(new long[] { inventoryId, warehouseId });
+			}
+		}
+		return entries.toArray(new long[0][]);
+	}
+
+	/**
+	 * Make changes from a number of clients, three increases to each decrease.
+	 *
+	 * @return latency of each change in nanoseconds, followed by the elapsed time
+	 */
+	private static long[] run(WarehouseService warehouseService, long[][] entries, int clients, int changes)
+			throws Exception {
+		long[] latencies = new long[changes + 1];
+		int perClient = changes / clients;
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			long start = System.nanoTime();
+			for (int c = 0; c < clients; c++) {
+				int from = c * perClient;
+				int to = c == clients - 1 ? changes : from + perClient;
+				results.add(executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = from; i < to; i++) {
+						long[] entry = entries[random.nextInt(entries.length)];
+						long changeStart = System.nanoTime();
+						if (i % 4 == 0) {
+							warehouseService.decreaseInvInWarehouse(entry[1], entry[0], 1);
+						} else {
+							warehouseService.increaseInvInWarehouse(entry[1], entry[0], 1);
+						}
+						latencies[i] = System.nanoTime() - changeStart;
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+			latencies[changes] = System.nanoTime() - start;
+		} finally {
+			executor.shutdown();
+		}
+		return latencies;
+	}
+}